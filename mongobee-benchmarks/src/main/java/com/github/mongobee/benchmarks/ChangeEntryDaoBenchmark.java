@@ -0,0 +1,91 @@
+package com.github.mongobee.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.changeset.ChangeEntry;
+import com.github.mongobee.dao.ChangeEntryDao;
+import com.github.mongobee.exception.MongobeeException;
+
+/**
+ * Changelog collection and lock access of {@link ChangeEntryDao} against Fongo, an in-process MongoDB stand-in.
+ * Measures the client side cost of the calls, not server or network latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChangeEntryDaoBenchmark {
+  private static final String DB_NAME = "mongobeebenchmark";
+  private static final String CHANGELOG_CLASS = "com.example.ChangeLog";
+
+  @Param({"1000"})
+  int appliedChangeSets;
+
+  private ChangeEntryDao dao;
+  private ChangeEntry appliedEntry;
+  private ChangeEntry newEntry;
+  private long saved;
+
+  @Setup(Level.Trial)
+  public void setUp() throws MongobeeException {
+    dao = new ChangeEntryDao("dbchangelog", "mongobeelock", false, 0L, 0L, false);
+    dao.connectMongoDb(new Fongo(DB_NAME).getMongo(), DB_NAME);
+    for (int i = 0; i < appliedChangeSets; i++) {
+      dao.save(entry("applied" + i));
+    }
+    appliedEntry = entry("applied" + (appliedChangeSets / 2));
+    newEntry = entry("new");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dao.close();
+  }
+
+  private static ChangeEntry entry(String changeId) {
+    return new ChangeEntry(changeId, "benchmark", new Date(), CHANGELOG_CLASS, changeId);
+  }
+
+  @Benchmark
+  public boolean isNewChangeApplied() throws MongobeeException {
+    return dao.isNewChange(appliedEntry);
+  }
+
+  @Benchmark
+  public boolean isNewChangeNew() throws MongobeeException {
+    return dao.isNewChange(newEntry);
+  }
+
+  /**
+   * Every invocation adds an entry, the changelog collection grows during the measurement
+   */
+  @Benchmark
+  public void save() throws MongobeeException {
+    dao.save(entry("saved" + saved++));
+  }
+
+  @Benchmark
+  public boolean acquireAndReleaseLock() throws MongobeeException {
+    boolean acquired = dao.acquireProcessLock();
+    dao.releaseProcessLock();
+    return acquired;
+  }
+}
@@ -0,0 +1,106 @@
+package com.github.mongobee.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.mongobee.exception.MongobeeChangeSetException;
+import com.github.mongobee.test.scalability.SyntheticChangeLogGenerator;
+import com.github.mongobee.test.scalability.SyntheticChangeLogGenerator.GeneratedChangeLogs;
+import com.github.mongobee.utils.ChangeLogMetadata;
+import com.github.mongobee.utils.ChangeService;
+import com.github.mongobee.utils.ChangeSetDescriptor;
+
+/**
+ * Startup work of {@link ChangeService}: finding the changelogs of a package and reading their changesets,
+ * both from class file metadata and by reflection on loaded classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeServiceBenchmark {
+  static final int CHANGESETS_PER_CHANGELOG = 50;
+  private static final String PACKAGE_NAME = "com.github.mongobee.benchmarks.synthetic";
+
+  @Param({"100", "1000", "10000"})
+  int changeSets;
+
+  private GeneratedChangeLogs changeLogs;
+  private ChangeService service;
+  private List<ChangeLogMetadata> changeLogMetadata;
+  private List<Class<?>> changeLogClasses;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    changeLogs = new SyntheticChangeLogGenerator()
+        .setChangeLogs(changeSets / CHANGESETS_PER_CHANGELOG)
+        .setChangeSetsPerChangeLog(CHANGESETS_PER_CHANGELOG)
+        .generate(PACKAGE_NAME + ".s" + changeSets);
+    service = newChangeService();
+    changeLogMetadata = service.fetchChangeLogMetadata();
+    changeLogClasses = service.fetchChangeLogs();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    changeLogs.close();
+  }
+
+  private ChangeService newChangeService() {
+    // ChangeService takes the thread context class loader
+    Thread thread = Thread.currentThread();
+    ClassLoader previous = thread.getContextClassLoader();
+    thread.setContextClassLoader(changeLogs.getClassLoader());
+    try {
+      return new ChangeService(changeLogs.getPackageName());
+    } finally {
+      thread.setContextClassLoader(previous);
+    }
+  }
+
+  @Benchmark
+  public List<ChangeLogMetadata> fetchChangeLogMetadata() {
+    return newChangeService().fetchChangeLogMetadata();
+  }
+
+  @Benchmark
+  public List<Class<?>> fetchChangeLogs() {
+    return newChangeService().fetchChangeLogs();
+  }
+
+  @Benchmark
+  public void fetchChangeSetsFromMetadata(Blackhole blackhole) throws MongobeeChangeSetException {
+    for (ChangeLogMetadata changeLog : changeLogMetadata) {
+      blackhole.consume(service.fetchChangeSets(changeLog));
+    }
+  }
+
+  @Benchmark
+  public void fetchChangeSetsFromClasses(Blackhole blackhole) throws MongobeeChangeSetException {
+    for (Class<?> changeLog : changeLogClasses) {
+      List<ChangeSetDescriptor> changeSets = service.fetchChangeSetDescriptors(changeLog);
+      for (ChangeSetDescriptor changeSet : changeSets) {
+        blackhole.consume(changeSet.isRunAlways());
+        blackhole.consume(changeSet.createChangeEntry());
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.github.mongobee.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.jongo.Jongo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.exception.MongobeeException;
+import com.github.mongobee.resolver.BuiltInParameterResolver;
+import com.github.mongobee.resolver.ChangeSetContext;
+import com.github.mongobee.resolver.DefaultParameterResolver;
+import com.github.mongobee.resolver.MigrationContext;
+import com.github.mongobee.resolver.ParameterResolver;
+import com.github.mongobee.resolver.ParameterResolvers;
+import com.github.mongobee.utils.ChangeSetDescriptor;
+import com.github.mongobee.utils.ChangeSetInvoker;
+import com.mongodb.DB;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Dispatch of a changeset method the way Mongobee executes it - resolving the arguments for the execution and
+ * invoking the handle kept by the {@link ChangeSetDescriptor} through {@link ChangeSetInvoker#create} - compared
+ * with plain reflection and with an invoker created once, for resolved arguments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChangeSetDispatchBenchmark {
+  private static final String DB_NAME = "mongobeebenchmark";
+
+  @Param({"withMongoDatabase", "withDbAndJongo"})
+  String changeSet;
+
+  private final DispatchChangeLog changeLog = new DispatchChangeLog();
+  private Method method;
+  private ChangeSetDescriptor descriptor;
+  private Object[] values;
+  private ParameterResolvers parameterResolvers;
+  private ChangeSetInvoker invoker;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    Fongo fongo = new Fongo(DB_NAME);
+    DB db = fongo.getDB(DB_NAME);
+    MongoDatabase mongoDatabase = fongo.getDatabase(DB_NAME);
+    // the resolvers of a migration without custom resolvers
+    parameterResolvers = new ParameterResolvers(Arrays.<ParameterResolver>asList(
+        new BuiltInParameterResolver(null, 1000, 8 * 1024 * 1024, 1),
+        new DefaultParameterResolver(new Jongo(db), null)),
+        new MigrationContext(db, mongoDatabase, DB_NAME, null));
+
+    for (Method declared : DispatchChangeLog.class.getDeclaredMethods()) {
+      if (declared.getName().equals(changeSet)) {
+        method = declared;
+      }
+    }
+    descriptor = ChangeSetDescriptor.of(method);
+    values = parameterResolvers.resolve(descriptor);
+    invoker = ChangeSetInvoker.create(descriptor, changeLog);
+  }
+
+  @Benchmark
+  public Object reflection() throws IllegalAccessException, InvocationTargetException {
+    return method.invoke(changeLog, values);
+  }
+
+  @Benchmark
+  public Object reusedInvoker() throws InvocationTargetException {
+    return invoker.invoke(values);
+  }
+
+  @Benchmark
+  public Object dispatch() throws IllegalAccessException, InvocationTargetException, MongobeeException {
+    ChangeSetContext context = new ChangeSetContext(parameterResolvers.getContext(), descriptor);
+    Object[] arguments = parameterResolvers.resolve(descriptor, context);
+    Object result = ChangeSetInvoker.create(descriptor, changeLog).invoke(arguments);
+    context.complete();
+    return result;
+  }
+}
@@ -0,0 +1,24 @@
+package com.github.mongobee.benchmarks;
+
+import org.jongo.Jongo;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+import com.mongodb.DB;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Changesets doing no work, so that only their dispatch is measured
+ */
+@ChangeLog(order = "1")
+public class DispatchChangeLog {
+
+  @ChangeSet(author = "benchmark", id = "dispatch1", order = "01")
+  public void withMongoDatabase(MongoDatabase db) {
+  }
+
+  @ChangeSet(author = "benchmark", id = "dispatch2", order = "02")
+  public void withDbAndJongo(DB db, Jongo jongo) {
+  }
+
+}
@@ -0,0 +1,131 @@
+package com.github.mongobee.processor;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+import com.github.mongobee.utils.ChangeLogIndex;
+import com.github.mongobee.utils.ChangeLogMetadata;
+import com.github.mongobee.utils.ChangeSetMetadata;
+
+/**
+ * Writes {@link ChangeLogIndex#INDEX_RESOURCE} listing all {@link ChangeLog} classes of the compilation together
+ * with their {@link ChangeSet} methods, so mongobee does not need to scan the classpath at runtime.
+ *
+ * <p>Only classes compiled in the same compilation are listed. Incremental builds compiling a subset of
+ * changelogs produce an incomplete index - do a full rebuild of the module holding changelogs.</p>
+ */
+@SupportedAnnotationTypes("com.github.mongobee.changeset.ChangeLog")
+public class ChangeLogIndexProcessor extends AbstractProcessor {
+  private static final String PROFILE_ANNOTATION = "org.springframework.context.annotation.Profile";
+  private static final Charset INDEX_CHARSET = Charset.forName("UTF-8");
+
+  private final List<ChangeLogMetadata> changeLogs = new ArrayList<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(ChangeLog.class)) {
+      if (element.getKind() == ElementKind.CLASS) {
+        changeLogs.add(readChangeLog((TypeElement) element));
+      }
+    }
+
+    if (roundEnv.processingOver() && !changeLogs.isEmpty()) {
+      writeIndex();
+    }
+    return false;
+  }
+
+  private ChangeLogMetadata readChangeLog(TypeElement type) {
+    List<ChangeSetMetadata> changeSets = new ArrayList<>();
+    for (Element member : type.getEnclosedElements()) {
+      ChangeSet changeSet = member.getAnnotation(ChangeSet.class);
+      if (member.getKind() == ElementKind.METHOD && changeSet != null) {
+        changeSets.add(new ChangeSetMetadata(member.getSimpleName().toString(), changeSet.id(), changeSet.author(),
+            changeSet.order(), changeSet.runAlways(), readProfiles(member)));
+      }
+    }
+
+    return new ChangeLogMetadata(
+        processingEnv.getElementUtils().getBinaryName(type).toString(),
+        type.getQualifiedName().toString(),
+        type.getAnnotation(ChangeLog.class).order(),
+        changeSets,
+        readProfiles(type));
+  }
+
+  /**
+   * Spring is not required on the processor path, so the {@code @Profile} annotation is read by its name.
+   */
+  private String[] readProfiles(Element element) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+      if (!annotationType.getQualifiedName().contentEquals(PROFILE_ANNOTATION)) {
+        continue;
+      }
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value
+          : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+        if (value.getKey().getSimpleName().contentEquals("value")) {
+          return toStrings(value.getValue());
+        }
+      }
+    }
+    return new String[0];
+  }
+
+  private String[] toStrings(AnnotationValue value) {
+    Object raw = value.getValue();
+    if (!(raw instanceof List)) {
+      return new String[]{String.valueOf(raw)};
+    }
+    List<String> strings = new ArrayList<>();
+    for (Object item : (List<?>) raw) {
+      strings.add(String.valueOf(((AnnotationValue) item).getValue()));
+    }
+    return strings.toArray(new String[strings.size()]);
+  }
+
+  private void writeIndex() {
+    try {
+      FileObject resource = processingEnv.getFiler()
+          .createResource(StandardLocation.CLASS_OUTPUT, "", ChangeLogIndex.INDEX_RESOURCE);
+      Writer writer = new OutputStreamWriter(resource.openOutputStream(), INDEX_CHARSET);
+      try {
+        ChangeLogIndex.write(Collections.unmodifiableList(changeLogs), writer);
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Could not write " + ChangeLogIndex.INDEX_RESOURCE + ": " + e.getMessage());
+    }
+  }
+
+}
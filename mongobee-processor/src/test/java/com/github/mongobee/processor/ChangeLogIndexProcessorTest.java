@@ -0,0 +1,89 @@
+package com.github.mongobee.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import com.github.mongobee.utils.ChangeLogIndex;
+import com.github.mongobee.utils.ChangeLogMetadata;
+import com.github.mongobee.utils.ChangeSetMetadata;
+
+public class ChangeLogIndexProcessorTest {
+
+  private static final String CHANGELOG_SOURCE = ""
+      + "package com.example.changelogs;\n"
+      + "import com.github.mongobee.changeset.ChangeLog;\n"
+      + "import com.github.mongobee.changeset.ChangeSet;\n"
+      + "@ChangeLog(order = \"001\")\n"
+      + "public class ExampleChangeLog {\n"
+      + "  @ChangeSet(author = \"testuser\", id = \"example1\", order = \"01\")\n"
+      + "  public void first() {}\n"
+      + "  @ChangeSet(author = \"testuser\", id = \"example2\", order = \"02\", runAlways = true)\n"
+      + "  public void second() {}\n"
+      + "  public void notAChangeSet() {}\n"
+      + "  public static class Nested {}\n"
+      + "}\n";
+
+  @Test
+  public void shouldWriteIndexOfCompiledChangeLogs() throws IOException {
+    // given
+    Path sources = Files.createTempDirectory("mongobee-processor-src");
+    Path classes = Files.createTempDirectory("mongobee-processor-classes");
+    File source = sources.resolve("ExampleChangeLog.java").toFile();
+    Files.write(source.toPath(), CHANGELOG_SOURCE.getBytes(Charset.forName("UTF-8")));
+
+    // when
+    compile(source, classes.toFile());
+
+    // then
+    ChangeLogIndex index = ChangeLogIndex.load(new URLClassLoader(new URL[]{classes.toUri().toURL()}, null));
+    List<ChangeLogMetadata> changeLogs = index.getChangeLogs("com.example");
+    assertEquals(1, changeLogs.size());
+
+    ChangeLogMetadata changeLog = changeLogs.get(0);
+    assertEquals("com.example.changelogs.ExampleChangeLog", changeLog.getClassName());
+    assertEquals("001", changeLog.getOrder());
+    assertTrue(changeLog.getProfiles().isEmpty());
+    assertEquals(2, changeLog.getChangeSets().size());
+
+    ChangeSetMetadata second = changeLog.getChangeSets().get(1);
+    assertEquals("second", second.getMethodName());
+    assertEquals("example2", second.getId());
+    assertEquals("testuser", second.getAuthor());
+    assertEquals("02", second.getOrder());
+    assertTrue(second.isRunAlways());
+  }
+
+  private void compile(File source, File classes) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+    try {
+      Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(Collections.singletonList(source));
+      List<String> options = Arrays.asList("-d", classes.getAbsolutePath(),
+          "-classpath", System.getProperty("java.class.path"));
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, units);
+      task.setProcessors(Collections.singletonList(new ChangeLogIndexProcessor()));
+      assertTrue("compilation failed", task.call());
+    } finally {
+      fileManager.close();
+    }
+  }
+
+}
@@ -0,0 +1,66 @@
+package com.github.mongobee;
+
+import com.github.mongobee.changeset.BulkWriteStats;
+
+/**
+ * Outcome of a Mongobee execution
+ */
+public class MigrationResult {
+
+  public enum Status {
+    /** Mongobee is disabled */
+    DISABLED,
+    /** the process lock is held by another process, which is expected to migrate the database */
+    LOCK_NOT_ACQUIRED,
+    /** no changeset was pending, nothing was executed */
+    UP_TO_DATE,
+    /** changesets were executed */
+    EXECUTED
+  }
+
+  private final Status status;
+  private final boolean completed;
+  private final long durationMillis;
+  private final BulkWriteStats bulkWriteStats;
+
+  public MigrationResult(Status status, boolean completed, long durationMillis) {
+    this(status, completed, durationMillis, new BulkWriteStats());
+  }
+
+  public MigrationResult(Status status, boolean completed, long durationMillis, BulkWriteStats bulkWriteStats) {
+    this.status = status;
+    this.completed = completed;
+    this.durationMillis = durationMillis;
+    this.bulkWriteStats = bulkWriteStats;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * @return false if a changeset was passed over because its arguments could not be resolved
+   */
+  public boolean isCompleted() {
+    return completed;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  /**
+   * @return counts of documents written by {@link com.github.mongobee.changeset.BulkWriter}s,
+   * including deferred changesets still running
+   */
+  public BulkWriteStats getBulkWriteStats() {
+    return bulkWriteStats;
+  }
+
+  @Override
+  public String toString() {
+    return "MigrationResult{status=" + status + ", completed=" + completed + ", durationMillis=" + durationMillis
+        + ", bulkWriteStats=" + bulkWriteStats + "}";
+  }
+
+}
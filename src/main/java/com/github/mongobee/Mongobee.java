@@ -5,9 +5,18 @@ import static com.mongodb.ServerAddress.defaultPort;
 import static org.springframework.util.StringUtils.hasText;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
+import org.bson.Document;
 import org.jongo.Jongo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,16 +24,39 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.env.Environment;
 import org.springframework.data.mongodb.core.MongoTemplate;
 
+import com.github.mongobee.changeset.BulkWriteStats;
+import com.github.mongobee.changeset.BulkWriter;
 import com.github.mongobee.changeset.ChangeEntry;
+import com.github.mongobee.changeset.ChangeSet;
+import com.github.mongobee.changeset.Checkpoint;
+import com.github.mongobee.changeset.CollectionTransformer;
+import com.github.mongobee.dao.AppliedChanges;
 import com.github.mongobee.dao.ChangeEntryDao;
+import com.github.mongobee.dao.LockWaitStrategy;
 import com.github.mongobee.exception.MongobeeChangeSetException;
 import com.github.mongobee.exception.MongobeeConfigurationException;
 import com.github.mongobee.exception.MongobeeConnectionException;
 import com.github.mongobee.exception.MongobeeException;
+import com.github.mongobee.metrics.MigrationMetrics;
+import com.github.mongobee.resolver.BuiltInParameterResolver;
+import com.github.mongobee.resolver.ChangeSetContext;
+import com.github.mongobee.resolver.DefaultParameterResolver;
+import com.github.mongobee.resolver.MigrationContext;
+import com.github.mongobee.resolver.ParameterResolver;
+import com.github.mongobee.resolver.ParameterResolvers;
+import com.github.mongobee.throttle.WriteThrottle;
+import com.github.mongobee.utils.ChangeLogMetadata;
 import com.github.mongobee.utils.ChangeService;
+import com.github.mongobee.utils.ChangeSetDescriptor;
+import com.github.mongobee.utils.ChangeSetInvoker;
+import com.github.mongobee.utils.ChangeSetMetadata;
+import com.github.mongobee.utils.ChangeSetScheduler;
+import com.github.mongobee.utils.MigrationFingerprint;
 import com.mongodb.DB;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoDatabase;
 
 /**
@@ -42,6 +74,30 @@ public class Mongobee implements InitializingBean {
   private static final long DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME = 5L;
   private static final long DEFAULT_CHANGE_LOG_LOCK_POLL_RATE = 10L;
   private static final boolean DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK = false;
+  private static final int DEFAULT_BULK_WRITE_BATCH_SIZE = 1000;
+  private static final long DEFAULT_BULK_WRITE_MAX_BYTES = 8L * 1024 * 1024;
+
+  private static final Executor DEFERRED_THREAD_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      Thread thread = new Thread(command, "mongobee-deferred");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  };
+
+  /**
+   * Changeset collected for execution in the background
+   */
+  private static class DeferredChangeSet {
+    private final ChangeSetDescriptor changeSet;
+    private final Object changeLogInstance;
+
+    DeferredChangeSet(ChangeSetDescriptor changeSet, Object changeLogInstance) {
+      this.changeSet = changeSet;
+      this.changeLogInstance = changeLogInstance;
+    }
+  }
 
   private ChangeEntryDao dao;
 
@@ -51,9 +107,23 @@ public class Mongobee implements InitializingBean {
   private MongoClient mongoClient;
   private String dbName;
   private Environment springEnvironment;
+  private boolean prefetchAppliedChanges = false;
+  private boolean migrationFingerprintEnabled = false;
+  private int parallelism = 1;
+  private int bulkWriteBatchSize = DEFAULT_BULK_WRITE_BATCH_SIZE;
+  private long bulkWriteMaxBytes = DEFAULT_BULK_WRITE_MAX_BYTES;
+  private int transformerParallelism = Runtime.getRuntime().availableProcessors();
+  private WriteThrottle writeThrottle;
+  private MigrationMetrics metrics = MigrationMetrics.NONE;
+  private Executor asyncExecutor;
+  private final CountDownLatch migrationFinished = new CountDownLatch(1);
+  private Executor deferredExecutor;
+  private volatile CompletableFuture<Void> deferredExecution = CompletableFuture.completedFuture(null);
+  private volatile boolean ready = false;
 
   private MongoTemplate mongoTemplate;
   private Jongo jongo;
+  private final List<ParameterResolver> parameterResolvers = new ArrayList<>();
 
 
   /**
@@ -124,13 +194,19 @@ public class Mongobee implements InitializingBean {
   }
 
   /**
-   * For Spring users: executing mongobee after bean is created in the Spring context
+   * For Spring users: executing mongobee after bean is created in the Spring context. If an executor is set
+   * by {@link #setAsyncExecutor(Executor)}, the migration runs on it and the context is not blocked,
+   * see {@link #isReady()}.
    *
    * @throws Exception exception
    */
   @Override
   public void afterPropertiesSet() throws Exception {
-    execute();
+    if (asyncExecutor != null) {
+      executeAsync(asyncExecutor);
+    } else {
+      execute();
+    }
   }
 
   /**
@@ -139,115 +215,508 @@ public class Mongobee implements InitializingBean {
    * @throws MongobeeException exception
    */
   public void execute() throws MongobeeException {
+    execute(null);
+  }
+
+  /**
+   * Executing migration on the given executor, e.g. to start serving requests while a long migration runs.
+   * Use {@link #isReady()} or {@link #awaitReady(long, TimeUnit)} to hold back traffic until it is finished.
+   *
+   * @param executor executor running the migration
+   * @return result of the migration, completed exceptionally if the migration fails
+   */
+  public CompletableFuture<MigrationResult> executeAsync(Executor executor) {
+    final CompletableFuture<MigrationResult> result = new CompletableFuture<>();
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          result.complete(execute(null));
+        } catch (Throwable e) {
+          logger.error("Mongobee migration failed", e);
+          result.completeExceptionally(e);
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * @return execution of the deferred changesets of the last migration, completed if there were none
+   */
+  public CompletableFuture<Void> getDeferredExecution() {
+    return deferredExecution;
+  }
+
+  /**
+   * @return true once a migration has finished successfully (or Mongobee is disabled); stays false after a failure
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Waits until the first migration finishes
+   *
+   * @param timeout maximum time to wait
+   * @param unit unit of the timeout
+   * @return true if the migration finished successfully, false if it failed or is still running after the timeout
+   * @throws InterruptedException if the current thread is interrupted while waiting
+   */
+  public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+    return migrationFinished.await(timeout, unit) && ready;
+  }
+
+  /**
+   * Executing migration of changelogs resolved in advance, e.g. shared by runs over many databases
+   *
+   * @param changeLogs changelogs returned by {@link ChangeService#fetchChangeLogMetadata()} for the scan package
+   *                   and Spring environment of this runner, null to resolve them here
+   * @return result of the migration
+   * @throws MongobeeException exception
+   */
+  MigrationResult execute(List<ChangeLogMetadata> changeLogs) throws MongobeeException {
+    try {
+      MigrationResult result = migrate(changeLogs, System.nanoTime());
+      ready = true;
+      return result;
+    } finally {
+      migrationFinished.countDown();
+    }
+  }
+
+  private MigrationResult migrate(List<ChangeLogMetadata> changeLogs, long startNanos) throws MongobeeException {
     if (!isEnabled()) {
       logger.info("Mongobee is disabled. Exiting.");
-      return;
+      return result(MigrationResult.Status.DISABLED, true, startNanos);
     }
 
     validateConfig();
 
-    if (this.mongoClient != null) {
-      dao.connectMongoDb(this.mongoClient, dbName);
+    ChangeService service = new ChangeService(changeLogsScanPackage, springEnvironment);
+    AppliedChanges appliedChanges = null;
+    String fingerprint = null;
+    boolean planApplied = false;
+
+    if (migrationFingerprintEnabled || prefetchAppliedChanges) {
+      // read-only planning: collections are initialized and the lock is acquired only if there is something to execute
+      long connectNanos = connectMongoDb(false);
+      if (changeLogs == null) {
+        changeLogs = fetchChangeLogs(service);
+      }
+      if (migrationFingerprintEnabled) {
+        fingerprint = MigrationFingerprint.of(service, changeLogs);
+        planApplied = fingerprint.equals(dao.findMigrationFingerprint());
+      }
+      if (prefetchAppliedChanges && !planApplied) {
+        appliedChanges = dao.fetchAppliedChanges();
+      }
+      if (!hasChangeSetsToExecute(service, changeLogs, planApplied, appliedChanges)) {
+        metrics.recordConnect(connectNanos);
+        logger.info("Mongobee found no pending changesets. Exiting.");
+        return result(MigrationResult.Status.UP_TO_DATE, true, startNanos);
+      }
+      long initializeStart = System.nanoTime();
+      dao.initializeCollections();
+      metrics.recordConnect(connectNanos + System.nanoTime() - initializeStart);
     } else {
-      dao.connectMongoDb(this.mongoClientURI, dbName);
+      metrics.recordConnect(connectMongoDb(true));
     }
 
     if (!dao.acquireProcessLock()) {
       logger.info("Mongobee did not acquire process lock. Exiting.");
-      return;
+      return result(MigrationResult.Status.LOCK_NOT_ACQUIRED, true, startNanos);
     }
 
     logger.info("Mongobee acquired process lock, starting the data migration sequence..");
 
+    boolean completed;
+    ParameterResolvers parameterResolvers = createParameterResolvers();
+    List<DeferredChangeSet> deferred = Collections.synchronizedList(new ArrayList<DeferredChangeSet>());
+    boolean flushed = false;
     try {
-      executeMigration();
+      if (changeLogs == null) {
+        changeLogs = fetchChangeLogs(service);
+      }
+      completed = executeMigration(service, changeLogs, planApplied, appliedChanges, parameterResolvers, deferred);
+      // the fingerprint vouches for all changesets being recorded, so it is saved only once buffered entries are written
+      dao.flushChangeEntries();
+      flushed = true;
+      if (fingerprint != null && completed && deferred.isEmpty() && !planApplied) {
+        dao.saveMigrationFingerprint(fingerprint);
+      }
     } finally {
-      logger.info("Mongobee is releasing process lock.");
-      dao.releaseProcessLock();
+      try {
+        if (!flushed) {
+          // entries of changesets applied before a failure are kept
+          dao.flushChangeEntries();
+        }
+      } finally {
+        logger.info("Mongobee is releasing process lock.");
+        dao.releaseProcessLock();
+      }
     }
 
-    logger.info("Mongobee has finished his job.");
+    if (!deferred.isEmpty()) {
+      executeDeferred(new ArrayList<>(deferred), parameterResolvers);
+    }
+
+    BulkWriteStats bulkWriteStats = parameterResolvers.getContext().getBulkWriteStats();
+    logger.info("Mongobee has finished his job. " + bulkWriteStats);
+    return new MigrationResult(MigrationResult.Status.EXECUTED, completed, millisSince(startNanos), bulkWriteStats);
   }
 
-  private void executeMigration() throws MongobeeConnectionException, MongobeeException {
+  private static MigrationResult result(MigrationResult.Status status, boolean completed, long startNanos) {
+    return new MigrationResult(status, completed, millisSince(startNanos));
+  }
 
-    ChangeService service = new ChangeService(changeLogsScanPackage, springEnvironment);
+  private static long millisSince(long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
 
-    for (Class<?> changelogClass : service.fetchChangeLogs()) {
+  private List<ChangeLogMetadata> fetchChangeLogs(ChangeService service) throws MongobeeException {
+    long start = System.nanoTime();
+    List<ChangeLogMetadata> changeLogs = service.fetchChangeLogMetadata();
+    metrics.recordScan(System.nanoTime() - start);
+    return changeLogs;
+  }
 
-      Object changelogInstance = null;
-      try {
-        changelogInstance = changelogClass.getConstructor().newInstance();
-        List<Method> changesetMethods = service.fetchChangeSets(changelogInstance.getClass());
-
-        for (Method changesetMethod : changesetMethods) {
-          ChangeEntry changeEntry = service.createChangeEntry(changesetMethod);
-
-          try {
-            if (dao.isNewChange(changeEntry)) {
-              executeChangeSetMethod(changesetMethod, changelogInstance, dao.getDb(), dao.getMongoDatabase());
-              dao.save(changeEntry);
-              logger.info(changeEntry + " applied");
-            } else if (service.isRunAlwaysChangeSet(changesetMethod)) {
-              executeChangeSetMethod(changesetMethod, changelogInstance, dao.getDb(), dao.getMongoDatabase());
-              logger.info(changeEntry + " reapplied");
-            } else {
-              logger.info(changeEntry + " passed over");
-            }
-          } catch (MongobeeChangeSetException e) {
-            logger.error(e.getMessage());
+  /**
+   * @param initialize false to only connect, see {@link ChangeEntryDao#initializeCollections()}
+   * @return time spent connecting
+   */
+  private long connectMongoDb(boolean initialize) throws MongobeeException {
+    long start = System.nanoTime();
+    if (!initialize) {
+      if (this.mongoClient != null) {
+        dao.connectMongoDb(this.mongoClient, dbName, false);
+      } else {
+        dao.connectMongoDb(this.mongoClientURI, dbName, false);
+      }
+    } else if (this.mongoClient != null) {
+      dao.connectMongoDb(this.mongoClient, dbName);
+    } else {
+      dao.connectMongoDb(this.mongoClientURI, dbName);
+    }
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * @param planApplied if true all changesets are known to be applied, only runAlways changesets are executed
+   * @param appliedChanges changes applied at planning time, null if not prefetched
+   * @return true if no changeset failed
+   */
+  private boolean executeMigration(ChangeService service, List<ChangeLogMetadata> changeLogs, boolean planApplied,
+      AppliedChanges appliedChanges, ParameterResolvers parameterResolvers, List<DeferredChangeSet> deferred)
+      throws MongobeeConnectionException, MongobeeException {
+
+    if (parallelism > 1) {
+      return executeMigrationInParallel(service, changeLogs, planApplied, appliedChanges, parameterResolvers, deferred);
+    }
+
+    boolean completed = true;
+
+    for (ChangeLogMetadata changeLog : changeLogs) {
+
+      boolean nothingToExecute = planApplied
+          ? !hasRunAlwaysChangeSets(service, Collections.singletonList(changeLog))
+          : appliedChanges != null && !hasChangeSetsToExecute(service, changeLog, appliedChanges);
+      if (nothingToExecute) {
+        // the changelog class is not loaded at all if there is nothing to execute
+        for (ChangeSetMetadata changeSet : service.fetchChangeSets(changeLog)) {
+          logger.info(service.createChangeEntry(changeLog, changeSet) + " passed over");
+          metrics.recordChangeSet(changeLog.getClassName(), changeSet.getId(), MigrationMetrics.PASSED_OVER, 0L);
+        }
+        continue;
+      }
+
+      Object changelogInstance = createChangeLogInstance(service.loadChangeLog(changeLog));
+      for (ChangeSetDescriptor changeSet : service.fetchChangeSetDescriptors(changelogInstance.getClass())) {
+        if (!executeChangeSet(changeSet, changelogInstance, planApplied, appliedChanges, parameterResolvers, deferred)) {
+          completed = false;
+        }
+      }
+      dao.flushChangeEntries();
+
+    }
+    return completed;
+  }
+
+  /**
+   * Runs changesets as a graph of their groups and dependencies, see {@link ChangeSetScheduler}.
+   * All changelog classes are loaded, as any changeset can be a dependency.
+   */
+  private boolean executeMigrationInParallel(final ChangeService service, List<ChangeLogMetadata> changeLogs,
+      final boolean planApplied, final AppliedChanges appliedChanges, final ParameterResolvers parameterResolvers,
+      final List<DeferredChangeSet> deferred) throws MongobeeException {
+
+    List<ChangeSetScheduler.Node> nodes = new ArrayList<>();
+    Set<Integer> deferredIndexes = new HashSet<>();
+
+    for (ChangeLogMetadata changeLog : changeLogs) {
+      Class<?> changelogClass = service.loadChangeLog(changeLog);
+      final Object changelogInstance = createChangeLogInstance(changelogClass);
+
+      for (final ChangeSetDescriptor changeSet : service.fetchChangeSetDescriptors(changelogClass)) {
+        if (changeSet.isDeferred()) {
+          deferredIndexes.add(nodes.size());
+        }
+        nodes.add(new ChangeSetScheduler.Node(changeSet.getId(), changeSet.getAuthor(), changeSet.getGroup(),
+            changeSet.getDependsOn(), new ChangeSetScheduler.Task() {
+          @Override
+          public boolean run() throws MongobeeException {
+            return executeChangeSet(changeSet, changelogInstance, planApplied, appliedChanges, parameterResolvers,
+                deferred);
           }
+        }));
+      }
+    }
+
+    // deferred changesets only run after the migration, a dependency on one could never be satisfied
+    List<Set<Integer>> dependsOn = ChangeSetScheduler.resolveDependsOn(nodes);
+    for (int i = 0; i < nodes.size(); i++) {
+      for (int dependency : dependsOn.get(i)) {
+        if (deferredIndexes.contains(dependency)) {
+          throw new MongobeeChangeSetException("ChangeSet " + nodes.get(i).getId() + " depends on deferred changeset "
+              + nodes.get(dependency).getId() + ", changesets must not depend on a deferred changeset");
         }
-      } catch (NoSuchMethodException e) {
-        throw new MongobeeException(e.getMessage(), e);
-      } catch (IllegalAccessException e) {
-        throw new MongobeeException(e.getMessage(), e);
-      } catch (InvocationTargetException e) {
-        Throwable targetException = e.getTargetException();
-        throw new MongobeeException(targetException.getMessage(), e);
-      } catch (InstantiationException e) {
-        throw new MongobeeException(e.getMessage(), e);
       }
+    }
+
+    return new ChangeSetScheduler(parallelism).execute(nodes);
+  }
 
+  private Object createChangeLogInstance(Class<?> changelogClass) throws MongobeeException {
+    try {
+      return changelogClass.getConstructor().newInstance();
+    } catch (NoSuchMethodException e) {
+      throw new MongobeeException(e.getMessage(), e);
+    } catch (IllegalAccessException e) {
+      throw new MongobeeException(e.getMessage(), e);
+    } catch (InvocationTargetException e) {
+      Throwable targetException = e.getTargetException();
+      throw new MongobeeException(targetException.getMessage(), e);
+    } catch (InstantiationException e) {
+      throw new MongobeeException(e.getMessage(), e);
     }
   }
 
-  private Object executeChangeSetMethod(Method changeSetMethod, Object changeLogInstance, DB db, MongoDatabase mongoDatabase)
-      throws IllegalAccessException, InvocationTargetException, MongobeeChangeSetException {
-    if (changeSetMethod.getParameterTypes().length == 1
-        && changeSetMethod.getParameterTypes()[0].equals(DB.class)) {
-      logger.debug("method with DB argument");
+  /**
+   * @param deferred collects deferred changesets instead of executing them, null to execute them
+   * @return false if the changeset could not be invoked because of its arguments
+   */
+  private boolean executeChangeSet(ChangeSetDescriptor changeSet, Object changelogInstance, boolean planApplied,
+      AppliedChanges appliedChanges, ParameterResolvers parameterResolvers, List<DeferredChangeSet> deferred)
+      throws MongobeeException {
+    ChangeEntry changeEntry = changeSet.createChangeEntry();
+    boolean pending = !planApplied && isNewChange(changeEntry, appliedChanges);
 
-      return changeSetMethod.invoke(changeLogInstance, db);
-    } else if (changeSetMethod.getParameterTypes().length == 1
-        && changeSetMethod.getParameterTypes()[0].equals(Jongo.class)) {
-      logger.debug("method with Jongo argument");
+    // applied deferred changesets are passed over here, so they do not keep the fingerprint from being saved
+    if (deferred != null && changeSet.isDeferred() && (pending || changeSet.isRunAlways())) {
+      deferred.add(new DeferredChangeSet(changeSet, changelogInstance));
+      logger.info(changeEntry + " deferred");
+      return true;
+    }
 
-      return changeSetMethod.invoke(changeLogInstance, jongo != null ? jongo : new Jongo(db));
-    } else if (changeSetMethod.getParameterTypes().length == 1
-        && changeSetMethod.getParameterTypes()[0].equals(MongoTemplate.class)) {
-      logger.debug("method with MongoTemplate argument");
+    String outcome = MigrationMetrics.FAILED;
+    long start = System.nanoTime();
+    try {
+      if (pending) {
+        Checkpoint checkpoint = createCheckpoint(changeSet, changeEntry, true);
+        BulkWriteStats changeSetStats = new BulkWriteStats(parameterResolvers.getContext().getBulkWriteStats());
+        Date startedAt = new Date();
+        executeChangeSetMethod(changeSet, changelogInstance, parameterResolvers, checkpoint, changeSetStats);
+        changeEntry.recordExecution(startedAt, new Date(),
+            changeSetStats.getBulkWrites() > 0 ? changeSetStats.getAffected() : null);
+        if (checkpoint != null && checkpoint.isSaved()) {
+          dao.completeCheckpoint(changeEntry);
+        } else {
+          dao.save(changeEntry);
+        }
+        outcome = MigrationMetrics.APPLIED;
+        logger.info(changeEntry + " applied");
+      } else if (changeSet.isRunAlways()) {
+        executeChangeSetMethod(changeSet, changelogInstance, parameterResolvers,
+            createCheckpoint(changeSet, changeEntry, false),
+            new BulkWriteStats(parameterResolvers.getContext().getBulkWriteStats()));
+        outcome = MigrationMetrics.REAPPLIED;
+        logger.info(changeEntry + " reapplied");
+      } else {
+        outcome = MigrationMetrics.PASSED_OVER;
+        logger.info(changeEntry + " passed over");
+      }
+      return true;
+    } catch (MongobeeChangeSetException e) {
+      logger.error(e.getMessage());
+      return false;
+    } catch (IllegalAccessException e) {
+      throw new MongobeeException(e.getMessage(), e);
+    } catch (InvocationTargetException e) {
+      Throwable targetException = e.getTargetException();
+      throw new MongobeeException(targetException.getMessage(), e);
+    } finally {
+      metrics.recordChangeSet(changeEntry.getChangeLogClass(), changeEntry.getChangeId(), outcome,
+          System.nanoTime() - start);
+    }
+  }
 
-      return changeSetMethod.invoke(changeLogInstance, mongoTemplate != null ? mongoTemplate : new MongoTemplate(db.getMongo(), dbName));
-    } else if (changeSetMethod.getParameterTypes().length == 2
-        && changeSetMethod.getParameterTypes()[0].equals(MongoTemplate.class)
-        && changeSetMethod.getParameterTypes()[1].equals(Environment.class)) {
-      logger.debug("method with MongoTemplate and environment arguments");
+  /**
+   * Executes deferred changesets in the background, under the lock of deferred changesets. If another process
+   * holds that lock, waits for it as long as some of the changesets are not applied, so the changesets are
+   * executed here if the other process dies.
+   */
+  private void executeDeferred(final List<DeferredChangeSet> deferred, final ParameterResolvers parameterResolvers) {
+    final CompletableFuture<Void> execution = new CompletableFuture<>();
+    deferredExecution = execution;
+    Executor executor = deferredExecutor != null ? deferredExecutor : DEFERRED_THREAD_EXECUTOR;
+    logger.info("Mongobee is handing " + deferred.size() + " deferred changesets over to a background worker.");
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          executeDeferredChangeSets(deferred, parameterResolvers);
+          execution.complete(null);
+        } catch (Throwable e) {
+          logger.error("Mongobee failed to execute deferred changesets", e);
+          execution.completeExceptionally(e);
+        }
+      }
+    });
+  }
 
-      return changeSetMethod.invoke(changeLogInstance, mongoTemplate != null ? mongoTemplate : new MongoTemplate(db.getMongo(), dbName), springEnvironment);
-    } else if (changeSetMethod.getParameterTypes().length == 1
-        && changeSetMethod.getParameterTypes()[0].equals(MongoDatabase.class)) {
-      logger.debug("method with DB argument");
+  private void executeDeferredChangeSets(List<DeferredChangeSet> deferred, ParameterResolvers parameterResolvers)
+      throws MongobeeException, InterruptedException {
+    while (!dao.acquireDeferredLock()) {
+      if (!hasNewChangeSets(deferred)) {
+        logger.info("Deferred changesets were executed by another process.");
+        return;
+      }
+      logger.info("Waiting for the lock of deferred changesets....");
+      Thread.sleep(TimeUnit.SECONDS.toMillis(Math.max(1L, dao.getChangeLogLockPollRate())));
+    }
 
-      return changeSetMethod.invoke(changeLogInstance, mongoDatabase);
-    } else if (changeSetMethod.getParameterTypes().length == 0) {
-      logger.debug("method with no params");
+    try {
+      for (DeferredChangeSet changeSet : deferred) {
+        executeChangeSet(changeSet.changeSet, changeSet.changeLogInstance, false, null, parameterResolvers, null);
+      }
+    } finally {
+      try {
+        dao.flushChangeEntries();
+      } finally {
+        dao.releaseDeferredLock();
+      }
+    }
+    logger.info("Mongobee has finished deferred changesets.");
+  }
 
-      return changeSetMethod.invoke(changeLogInstance);
-    } else {
-      throw new MongobeeChangeSetException("ChangeSet method " + changeSetMethod.getName() +
-          " has wrong arguments list. Please see docs for more info!");
+  private boolean hasNewChangeSets(List<DeferredChangeSet> deferred) throws MongobeeConnectionException {
+    for (DeferredChangeSet changeSet : deferred) {
+      if (dao.isNewChange(changeSet.changeSet.createChangeEntry())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean hasChangeSetsToExecute(ChangeService service, List<ChangeLogMetadata> changeLogs,
+      boolean planApplied, AppliedChanges appliedChanges) throws MongobeeChangeSetException {
+    if (planApplied) {
+      return hasRunAlwaysChangeSets(service, changeLogs);
+    }
+    if (appliedChanges == null) {
+      return true;
+    }
+    for (ChangeLogMetadata changeLog : changeLogs) {
+      if (hasChangeSetsToExecute(service, changeLog, appliedChanges)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean hasRunAlwaysChangeSets(ChangeService service, List<ChangeLogMetadata> changeLogs)
+      throws MongobeeChangeSetException {
+    for (ChangeLogMetadata changeLog : changeLogs) {
+      for (ChangeSetMetadata changeSet : service.fetchChangeSets(changeLog)) {
+        if (changeSet.isRunAlways()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean hasChangeSetsToExecute(ChangeService service, ChangeLogMetadata changeLog,
+      AppliedChanges appliedChanges) throws MongobeeChangeSetException {
+    for (ChangeSetMetadata changeSet : service.fetchChangeSets(changeLog)) {
+      if (changeSet.isRunAlways() || !appliedChanges.contains(service.createChangeEntry(changeLog, changeSet))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isNewChange(ChangeEntry changeEntry, AppliedChanges appliedChanges) throws MongobeeConnectionException {
+    if (appliedChanges == null) {
+      return dao.isNewChange(changeEntry);
+    }
+    // applied changes are prefetched before the lock is acquired - they are enough to pass over a changeset,
+    // pending ones are re-validated under the lock as another process may have applied them in the meantime
+    return !appliedChanges.contains(changeEntry) && dao.isNewChange(changeEntry);
+  }
+
+  /**
+   * @param persistent false to keep checkpoints in memory, for changesets already recorded as applied
+   * @return checkpoint of the changeset, null if the changeset method does not take one
+   */
+  private Checkpoint createCheckpoint(ChangeSetDescriptor changeSet, ChangeEntry changeEntry, boolean persistent)
+      throws MongobeeConnectionException {
+    if (!changeSet.isCheckpointed()) {
+      return null;
+    }
+    if (!persistent) {
+      return new Checkpoint(null, changeEntry, null);
+    }
+    Document inProgressEntry = dao.findCheckpoint(changeEntry);
+    if (inProgressEntry != null) {
+      logger.info(changeEntry + " resumed from checkpoint " + inProgressEntry.get(ChangeEntry.KEY_RESUME_TOKEN)
+          + " saved by lock owner " + inProgressEntry.get(ChangeEntry.KEY_CHECKPOINT_OWNER));
     }
+    return new Checkpoint(dao, changeEntry, inProgressEntry);
+  }
+
+  private Object executeChangeSetMethod(ChangeSetDescriptor changeSet, Object changeLogInstance,
+      ParameterResolvers parameterResolvers, Checkpoint checkpoint, BulkWriteStats stats)
+      throws IllegalAccessException, InvocationTargetException, MongobeeException {
+    ChangeSetContext changeSetContext = new ChangeSetContext(parameterResolvers.getContext(), changeSet, checkpoint,
+        stats);
+    Object[] arguments;
+    try {
+      arguments = parameterResolvers.resolve(changeSet, changeSetContext);
+    } catch (MongobeeChangeSetException e) {
+      throw new MongobeeChangeSetException("ChangeSet method " + changeSet.getMethod().getName() +
+          " has wrong arguments list (" + e.getMessage() + "). Please see docs for more info!");
+    }
+    logger.debug("method with arguments " + changeSet.getParameterTypes());
+
+    Object result = ChangeSetInvoker.create(changeSet, changeLogInstance).invoke(arguments);
+    try {
+      // e.g. pending writes of a bulk writer
+      changeSetContext.complete();
+    } catch (MongoException e) {
+      throw new InvocationTargetException(e);
+    }
+    return result;
+  }
+
+  private ParameterResolvers createParameterResolvers() {
+    List<ParameterResolver> resolvers = new ArrayList<>();
+    resolvers.add(new BuiltInParameterResolver(writeThrottle, bulkWriteBatchSize, bulkWriteMaxBytes,
+        transformerParallelism));
+    resolvers.addAll(parameterResolvers);
+    resolvers.add(new DefaultParameterResolver(jongo, mongoTemplate));
+    return new ParameterResolvers(resolvers,
+        new MigrationContext(dao.getDb(), dao.getMongoDatabase(), dbName, springEnvironment));
   }
 
   private void validateConfig() throws MongobeeConfigurationException {
@@ -351,6 +820,31 @@ public class Mongobee implements InitializingBean {
     return this;
   }
 
+  /**
+   * Strategy of waiting for the lock if waitForLock is true. By default the lock is polled at the poll rate,
+   * see {@link com.github.mongobee.dao.ExponentialBackoffLockWaitStrategy} and
+   * {@link com.github.mongobee.dao.OplogLockWaitStrategy} for alternatives.
+   *
+   * @param lockWaitStrategy strategy of waiting for the lock
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setLockWaitStrategy(LockWaitStrategy lockWaitStrategy) {
+    this.dao.setLockWaitStrategy(lockWaitStrategy);
+    return this;
+  }
+
+  /**
+   * Lease time of the process lock. The lock is renewed by a heartbeat while the migration runs; a lock of a process
+   * which died is taken over by another process after this time, without manual cleanup.
+   *
+   * @param changeLogLockLeaseTime Lease time in seconds, default 60. Should be well above the clock difference between hosts
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setChangeLogLockLeaseTime(long changeLogLockLeaseTime) {
+    this.dao.setChangeLogLockLeaseTime(changeLogLockLeaseTime);
+    return this;
+  }
+
   /**
    * Feature which enables/disables throwing MongobeeLockException if Mongobee can not obtain lock
    *
@@ -362,6 +856,157 @@ public class Mongobee implements InitializingBean {
     return this;
   }
 
+  /**
+   * Feature which enables/disables loading of all applied changes with a single query before the migration.
+   * Changesets already present in the changelog collection are then passed over without a query per changeset;
+   * only changesets which look pending are checked against the changelog collection again before execution.
+   * Changelog classes without pending or runAlways changesets are not loaded.
+   * <p>Applied changes are loaded before the process lock is acquired: if no changeset is pending and there are
+   * no runAlways changesets, the lock is not acquired at all.</p>
+   *
+   * @param prefetchAppliedChanges Mongobee will prefetch applied changes if this option is set to true
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setPrefetchAppliedChanges(boolean prefetchAppliedChanges) {
+    this.prefetchAppliedChanges = prefetchAppliedChanges;
+    return this;
+  }
+
+  /**
+   * Makes {@link #afterPropertiesSet()} run the migration on the given executor instead of blocking
+   * the Spring context refresh. The application should wait for {@link #isReady()} before serving traffic
+   * which depends on migrated data.
+   *
+   * @param asyncExecutor executor running the migration, null (default) to run it in the calling thread
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setAsyncExecutor(Executor asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+    return this;
+  }
+
+  /**
+   * Executor of deferred changesets, see {@link ChangeSet#deferred()}. By default they are executed
+   * on a new daemon thread.
+   *
+   * @param deferredExecutor executor of deferred changesets
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setDeferredExecutor(Executor deferredExecutor) {
+    this.deferredExecutor = deferredExecutor;
+    return this;
+  }
+
+  /**
+   * Runs independent changesets concurrently, on up to <tt>parallelism</tt> threads. Changesets are independent
+   * if they belong to different groups and do not depend on each other, see {@link ChangeSet#group()} and
+   * {@link ChangeSet#dependsOn()}; changesets without a group still run in order. The changelog entry of
+   * each changeset is saved as soon as the changeset completes.
+   *
+   * @param parallelism maximum number of changesets running at a time, 1 (default) runs them one after another
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Buffers changelog entries of applied changesets and writes them with unordered bulk inserts, instead of
+   * one insert per changeset. Buffered entries are written at the end of each changelog class, whenever
+   * <tt>batchSize</tt> entries are buffered, and when the migration ends, also after a failure.
+   * <p>Entries of one changelog class are written together, so a reader of the changelog collection may see
+   * them appear at once. Entries of one write are inserted unordered, their timestamps keep the execution order.
+   * If the process dies before a write, the changesets whose entries were buffered
+   * are executed again by the next migration - at most <tt>batchSize</tt> of them, or one changelog class.
+   * Use it only with changesets which can be safely re-executed.</p>
+   *
+   * @param batchSize maximum number of buffered entries, 0 (default) writes each entry right after its changeset
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setChangeEntryBatchSize(int batchSize) {
+    this.dao.setChangeEntryBatchSize(batchSize);
+    return this;
+  }
+
+  /**
+   * Limits of the {@link BulkWriter} injected into changeset methods: pending writes are sent as a bulk write
+   * once there are <tt>batchSize</tt> of them or the BSON size of their inserted and replacing documents reaches
+   * <tt>maxBytes</tt>.
+   *
+   * @param batchSize number of pending operations, 1000 by default
+   * @param maxBytes size of inserted and replacing documents pending in bytes, 8 MB by default
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setBulkWriteLimits(int batchSize, long maxBytes) {
+    this.bulkWriteBatchSize = batchSize;
+    this.bulkWriteMaxBytes = maxBytes;
+    return this;
+  }
+
+  /**
+   * @param transformerParallelism number of <tt>_id</tt> ranges transformed at a time by a {@link CollectionTransformer},
+   *                               the number of processors by default
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setTransformerParallelism(int transformerParallelism) {
+    this.transformerParallelism = transformerParallelism;
+    return this;
+  }
+
+  /**
+   * Throttle of writes of changesets marked {@link ChangeSet#throttled()}, e.g. to keep a data migration
+   * from saturating the primary while it serves live traffic.
+   *
+   * @param writeThrottle throttle shared by all throttled changesets, null (default) to not throttle writes
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setWriteThrottle(WriteThrottle writeThrottle) {
+    this.writeThrottle = writeThrottle;
+    return this;
+  }
+
+  /**
+   * Records timings of the migration phases: changelog scan, connect, lock wait, each changeset and changelog
+   * entry writes.
+   *
+   * @param metrics e.g. {@link com.github.mongobee.metrics.MicrometerMigrationMetrics} or
+   *                {@link com.github.mongobee.metrics.JmxMigrationMetrics}, null (default) to not record metrics
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setMetrics(MigrationMetrics metrics) {
+    this.metrics = metrics != null ? metrics : MigrationMetrics.NONE;
+    this.dao.setMetrics(metrics);
+    return this;
+  }
+
+  /**
+   * Write concern of changelog entry writes, e.g. {@link WriteConcern#MAJORITY} to keep the changelog
+   * consistent across failovers, or a weaker one for ephemeral databases.
+   *
+   * @param writeConcern write concern, null (default) for the default write concern of the client
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setChangeEntryWriteConcern(WriteConcern writeConcern) {
+    this.dao.setChangeEntryWriteConcern(writeConcern);
+    return this;
+  }
+
+  /**
+   * Records a fingerprint of the changeset plan (ids and authors in execution order) after a run in which
+   * all changesets were applied. If the plan has not changed since, a later execution returns after
+   * a single read without initializing collections or acquiring the lock; runAlways changesets are still executed.
+   * <p>If entries of the changelog collection are removed to re-run changesets, the fingerprint document
+   * in the metadata collection has to be removed as well.</p>
+   *
+   * @param migrationFingerprintEnabled true to skip executions of an unchanged plan
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setMigrationFingerprintEnabled(boolean migrationFingerprintEnabled) {
+    this.migrationFingerprintEnabled = migrationFingerprintEnabled;
+    return this;
+  }
+
   /**
    * Set Environment object for Spring Profiles (@Profile) integration
    *
@@ -395,6 +1040,21 @@ public class Mongobee implements InitializingBean {
     return this;
   }
 
+  /**
+   * Registers a resolver of changeset method arguments. Resolvers are asked in the order of registration, after the
+   * resolver of objects belonging to a changeset execution ({@link BulkWriter}, {@link CollectionTransformer},
+   * {@link Checkpoint} and the {@link MongoDatabase} of throttled changesets) and before the resolver of built-in
+   * types ({@link MongoDatabase}, {@link DB}, {@link Jongo}, {@link MongoTemplate} and {@link Environment}), so a
+   * registered resolver may also replace a built-in type.
+   *
+   * @param parameterResolver resolver of changeset arguments
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee addParameterResolver(ParameterResolver parameterResolver) {
+    this.parameterResolvers.add(parameterResolver);
+    return this;
+  }
+
   /**
    * Overwrites a default mongobee changelog collection hardcoded in DEFAULT_CHANGELOG_COLLECTION_NAME.
    *
@@ -409,6 +1069,20 @@ public class Mongobee implements InitializingBean {
     return this;
   }
 
+  /**
+   * Overwrites a default mongobee metadata collection hardcoded in DEFAULT_METADATA_COLLECTION_NAME.
+   *
+   * CAUTION! Use this method carefully - when changing the name on a existing system,
+   * the recorded migration fingerprint will not be found and the plan will be checked again
+   *
+   * @param metadataCollectionName a new metadata collection name
+   * @return Mongobee object for fluent interface
+   */
+  public Mongobee setMetadataCollectionName(String metadataCollectionName) {
+    this.dao.setMetadataCollectionName(metadataCollectionName);
+    return this;
+  }
+
   /**
    * Overwrites a default mongobee lock collection hardcoded in DEFAULT_LOCK_COLLECTION_NAME
    *
@@ -0,0 +1,73 @@
+package com.github.mongobee;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a {@link MultiDatabaseMongobee} run, databases are listed in the order they were given
+ */
+public class MultiDatabaseMigrationReport {
+  private final Map<String, MigrationResult> results = new LinkedHashMap<>();
+  private final List<String> succeeded = new ArrayList<>();
+  private final List<String> pending = new ArrayList<>();
+  private final Map<String, Throwable> failures = new LinkedHashMap<>();
+
+  void addResult(String dbName, MigrationResult result) {
+    results.put(dbName, result);
+    if (result.isCompleted() && result.getStatus() != MigrationResult.Status.LOCK_NOT_ACQUIRED) {
+      succeeded.add(dbName);
+    } else {
+      pending.add(dbName);
+    }
+  }
+
+  void addFailure(String dbName, Throwable failure) {
+    failures.put(dbName, failure);
+  }
+
+  /**
+   * @return results of the databases whose migration did not throw, by database name
+   */
+  public Map<String, MigrationResult> getResults() {
+    return Collections.unmodifiableMap(results);
+  }
+
+  /**
+   * @return names of databases migrated completely
+   */
+  public List<String> getSucceeded() {
+    return Collections.unmodifiableList(succeeded);
+  }
+
+  /**
+   * @return names of databases which may still have pending changesets: the lock was held by another process or
+   * a changeset was passed over, see {@link MigrationResult#isCompleted()}
+   */
+  public List<String> getPending() {
+    return Collections.unmodifiableList(pending);
+  }
+
+  /**
+   * @return exceptions which failed the migrations, by database name
+   */
+  public Map<String, Throwable> getFailures() {
+    return Collections.unmodifiableMap(failures);
+  }
+
+  /**
+   * @return true if all databases were migrated completely
+   */
+  public boolean isSuccessful() {
+    return failures.isEmpty() && pending.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "MultiDatabaseMigrationReport{succeeded=" + succeeded.size() + ", pending=" + pending
+        + ", failed=" + failures.keySet() + "}";
+  }
+
+}
@@ -0,0 +1,204 @@
+package com.github.mongobee;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+
+import com.github.mongobee.exception.MongobeeConfigurationException;
+import com.github.mongobee.exception.MongobeeException;
+import com.github.mongobee.utils.ChangeLogMetadata;
+import com.github.mongobee.utils.ChangeService;
+import com.mongodb.MongoClient;
+
+/**
+ * Mongobee runner migrating many databases (e.g. one per tenant) with the same changelogs. The changelog package
+ * is scanned once and all databases share one <tt>MongoClient</tt>; each database is migrated by its own
+ * {@link Mongobee}, with its own changelog collection and process lock. Up to <tt>concurrency</tt> databases
+ * are migrated at a time, on virtual threads if the JVM supports them.
+ * <p>A failed database does not stop the others, results and failures are collected in the returned report.</p>
+ */
+public class MultiDatabaseMongobee {
+  private static final Logger logger = LoggerFactory.getLogger(MultiDatabaseMongobee.class);
+  private static final int DEFAULT_CONCURRENCY = 8;
+
+  /**
+   * Configures the runner of each database, e.g. lock or changelog collection settings
+   */
+  public interface Configurer {
+    void configure(Mongobee mongobee, String dbName) throws MongobeeException;
+  }
+
+  private final MongoClient mongoClient;
+  private final List<String> dbNames;
+  private String changeLogsScanPackage;
+  private Environment springEnvironment;
+  private int concurrency = DEFAULT_CONCURRENCY;
+  private boolean virtualThreads = true;
+  private Configurer configurer;
+
+  /**
+   * @param mongoClient client shared by all migrations, not closed by the runner
+   * @param dbNames names of the databases to migrate
+   */
+  public MultiDatabaseMongobee(MongoClient mongoClient, List<String> dbNames) {
+    this.mongoClient = mongoClient;
+    this.dbNames = new ArrayList<>(dbNames);
+  }
+
+  /**
+   * Migrates all databases
+   *
+   * @return result of each database and failures
+   * @throws MongobeeException if the configuration is not valid or the calling thread is interrupted
+   */
+  public MultiDatabaseMigrationReport execute() throws MongobeeException {
+    validateConfig();
+
+    final List<ChangeLogMetadata> changeLogs = new ChangeService(changeLogsScanPackage, springEnvironment)
+        .fetchChangeLogMetadata();
+    logger.info("Mongobee is migrating " + dbNames.size() + " databases, " + concurrency + " at a time");
+
+    final Semaphore permits = new Semaphore(concurrency);
+    ExecutorService executor = createExecutor();
+    List<Future<MigrationResult>> results = new ArrayList<>(dbNames.size());
+    try {
+      for (final String dbName : dbNames) {
+        permits.acquire();
+        results.add(executor.submit(new Callable<MigrationResult>() {
+          @Override
+          public MigrationResult call() throws Exception {
+            try {
+              return createMongobee(dbName).execute(changeLogs);
+            } finally {
+              permits.release();
+            }
+          }
+        }));
+      }
+
+      MultiDatabaseMigrationReport report = new MultiDatabaseMigrationReport();
+      for (int i = 0; i < dbNames.size(); i++) {
+        try {
+          report.addResult(dbNames.get(i), results.get(i).get());
+        } catch (ExecutionException e) {
+          logger.error("Migration of database " + dbNames.get(i) + " failed", e.getCause());
+          report.addFailure(dbNames.get(i), e.getCause());
+        }
+      }
+      logger.info("Mongobee migrated " + report.getSucceeded().size() + " databases, "
+          + report.getPending().size() + " may have pending changesets, " + report.getFailures().size() + " failed");
+      return report;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MongobeeException("Interrupted while migrating databases", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Mongobee createMongobee(String dbName) throws MongobeeException {
+    Mongobee mongobee = new Mongobee(mongoClient)
+        .setDbName(dbName)
+        .setChangeLogsScanPackage(changeLogsScanPackage)
+        .setSpringEnvironment(springEnvironment);
+    if (configurer != null) {
+      configurer.configure(mongobee, dbName);
+    }
+    return mongobee;
+  }
+
+  private ExecutorService createExecutor() {
+    if (virtualThreads) {
+      try {
+        // Java 21+, resolved reflectively to keep running on older JVMs
+        Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        return (ExecutorService) factory.invoke(null);
+      } catch (NoSuchMethodException e) {
+        logger.debug("Virtual threads are not available, using a thread pool");
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        logger.debug("Virtual threads can not be used, using a thread pool", e);
+      }
+    }
+    final AtomicInteger threadCount = new AtomicInteger();
+    return Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        return new Thread(runnable, "mongobee-migration-" + threadCount.incrementAndGet());
+      }
+    });
+  }
+
+  private void validateConfig() throws MongobeeConfigurationException {
+    if (!hasText(changeLogsScanPackage)) {
+      throw new MongobeeConfigurationException("Scan package for changelogs is not set: use appropriate setter");
+    }
+    if (concurrency < 1) {
+      throw new MongobeeConfigurationException("Concurrency should be at least 1");
+    }
+  }
+
+  /**
+   * Package name where @ChangeLog-annotated classes are kept.
+   *
+   * @param changeLogsScanPackage package where your changelogs are
+   * @return MultiDatabaseMongobee object for fluent interface
+   */
+  public MultiDatabaseMongobee setChangeLogsScanPackage(String changeLogsScanPackage) {
+    this.changeLogsScanPackage = changeLogsScanPackage;
+    return this;
+  }
+
+  /**
+   * Set Environment object for Spring Profiles (@Profile) integration
+   *
+   * @param environment org.springframework.core.env.Environment object to inject
+   * @return MultiDatabaseMongobee object for fluent interface
+   */
+  public MultiDatabaseMongobee setSpringEnvironment(Environment environment) {
+    this.springEnvironment = environment;
+    return this;
+  }
+
+  /**
+   * @param concurrency maximum number of databases migrated at a time, 8 by default
+   * @return MultiDatabaseMongobee object for fluent interface
+   */
+  public MultiDatabaseMongobee setConcurrency(int concurrency) {
+    this.concurrency = concurrency;
+    return this;
+  }
+
+  /**
+   * @param virtualThreads whether to migrate on virtual threads if the JVM supports them, true by default
+   * @return MultiDatabaseMongobee object for fluent interface
+   */
+  public MultiDatabaseMongobee setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+    return this;
+  }
+
+  /**
+   * @param configurer called with the runner of each database before its migration
+   * @return MultiDatabaseMongobee object for fluent interface
+   */
+  public MultiDatabaseMongobee setConfigurer(Configurer configurer) {
+    this.configurer = configurer;
+    return this;
+  }
+
+}
@@ -0,0 +1,93 @@
+package com.github.mongobee.changeset;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+/**
+ * Counts of documents written by {@link BulkWriter}s of a migration. Safe to update from changesets running in parallel.
+ */
+public class BulkWriteStats {
+  private final BulkWriteStats parent;
+  private final AtomicLong bulkWrites = new AtomicLong();
+  private final AtomicLong inserted = new AtomicLong();
+  private final AtomicLong matched = new AtomicLong();
+  private final AtomicLong modified = new AtomicLong();
+  private final AtomicLong deleted = new AtomicLong();
+  private final AtomicLong upserted = new AtomicLong();
+
+  public BulkWriteStats() {
+    this(null);
+  }
+
+  /**
+   * @param parent counts which are updated as well, e.g. of the whole migration
+   */
+  public BulkWriteStats(BulkWriteStats parent) {
+    this.parent = parent;
+  }
+
+  /**
+   * @param result result of a single bulk write
+   */
+  public void add(BulkWriteResult result) {
+    if (parent != null) {
+      parent.add(result);
+    }
+    bulkWrites.incrementAndGet();
+    if (!result.wasAcknowledged()) {
+      return;
+    }
+    inserted.addAndGet(result.getInsertedCount());
+    matched.addAndGet(result.getMatchedCount());
+    if (result.isModifiedCountAvailable()) {
+      modified.addAndGet(result.getModifiedCount());
+    }
+    deleted.addAndGet(result.getDeletedCount());
+    upserted.addAndGet(result.getUpserts().size());
+  }
+
+  /**
+   * @return number of bulk writes sent to the server
+   */
+  public long getBulkWrites() {
+    return bulkWrites.get();
+  }
+
+  public long getInserted() {
+    return inserted.get();
+  }
+
+  public long getMatched() {
+    return matched.get();
+  }
+
+  /**
+   * @return number of modified documents, as far as reported by the server
+   */
+  public long getModified() {
+    return modified.get();
+  }
+
+  public long getDeleted() {
+    return deleted.get();
+  }
+
+  public long getUpserted() {
+    return upserted.get();
+  }
+
+  /**
+   * @return number of inserted, upserted, modified and deleted documents
+   */
+  public long getAffected() {
+    return getInserted() + getUpserted() + getModified() + getDeleted();
+  }
+
+  @Override
+  public String toString() {
+    return "BulkWriteStats{bulkWrites=" + getBulkWrites() + ", inserted=" + getInserted() + ", matched=" + getMatched()
+        + ", modified=" + getModified() + ", deleted=" + getDeleted() + ", upserted=" + getUpserted() + "}";
+  }
+
+}
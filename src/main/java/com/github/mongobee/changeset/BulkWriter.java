@@ -0,0 +1,152 @@
+package com.github.mongobee.changeset;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+
+/**
+ * Collects writes of a changeset and sends them as unordered bulk writes, one per collection, once the number of
+ * pending operations or their estimated BSON size reaches a limit. The estimate counts inserted and replacing
+ * documents only, filters and updates are small compared to them. Pending writes are flushed after the changeset
+ * method returns, before the changeset is recorded as applied.
+ * <p>
+ * Writes of one bulk write may be applied in any order: call {@link #flush()} between writes which depend on each other.
+ * A writer belongs to a single changeset invocation and is not thread safe.
+ */
+public class BulkWriter {
+  private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+  private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+  private final MongoDatabase db;
+  private final int maxOperations;
+  private final long maxBytes;
+  private final BulkWriteStats stats;
+  private final BasicOutputBuffer sizeBuffer = new BasicOutputBuffer();
+  private Codec<Document> documentCodec;
+
+  private final Map<String, List<WriteModel<Document>>> pending = new LinkedHashMap<>();
+  private int pendingOperations;
+  private long pendingBytes;
+
+  /**
+   * @param db database written to
+   * @param maxOperations number of pending operations which triggers a flush
+   * @param maxBytes estimated BSON size of pending operations which triggers a flush
+   * @param stats counts of written documents, updated on each bulk write
+   */
+  public BulkWriter(MongoDatabase db, int maxOperations, long maxBytes, BulkWriteStats stats) {
+    this.db = db;
+    this.maxOperations = Math.max(1, maxOperations);
+    this.maxBytes = maxBytes;
+    this.stats = stats;
+  }
+
+  public BulkWriter insert(String collectionName, Document document) {
+    return write(collectionName, new InsertOneModel<>(document));
+  }
+
+  public BulkWriter updateOne(String collectionName, Bson filter, Bson update) {
+    return updateOne(collectionName, filter, update, new UpdateOptions());
+  }
+
+  public BulkWriter updateOne(String collectionName, Bson filter, Bson update, UpdateOptions options) {
+    return write(collectionName, new UpdateOneModel<Document>(filter, update, options));
+  }
+
+  public BulkWriter updateMany(String collectionName, Bson filter, Bson update) {
+    return write(collectionName, new UpdateManyModel<Document>(filter, update));
+  }
+
+  public BulkWriter replaceOne(String collectionName, Bson filter, Document replacement) {
+    return write(collectionName, new ReplaceOneModel<>(filter, replacement));
+  }
+
+  public BulkWriter deleteOne(String collectionName, Bson filter) {
+    return write(collectionName, new DeleteOneModel<Document>(filter));
+  }
+
+  public BulkWriter deleteMany(String collectionName, Bson filter) {
+    return write(collectionName, new DeleteManyModel<Document>(filter));
+  }
+
+  /**
+   * @param collectionName collection written to
+   * @param write any write supported by bulk writes
+   * @return this writer
+   */
+  @SuppressWarnings("unchecked")
+  public BulkWriter write(String collectionName, WriteModel<Document> write) {
+    if (write instanceof InsertOneModel) {
+      return add(collectionName, write, sizeOf(((InsertOneModel<Document>) write).getDocument()));
+    } else if (write instanceof ReplaceOneModel) {
+      return add(collectionName, write, sizeOf(((ReplaceOneModel<Document>) write).getReplacement()));
+    } else if (write instanceof UpdateOneModel || write instanceof UpdateManyModel
+        || write instanceof DeleteOneModel || write instanceof DeleteManyModel) {
+      return add(collectionName, write, 0);
+    }
+    throw new IllegalArgumentException("Unsupported write " + write.getClass().getName());
+  }
+
+  /**
+   * Sends all pending writes
+   */
+  public void flush() {
+    for (Map.Entry<String, List<WriteModel<Document>>> writes : pending.entrySet()) {
+      stats.add(db.getCollection(writes.getKey()).bulkWrite(writes.getValue(), UNORDERED));
+    }
+    pending.clear();
+    pendingOperations = 0;
+    pendingBytes = 0;
+  }
+
+  /**
+   * @return number of operations not sent yet
+   */
+  public int getPendingOperations() {
+    return pendingOperations;
+  }
+
+  private BulkWriter add(String collectionName, WriteModel<Document> write, int size) {
+    List<WriteModel<Document>> writes = pending.get(collectionName);
+    if (writes == null) {
+      writes = new ArrayList<>();
+      pending.put(collectionName, writes);
+    }
+    writes.add(write);
+    pendingOperations++;
+    pendingBytes += size;
+    if (pendingOperations >= maxOperations || pendingBytes >= maxBytes) {
+      flush();
+    }
+    return this;
+  }
+
+  private int sizeOf(Document document) {
+    if (documentCodec == null) {
+      documentCodec = db.getCodecRegistry().get(Document.class);
+    }
+    sizeBuffer.truncateToPosition(0);
+    documentCodec.encode(new BsonBinaryWriter(sizeBuffer), document, ENCODER_CONTEXT);
+    return sizeBuffer.getSize();
+  }
+
+}
@@ -1,9 +1,12 @@
 package com.github.mongobee.changeset;
 
+import java.lang.management.ManagementFactory;
 import java.util.Date;
 
 import org.bson.Document;
 
+import com.github.mongobee.utils.LocalHost;
+
 /**
  * Entry in the changes collection log {@link com.github.mongobee.Mongobee#DEFAULT_CHANGELOG_COLLECTION_NAME}
  * Type: entity class.
@@ -17,13 +20,32 @@ public class ChangeEntry {
   public static final String KEY_TIMESTAMP = "timestamp";
   public static final String KEY_CHANGELOGCLASS = "changeLogClass";
   public static final String KEY_CHANGESETMETHOD = "changeSetMethod";
+  public static final String KEY_STATE = "state";
+  public static final String KEY_RESUME_TOKEN = "resumeToken";
+  public static final String KEY_CHECKPOINT_OWNER = "checkpointOwner";
+  public static final String KEY_STARTED_AT = "startedAt";
+  public static final String KEY_FINISHED_AT = "finishedAt";
+  public static final String KEY_DURATION_MILLIS = "durationMillis";
+  public static final String KEY_HOST = "host";
+  public static final String KEY_PROCESS_ID = "processId";
+  public static final String KEY_MONGOBEE_VERSION = "mongobeeVersion";
+  public static final String KEY_DOCUMENTS_AFFECTED = "documentsAffected";
+
+  /** state of a changeset which saved a {@link Checkpoint} and has not completed yet, entries of applied changesets have no state */
+  public static final String STATE_IN_PROGRESS = "IN_PROGRESS";
 
   private String changeId;
   private String author;
   private Date timestamp;
   private String changeLogClass;
   private String changeSetMethodName;
-  
+  private Date startedAt;
+  private Date finishedAt;
+  private String host;
+  private String processId;
+  private String mongobeeVersion;
+  private Long documentsAffected;
+
   public ChangeEntry(String changeId, String author, Date timestamp, String changeLogClass, String changeSetMethodName) {
     this.changeId = changeId;
     this.author = author;
@@ -41,15 +63,67 @@ public class ChangeEntry {
         .append(KEY_CHANGELOGCLASS, this.changeLogClass)
         .append(KEY_CHANGESETMETHOD, this.changeSetMethodName);
 
+    if (this.startedAt != null) {
+      entry.append(KEY_STARTED_AT, this.startedAt)
+          .append(KEY_FINISHED_AT, this.finishedAt)
+          .append(KEY_DURATION_MILLIS, getDurationMillis())
+          .append(KEY_HOST, this.host)
+          .append(KEY_PROCESS_ID, this.processId)
+          .append(KEY_MONGOBEE_VERSION, this.mongobeeVersion);
+      if (this.documentsAffected != null) {
+        entry.append(KEY_DOCUMENTS_AFFECTED, this.documentsAffected);
+      }
+    }
+
     return entry;
   }
 
+  /**
+   * @param entry document of the changelog collection
+   * @return entry with the execution details recorded in the document, if any
+   */
+  public static ChangeEntry fromDocument(Document entry) {
+    Date timestamp = entry.getDate(KEY_TIMESTAMP);
+    ChangeEntry changeEntry = new ChangeEntry(entry.getString(KEY_CHANGEID), entry.getString(KEY_AUTHOR),
+        timestamp != null ? timestamp : new Date(0), entry.getString(KEY_CHANGELOGCLASS), entry.getString(KEY_CHANGESETMETHOD));
+    changeEntry.startedAt = entry.getDate(KEY_STARTED_AT);
+    changeEntry.finishedAt = entry.getDate(KEY_FINISHED_AT);
+    changeEntry.host = entry.getString(KEY_HOST);
+    changeEntry.processId = entry.getString(KEY_PROCESS_ID);
+    changeEntry.mongobeeVersion = entry.getString(KEY_MONGOBEE_VERSION);
+    Number documentsAffected = (Number) entry.get(KEY_DOCUMENTS_AFFECTED);
+    changeEntry.documentsAffected = documentsAffected != null ? documentsAffected.longValue() : null;
+    return changeEntry;
+  }
+
+  /**
+   * Records where and how long the changeset was executed, stored with the entry
+   *
+   * @param startedAt start of the execution
+   * @param finishedAt end of the execution
+   * @param documentsAffected documents written through {@link BulkWriter}s and {@link CollectionTransformer}s
+   *                          of the changeset, null if it wrote none through them
+   */
+  public void recordExecution(Date startedAt, Date finishedAt, Long documentsAffected) {
+    this.startedAt = new Date(startedAt.getTime());
+    this.finishedAt = new Date(finishedAt.getTime());
+    this.documentsAffected = documentsAffected;
+    this.host = ExecutionHost.HOST;
+    this.processId = ExecutionHost.PROCESS_ID;
+    this.mongobeeVersion = ExecutionHost.MONGOBEE_VERSION;
+  }
+
   public Document buildSearchQueryDBObject() {
     return new Document()
         .append(KEY_CHANGEID, this.changeId)
         .append(KEY_AUTHOR, this.author);
   }
 
+  public Document buildInProgressQueryDBObject() {
+    return buildSearchQueryDBObject()
+        .append(KEY_STATE, STATE_IN_PROGRESS);
+  }
+
   @Override
   public String toString() {
     return "[ChangeSet: id=" + this.changeId +
@@ -77,5 +151,60 @@ public class ChangeEntry {
   public String getChangeSetMethodName() {
     return this.changeSetMethodName;
   }
-  
+
+  /**
+   * @return start of the execution, null if it was not recorded
+   */
+  public Date getStartedAt() {
+    return this.startedAt;
+  }
+
+  public Date getFinishedAt() {
+    return this.finishedAt;
+  }
+
+  /**
+   * @return duration of the execution, null if it was not recorded
+   */
+  public Long getDurationMillis() {
+    return this.startedAt != null && this.finishedAt != null ? this.finishedAt.getTime() - this.startedAt.getTime() : null;
+  }
+
+  public String getHost() {
+    return this.host;
+  }
+
+  public String getProcessId() {
+    return this.processId;
+  }
+
+  public String getMongobeeVersion() {
+    return this.mongobeeVersion;
+  }
+
+  public Long getDocumentsAffected() {
+    return this.documentsAffected;
+  }
+
+  /**
+   * Details of the executing process, resolved once
+   */
+  private static final class ExecutionHost {
+    private static final String HOST = LocalHost.getName();
+    private static final String PROCESS_ID = processId();
+    private static final String MONGOBEE_VERSION = mongobeeVersion();
+
+    private static String processId() {
+      // "pid@host" on common JVMs
+      String name = ManagementFactory.getRuntimeMXBean().getName();
+      int at = name.indexOf('@');
+      return at > 0 ? name.substring(0, at) : name;
+    }
+
+    private static String mongobeeVersion() {
+      String version = ChangeEntry.class.getPackage().getImplementationVersion();
+      return version != null ? version : "unknown";
+    }
+  }
+
 }
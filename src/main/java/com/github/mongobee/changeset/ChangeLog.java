@@ -20,4 +20,17 @@ public @interface ChangeLog {
    * @return order
    */
   String order() default "";
+
+  /**
+   * Default group of the changesets of this changelog, see {@link ChangeSet#group()}.
+   * @return group name
+   */
+  String group() default "";
+
+  /**
+   * IDs of changesets which have to be completed before any changeset of this changelog starts,
+   * see {@link ChangeSet#dependsOn()}.
+   * @return ids of changesets
+   */
+  String[] dependsOn() default {};
 }
@@ -42,6 +42,43 @@ public @interface ChangeSet {
    * @return should run always?
    */
   public boolean runAlways() default false;
+
+  /**
+   * Executes the change set in the background after the migration, instead of before Mongobee returns.
+   * Meant for slow changes which the application does not need to start, e.g. backfills.
+   * Deferred change sets are executed under their own lock, if the executing process dies they are executed
+   * by the next process which runs Mongobee.
+   * Optional (default is false)
+   * @return should be deferred?
+   */
+  public boolean deferred() default false;
+
+  /**
+   * Passes writes of the change set through the write throttle of Mongobee, if one is set.
+   * Applies to writes through an injected MongoDatabase, BulkWriter or CollectionTransformer.
+   * Optional (default is false)
+   * @return should writes be throttled?
+   */
+  public boolean throttled() default false;
+
+  /**
+   * Changesets which run in parallel with other groups if Mongobee runs with parallelism above 1.
+   * Changesets of one group run in order, a changeset without a group waits for all previous changesets
+   * and all following changesets wait for it. Overrides the group of the changelog.
+   * Optional (default is the group of the changelog)
+   * @return group name
+   */
+  public String group() default "";
+
+  /**
+   * IDs of changesets which have to be completed before this one starts when Mongobee runs with parallelism above 1,
+   * in addition to the order of its group. An id refers to the changesets of the same author, or to the changesets
+   * of that id if only one author uses it. An unknown or ambiguous id fails the migration. If a changeset is passed
+   * over because its arguments cannot be resolved, the changesets depending on it are passed over as well.
+   * Optional
+   * @return ids of changesets
+   */
+  public String[] dependsOn() default {};
 //
 //  /**
 //   * Executes the change the first time it is seen and each time the change set has been changed. <br/>
@@ -0,0 +1,99 @@
+package com.github.mongobee.changeset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+
+import com.github.mongobee.dao.ChangeEntryDao;
+import com.github.mongobee.exception.MongobeeException;
+
+/**
+ * Lets a long running changeset continue where an earlier execution stopped. The changeset saves a resume token
+ * (e.g. the last processed <tt>_id</tt>) next to its changelog entry, which is marked
+ * {@link ChangeEntry#STATE_IN_PROGRESS} until the changeset completes. An in-progress changeset is not applied,
+ * so the process taking over the lock executes it again, starting from {@link #getResumeToken()}.
+ * <p>
+ * Writes pending in the {@link BulkWriter} of the execution are flushed before a token is saved.
+ * <p>
+ * Checkpoints of runAlways changesets which were applied before are kept in memory only.
+ */
+public class Checkpoint {
+  private final ChangeEntryDao dao;
+  private final ChangeEntry changeEntry;
+  private final boolean resumed;
+  private final List<Runnable> beforeSave = new ArrayList<>();
+  private Object resumeToken;
+  private boolean saved;
+
+  /**
+   * @param dao dao saving the checkpoint, null to keep it in memory only
+   * @param changeEntry entry of the changeset
+   * @param inProgressEntry entry saved by an earlier execution, null if the changeset starts from scratch
+   */
+  public Checkpoint(ChangeEntryDao dao, ChangeEntry changeEntry, Document inProgressEntry) {
+    this.dao = dao;
+    this.changeEntry = changeEntry;
+    this.resumed = inProgressEntry != null;
+    this.resumeToken = resumed ? inProgressEntry.get(ChangeEntry.KEY_RESUME_TOKEN) : null;
+  }
+
+  /**
+   * @return last saved token, null if none was saved
+   */
+  public Object getResumeToken() {
+    return resumeToken;
+  }
+
+  /**
+   * @param type type of the token
+   * @param <T> type of the token
+   * @return last saved token, null if none was saved
+   */
+  public <T> T getResumeToken(Class<T> type) {
+    return type.cast(resumeToken);
+  }
+
+  /**
+   * @return true if the changeset continues an earlier execution
+   */
+  public boolean isResumed() {
+    return resumed;
+  }
+
+  /**
+   * Registers work which has to complete before a token is saved, e.g. flushing pending writes
+   *
+   * @param task run before each save, in the order of registration
+   */
+  public void beforeSave(Runnable task) {
+    beforeSave.add(task);
+  }
+
+  /**
+   * Saves the progress of the changeset, after flushing the writes pending in the {@link BulkWriter} of the
+   * execution. Work up to the token must be written by then: if the changeset is executed again, it continues from
+   * the token and does not repeat that work.
+   *
+   * @param resumeToken BSON value from which the changeset continues, e.g. the last processed id
+   * @throws MongobeeException if the token can not be saved, e.g. if the lock was taken over by another process
+   */
+  public void save(Object resumeToken) throws MongobeeException {
+    for (Runnable task : beforeSave) {
+      task.run();
+    }
+    if (dao != null) {
+      dao.saveCheckpoint(changeEntry, resumeToken);
+      saved = true;
+    }
+    this.resumeToken = resumeToken;
+  }
+
+  /**
+   * @return true if the changeset is recorded as in progress
+   */
+  public boolean isSaved() {
+    return saved || resumed;
+  }
+
+}
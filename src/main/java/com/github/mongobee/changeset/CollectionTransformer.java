@@ -0,0 +1,324 @@
+package com.github.mongobee.changeset;
+
+import static java.util.Arrays.asList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Symbol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.mongobee.exception.MongobeeException;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.WriteModel;
+
+/**
+ * Transforms all documents of a collection in parallel. The documents matching the filter are split into
+ * <tt>_id</tt> ranges, from a sample of their ids or, where <tt>$sample</tt> is not available, from ids at evenly
+ * spaced positions. Finding ids by position skips over the matching documents for each range, so it reads
+ * O(documents &times; ranges) index entries. Each range is read by its own cursor on a worker pool; the writes
+ * returned by the transformation go through a {@link BulkWriter} of the range.
+ * <p>
+ * Range filters only match ids of the BSON type of their bounds, so a collection whose ids are of more than one type
+ * (e.g. numbers and strings) is transformed as a single range.
+ * <p>
+ * Documents are read and written concurrently: a transformation should not change the <tt>_id</tt> of documents
+ * or insert documents into the collection being read.
+ */
+public class CollectionTransformer {
+  private static final Logger logger = LoggerFactory.getLogger(CollectionTransformer.class);
+  private static final String ID = "_id";
+  private static final int SAMPLES_PER_RANGE = 10;
+  private static final long PROGRESS_LOG_INTERVAL = 10000;
+
+  private final MongoDatabase db;
+  private final int parallelism;
+  private final int batchSize;
+  private final long maxBytes;
+  private final BulkWriteStats stats;
+
+  /**
+   * Documents of a single <tt>_id</tt> range and the progress of their transformation
+   */
+  public static class Range {
+    private final Object lowerBound;
+    private final Object upperBound;
+    private final AtomicLong processed = new AtomicLong();
+    private volatile boolean completed;
+
+    Range(Object lowerBound, Object upperBound) {
+      this.lowerBound = lowerBound;
+      this.upperBound = upperBound;
+    }
+
+    /**
+     * @return lowest <tt>_id</tt> of the range (inclusive), null for the first range
+     */
+    public Object getLowerBound() {
+      return lowerBound;
+    }
+
+    /**
+     * @return upper <tt>_id</tt> bound of the range (exclusive), null for the last range
+     */
+    public Object getUpperBound() {
+      return upperBound;
+    }
+
+    /**
+     * @return number of documents read so far
+     */
+    public long getProcessed() {
+      return processed.get();
+    }
+
+    public boolean isCompleted() {
+      return completed;
+    }
+
+    Document filter() {
+      Document id = new Document();
+      if (lowerBound != null) {
+        id.append("$gte", lowerBound);
+      }
+      if (upperBound != null) {
+        id.append("$lt", upperBound);
+      }
+      return id.isEmpty() ? new Document() : new Document(ID, id);
+    }
+
+    @Override
+    public String toString() {
+      return "[" + lowerBound + ", " + upperBound + ")";
+    }
+  }
+
+  /**
+   * @param db database of the transformed collections
+   * @param parallelism number of ranges transformed at a time
+   * @param batchSize pending operations which trigger a bulk write, see {@link BulkWriter}
+   * @param maxBytes estimated size of pending operations which triggers a bulk write
+   * @param stats counts of written documents
+   */
+  public CollectionTransformer(MongoDatabase db, int parallelism, int batchSize, long maxBytes, BulkWriteStats stats) {
+    this.db = db;
+    this.parallelism = Math.max(1, parallelism);
+    this.batchSize = batchSize;
+    this.maxBytes = maxBytes;
+    this.stats = stats;
+  }
+
+  /**
+   * Transforms all documents of a collection, writing to the same collection
+   *
+   * @param collectionName collection to transform
+   * @param transformation write for a document, null to leave the document as it is
+   * @return ranges of the collection with their progress
+   * @throws MongobeeException if reading, the transformation or a write fails
+   */
+  public List<Range> transform(String collectionName, Function<Document, WriteModel<Document>> transformation)
+      throws MongobeeException {
+    return transform(collectionName, new Document(), collectionName, transformation);
+  }
+
+  /**
+   * @param sourceCollectionName collection to read
+   * @param filter documents of the collection to transform
+   * @param targetCollectionName collection to write to
+   * @param transformation write for a document, null to skip the document
+   * @return ranges of the collection with their progress
+   * @throws MongobeeException if reading, the transformation or a write fails
+   */
+  public List<Range> transform(String sourceCollectionName, Bson filter, String targetCollectionName,
+      final Function<Document, WriteModel<Document>> transformation) throws MongobeeException {
+    final MongoCollection<Document> source = db.getCollection(sourceCollectionName);
+    List<Range> ranges = split(source, filter, parallelism * 2);
+    logger.info("Transforming collection " + sourceCollectionName + " in " + ranges.size() + " ranges");
+
+    final AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, ranges.size()), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        return new Thread(runnable, "mongobee-transformer-" + threadCount.incrementAndGet());
+      }
+    });
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (final Range range : ranges) {
+        futures.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            transformRange(source, filter, range, targetCollectionName, transformation);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MongobeeException("Interrupted while transforming collection " + sourceCollectionName, e);
+    } catch (ExecutionException e) {
+      throw new MongobeeException("Transformation of collection " + sourceCollectionName + " failed: "
+          + e.getCause().getMessage(), e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return ranges;
+  }
+
+  private void transformRange(MongoCollection<Document> source, Bson filter, Range range, String targetCollectionName,
+      Function<Document, WriteModel<Document>> transformation) {
+    long start = System.nanoTime();
+    BulkWriter writer = new BulkWriter(db, batchSize, maxBytes, stats);
+    MongoCursor<Document> cursor = source.find(new Document("$and", asList(filter, (Bson) range.filter())))
+        .batchSize(batchSize)
+        .iterator();
+    try {
+      while (cursor.hasNext()) {
+        WriteModel<Document> write = transformation.apply(cursor.next());
+        if (write != null) {
+          writer.write(targetCollectionName, write);
+        }
+        if (range.processed.incrementAndGet() % PROGRESS_LOG_INTERVAL == 0) {
+          logger.info("Range " + range + " of " + source.getNamespace() + ": " + range.getProcessed() + " documents");
+        }
+      }
+      writer.flush();
+    } finally {
+      cursor.close();
+    }
+    range.completed = true;
+    logger.info("Range " + range + " of " + source.getNamespace() + " completed: " + range.getProcessed()
+        + " documents in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+  }
+
+  /**
+   * @param collection collection to split
+   * @param filter documents of the collection to split
+   * @param rangeCount number of ranges to aim for
+   * @return ranges covering all ids, in ascending order
+   */
+  List<Range> split(MongoCollection<Document> collection, Bson filter, int rangeCount) {
+    List<Object> bounds;
+    try {
+      bounds = sampleBounds(collection, filter, rangeCount);
+    } catch (MongoException e) {
+      logger.debug("Sampling ids of " + collection.getNamespace() + " failed, using id positions: " + e.getMessage());
+      bounds = positionBounds(collection, filter, rangeCount);
+    }
+
+    List<Range> ranges = new ArrayList<>();
+    Object lowerBound = null;
+    for (Object bound : bounds) {
+      if (lowerBound == null || !bound.equals(lowerBound)) {
+        ranges.add(new Range(lowerBound, bound));
+        lowerBound = bound;
+      }
+    }
+    ranges.add(new Range(lowerBound, null));
+    if (ranges.size() > 1 && !hasSingleIdType(collection, filter, bounds)) {
+      logger.warn("Ids of " + collection.getNamespace() + " are of more than one BSON type, "
+          + "transforming the collection as a single range");
+      return new ArrayList<>(asList(new Range(null, null)));
+    }
+    return ranges;
+  }
+
+  /**
+   * Comparison operators match only values of the type of their operand. Ids are sorted by type first, so if the
+   * lowest and highest ids and all bounds are of one type, the ranges cover every document.
+   */
+  private static boolean hasSingleIdType(MongoCollection<Document> collection, Bson filter, List<Object> bounds) {
+    Object type = typeBracket(firstId(collection, filter, 1));
+    if (!type.equals(typeBracket(firstId(collection, filter, -1)))) {
+      return false;
+    }
+    for (Object bound : bounds) {
+      if (!type.equals(typeBracket(bound))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Object firstId(MongoCollection<Document> collection, Bson filter, int direction) {
+    Document first = collection.find(filter)
+        .projection(new Document(ID, 1))
+        .sort(new Document(ID, direction))
+        .limit(1)
+        .first();
+    return first != null ? first.get(ID) : null;
+  }
+
+  private static Object typeBracket(Object id) {
+    if (id == null) {
+      return Void.class;
+    } else if (id instanceof Number) {
+      return Number.class; // ints, longs, doubles and decimals are compared with each other
+    } else if (id instanceof Symbol) {
+      return String.class;
+    } else if (id instanceof Map) {
+      return Map.class;
+    }
+    return id.getClass();
+  }
+
+  private static List<Object> sampleBounds(MongoCollection<Document> collection, Bson filter, int rangeCount) {
+    List<Bson> pipeline = asList(
+        Aggregates.match(filter),
+        new Document("$sample", new Document("size", rangeCount * SAMPLES_PER_RANGE)),
+        new Document("$project", new Document(ID, 1)),
+        new Document("$sort", new Document(ID, 1)));
+    List<Object> samples = new ArrayList<>();
+    for (Document sample : collection.aggregate(pipeline)) {
+      samples.add(sample.get(ID));
+    }
+    List<Object> bounds = new ArrayList<>();
+    for (int i = 1; i < rangeCount && samples.size() >= rangeCount; i++) {
+      bounds.add(samples.get(i * samples.size() / rangeCount));
+    }
+    return bounds;
+  }
+
+  /**
+   * Each bound is found by skipping over the documents before it, O(documents &times; ranges) in total
+   */
+  private static List<Object> positionBounds(MongoCollection<Document> collection, Bson filter, int rangeCount) {
+    long count = collection.count(filter);
+    List<Object> bounds = new ArrayList<>();
+    if (count < rangeCount) {
+      return bounds;
+    }
+    for (int i = 1; i < rangeCount; i++) {
+      Document bound = collection.find(filter)
+          .projection(new Document(ID, 1))
+          .sort(new Document(ID, 1))
+          .skip((int) (i * count / rangeCount))
+          .limit(1)
+          .first();
+      if (bound != null) {
+        bounds.add(bound.get(ID));
+      }
+    }
+    return bounds;
+  }
+
+}
@@ -0,0 +1,39 @@
+package com.github.mongobee.dao;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.github.mongobee.changeset.ChangeEntry;
+
+/**
+ * In-memory lookup of changesets already recorded in the changelog collection,
+ * keyed by (changeId, author) pair.
+ *
+ * @see ChangeEntryDao#fetchAppliedChanges()
+ */
+public class AppliedChanges {
+  private static final char KEY_SEPARATOR = '\u0000';
+
+  private final Set<String> keys = new HashSet<>();
+
+  public void add(String changeId, String author) {
+    keys.add(key(changeId, author));
+  }
+
+  public void add(ChangeEntry changeEntry) {
+    add(changeEntry.getChangeId(), changeEntry.getAuthor());
+  }
+
+  public boolean contains(ChangeEntry changeEntry) {
+    return keys.contains(key(changeEntry.getChangeId(), changeEntry.getAuthor()));
+  }
+
+  public int size() {
+    return keys.size();
+  }
+
+  private static String key(String changeId, String author) {
+    return changeId + KEY_SEPARATOR + author;
+  }
+
+}
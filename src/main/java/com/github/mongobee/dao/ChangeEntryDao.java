@@ -2,7 +2,10 @@ package com.github.mongobee.dao;
 
 import static org.springframework.util.StringUtils.hasText;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.bson.Document;
 import org.slf4j.Logger;
@@ -12,11 +15,16 @@ import com.github.mongobee.changeset.ChangeEntry;
 import com.github.mongobee.exception.MongobeeConfigurationException;
 import com.github.mongobee.exception.MongobeeConnectionException;
 import com.github.mongobee.exception.MongobeeLockException;
+import com.github.mongobee.metrics.MigrationMetrics;
 import com.mongodb.DB;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.UpdateOptions;
 
 /**
  * @author lstolowski
@@ -24,6 +32,9 @@ import com.mongodb.client.MongoDatabase;
  */
 public class ChangeEntryDao {
   private static final Logger logger = LoggerFactory.getLogger("Mongobee dao");
+  private static final int APPLIED_CHANGES_BATCH_SIZE = 1000;
+  private static final String DEFAULT_METADATA_COLLECTION_NAME = "mongobeemeta";
+  private static final String DEFERRED_LOCK_KEY = "DEFERRED_LOCK";
 
   private MongoDatabase mongoDatabase;
   private DB db;  // only for Jongo driver compatibility - do not use in other contexts
@@ -34,13 +45,22 @@ public class ChangeEntryDao {
   private long changeLogLockWaitTime;
   private long changeLogLockPollRate;
   private boolean throwExceptionIfCannotObtainLock;
+  private LockWaitStrategy lockWaitStrategy;
+  private int changeEntryBatchSize;
+  private WriteConcern changeEntryWriteConcern;
+  private final List<Document> pendingChangeEntries = new ArrayList<>();
+  private MigrationMetrics metrics = MigrationMetrics.NONE;
 
   private LockDao lockDao;
+  private LockDao deferredLockDao;
+  private MetadataDao metadataDao;
 
   public ChangeEntryDao(String changelogCollectionName, String lockCollectionName, boolean waitForLock, long changeLogLockWaitTime,
       long changeLogLockPollRate, boolean throwExceptionIfCannotObtainLock) {
     this.indexDao = new ChangeEntryIndexDao(changelogCollectionName);
     this.lockDao = new LockDao(lockCollectionName);
+    this.deferredLockDao = new LockDao(lockCollectionName, DEFERRED_LOCK_KEY);
+    this.metadataDao = new MetadataDao(DEFAULT_METADATA_COLLECTION_NAME);
     this.changelogCollectionName = changelogCollectionName;
     this.waitForLock = waitForLock;
     this.changeLogLockWaitTime = changeLogLockWaitTime;
@@ -61,6 +81,19 @@ public class ChangeEntryDao {
   }
 
   public MongoDatabase connectMongoDb(MongoClient mongo, String dbName) throws MongobeeConfigurationException {
+    return connectMongoDb(mongo, dbName, true);
+  }
+
+  /**
+   * @param mongo database connection client
+   * @param dbName database name
+   * @param initialize whether to ensure the changelog index and the lock collection right away,
+   *                   otherwise {@link #initializeCollections()} has to be called before the lock is acquired
+   * @return connected database
+   * @throws MongobeeConfigurationException if the database name is not set
+   */
+  public MongoDatabase connectMongoDb(MongoClient mongo, String dbName, boolean initialize)
+      throws MongobeeConfigurationException {
     if (!hasText(dbName)) {
       throw new MongobeeConfigurationException("DB name is not set. Should be defined in MongoDB URI or via setter");
     } else {
@@ -70,18 +103,39 @@ public class ChangeEntryDao {
       db = mongo.getDB(dbName); // for Jongo driver and backward compatibility (constructor has required parameter Jongo(DB) )
       mongoDatabase = mongo.getDatabase(dbName);
 
-      ensureChangeLogCollectionIndex(mongoDatabase.getCollection(changelogCollectionName));
-      initializeLock();
+      if (initialize) {
+        ensureCollections();
+      }
       return mongoDatabase;
     }
   }
 
   public MongoDatabase connectMongoDb(MongoClientURI mongoClientURI, String dbName)
       throws MongobeeConfigurationException, MongobeeConnectionException {
+    return connectMongoDb(mongoClientURI, dbName, true);
+  }
+
+  public MongoDatabase connectMongoDb(MongoClientURI mongoClientURI, String dbName, boolean initialize)
+      throws MongobeeConfigurationException, MongobeeConnectionException {
 
     final MongoClient mongoClient = new MongoClient(mongoClientURI);
     final String database = (!hasText(dbName)) ? mongoClientURI.getDatabase() : dbName;
-    return this.connectMongoDb(mongoClient, database);
+    return this.connectMongoDb(mongoClient, database, initialize);
+  }
+
+  /**
+   * Ensures the unique index of the changelog collection and the indexes of the lock collection
+   *
+   * @throws MongobeeConnectionException exception
+   */
+  public void initializeCollections() throws MongobeeConnectionException {
+    verifyDbConnection();
+    ensureCollections();
+  }
+
+  private void ensureCollections() {
+    ensureChangeLogCollectionIndex(mongoDatabase.getCollection(changelogCollectionName));
+    initializeLock();
   }
 
   /**
@@ -93,21 +147,32 @@ public class ChangeEntryDao {
    */
   public boolean acquireProcessLock() throws MongobeeConnectionException, MongobeeLockException {
     verifyDbConnection();
+    long start = System.nanoTime();
     boolean acquired = lockDao.acquireLock(getMongoDatabase());
+    int attempts = 1;
 
     if (!acquired && waitForLock) {
-      long timeToGiveUp = new Date().getTime() + (changeLogLockWaitTime * 1000 * 60);
-      while (!acquired && new Date().getTime() < timeToGiveUp) {
-        acquired = lockDao.acquireLock(getMongoDatabase());
-        if (!acquired) {
+      LockWaitStrategy strategy = getLockWaitStrategy();
+      LockWaitContext context = new LockWaitContext(mongoClient, getMongoDatabase(), lockDao.getLockCollectionName());
+      long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(changeLogLockWaitTime);
+      int attempt = 0;
+      try {
+        long remaining;
+        while (!acquired && (remaining = deadline - System.nanoTime()) > 0) {
+          // the lock is held by another process, the strategy decides when it is worth another attempt
           logger.info("Waiting for changelog lock....");
-          try {
-            Thread.sleep(changeLogLockPollRate * 1000);
-          } catch (InterruptedException e) {
-            // nothing
-          }
+          strategy.await(context, ++attempt, TimeUnit.NANOSECONDS.toMillis(remaining));
+          acquired = lockDao.acquireLock(getMongoDatabase());
+          attempts++;
         }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MongobeeLockException("Interrupted while waiting for process lock", e);
+      } finally {
+        metrics().recordLockWait(System.nanoTime() - start, attempts, acquired);
       }
+    } else {
+      metrics().recordLockWait(System.nanoTime() - start, attempts, acquired);
     }
 
     if (!acquired && throwExceptionIfCannotObtainLock) {
@@ -123,6 +188,22 @@ public class ChangeEntryDao {
     lockDao.releaseLock(getMongoDatabase());
   }
 
+  /**
+   * Try to acquire the lock of deferred changesets, independent of the process lock. Does not wait.
+   *
+   * @return true if successfully acquired, false otherwise
+   * @throws MongobeeConnectionException exception
+   */
+  public boolean acquireDeferredLock() throws MongobeeConnectionException {
+    verifyDbConnection();
+    return deferredLockDao.acquireLock(getMongoDatabase());
+  }
+
+  public void releaseDeferredLock() throws MongobeeConnectionException {
+    verifyDbConnection();
+    deferredLockDao.releaseLock(getMongoDatabase());
+  }
+
   public boolean isProccessLockHeld() throws MongobeeConnectionException {
     verifyDbConnection();
     return lockDao.isLockHeld(getMongoDatabase());
@@ -132,17 +213,202 @@ public class ChangeEntryDao {
     verifyDbConnection();
 
     MongoCollection<Document> mongobeeChangeLog = getMongoDatabase().getCollection(changelogCollectionName);
-    Document entry = mongobeeChangeLog.find(changeEntry.buildSearchQueryDBObject()).first();
+    // entries of changesets interrupted after a checkpoint do not count as applied
+    Document query = changeEntry.buildSearchQueryDBObject().append(ChangeEntry.KEY_STATE, notInProgress());
+    Document entry = mongobeeChangeLog.find(query).first();
 
     return entry == null;
   }
 
-  public void save(ChangeEntry changeEntry) throws MongobeeConnectionException {
+  /**
+   * @param changeEntry entry of a changeset
+   * @return entry of the changeset saved by a checkpoint of an unfinished execution, null if there is none
+   * @throws MongobeeConnectionException exception
+   */
+  public Document findCheckpoint(ChangeEntry changeEntry) throws MongobeeConnectionException {
+    verifyDbConnection();
+    return getMongoDatabase().getCollection(changelogCollectionName).find(changeEntry.buildInProgressQueryDBObject()).first();
+  }
+
+  /**
+   * Records a changeset as in progress together with its resume token. The lock held by this process is renewed
+   * first, so a checkpoint is never saved by a process whose lock expired and was taken over by another process.
+   *
+   * @param changeEntry entry of the changeset
+   * @param resumeToken position from which the changeset continues if it is executed again, e.g. the last processed id
+   * @throws MongobeeConnectionException exception
+   * @throws MongobeeLockException if this process does not hold the process lock or the lock of deferred changesets
+   */
+  public void saveCheckpoint(ChangeEntry changeEntry, Object resumeToken)
+      throws MongobeeConnectionException, MongobeeLockException {
+    verifyDbConnection();
+
+    String owner;
+    if (lockDao.renewLock(getMongoDatabase())) {
+      owner = lockDao.getOwner();
+    } else if (deferredLockDao.renewLock(getMongoDatabase())) {
+      owner = deferredLockDao.getOwner();
+    } else {
+      throw new MongobeeLockException("Checkpoint of " + changeEntry + " not saved, the lock is not held anymore. "
+          + "Another process may have taken over the migration");
+    }
+
+    Document checkpoint = new Document(ChangeEntry.KEY_RESUME_TOKEN, resumeToken)
+        .append(ChangeEntry.KEY_CHECKPOINT_OWNER, owner)
+        .append(ChangeEntry.KEY_TIMESTAMP, new Date())
+        .append(ChangeEntry.KEY_CHANGELOGCLASS, changeEntry.getChangeLogClass())
+        .append(ChangeEntry.KEY_CHANGESETMETHOD, changeEntry.getChangeSetMethodName());
+    getChangeLogCollection().updateOne(changeEntry.buildInProgressQueryDBObject(), new Document("$set", checkpoint),
+        new UpdateOptions().upsert(true));
+  }
+
+  /**
+   * Records a changeset which saved checkpoints as applied, replacing its in-progress entry
+   *
+   * @param changeEntry entry of the applied changeset
+   * @throws MongobeeConnectionException exception
+   * @throws MongobeeLockException if the lease of the lock held by this process was lost
+   */
+  public void completeCheckpoint(ChangeEntry changeEntry) throws MongobeeConnectionException, MongobeeLockException {
+    verifyDbConnection();
+    verifyLeaseHeld();
+    getChangeLogCollection().replaceOne(changeEntry.buildInProgressQueryDBObject(), changeEntry.buildFullDBObject(),
+        new UpdateOptions().upsert(true));
+  }
+
+  /**
+   * Loads all (changeId, author) pairs recorded in the changelog collection using a single projected cursor,
+   * so pending changesets can be decided locally instead of querying once per changeset.
+   *
+   * @return applied changes lookup
+   * @throws MongobeeConnectionException exception
+   */
+  public AppliedChanges fetchAppliedChanges() throws MongobeeConnectionException {
     verifyDbConnection();
 
-    MongoCollection<Document> mongobeeLog = getMongoDatabase().getCollection(changelogCollectionName);
+    MongoCollection<Document> mongobeeChangeLog = getMongoDatabase().getCollection(changelogCollectionName);
+    Document projection = new Document()
+        .append(ChangeEntry.KEY_CHANGEID, 1)
+        .append(ChangeEntry.KEY_AUTHOR, 1)
+        .append("_id", 0);
+
+    AppliedChanges appliedChanges = new AppliedChanges();
+    MongoCursor<Document> cursor = mongobeeChangeLog.find(new Document(ChangeEntry.KEY_STATE, notInProgress()))
+        .projection(projection)
+        .batchSize(APPLIED_CHANGES_BATCH_SIZE)
+        .iterator();
+    try {
+      while (cursor.hasNext()) {
+        Document entry = cursor.next();
+        appliedChanges.add(entry.getString(ChangeEntry.KEY_CHANGEID), entry.getString(ChangeEntry.KEY_AUTHOR));
+      }
+    } finally {
+      cursor.close();
+    }
+
+    return appliedChanges;
+  }
+
+  /**
+   * Finds the changesets which took longest to execute, e.g. to estimate how long a backfill takes on a larger dataset.
+   * Only changesets applied with execution timing recorded are considered.
+   *
+   * @param limit maximum number of entries
+   * @return entries ordered by descending duration
+   * @throws MongobeeConnectionException exception
+   */
+  public List<ChangeEntry> findSlowest(int limit) throws MongobeeConnectionException {
+    verifyDbConnection();
 
-    mongobeeLog.insertOne(changeEntry.buildFullDBObject());
+    Document timed = new Document(ChangeEntry.KEY_DURATION_MILLIS, new Document("$exists", true))
+        .append(ChangeEntry.KEY_STATE, notInProgress());
+    List<ChangeEntry> slowest = new ArrayList<>();
+    for (Document entry : getMongoDatabase().getCollection(changelogCollectionName).find(timed)
+        .sort(new Document(ChangeEntry.KEY_DURATION_MILLIS, -1))
+        .limit(limit)) {
+      slowest.add(ChangeEntry.fromDocument(entry));
+    }
+    return slowest;
+  }
+
+  /**
+   * @return fingerprint of the last fully applied migration plan, null if none was recorded
+   * @throws MongobeeConnectionException exception
+   */
+  public String findMigrationFingerprint() throws MongobeeConnectionException {
+    verifyDbConnection();
+    return metadataDao.findFingerprint(getMongoDatabase(), changelogCollectionName);
+  }
+
+  public void saveMigrationFingerprint(String fingerprint)
+      throws MongobeeConnectionException, MongobeeLockException {
+    verifyDbConnection();
+    verifyLeaseHeld();
+    metadataDao.saveFingerprint(getMongoDatabase(), changelogCollectionName, fingerprint);
+  }
+
+  /**
+   * Saves the entry of an applied changeset. If a batch size is set, the entry is buffered and written by
+   * {@link #flushChangeEntries()}, at the latest when the buffer reaches the batch size.
+   *
+   * @param changeEntry entry of an applied changeset
+   * @throws MongobeeConnectionException exception
+   * @throws MongobeeLockException if the lease of the lock held by this process was lost
+   */
+  public synchronized void save(ChangeEntry changeEntry) throws MongobeeConnectionException, MongobeeLockException {
+    verifyDbConnection();
+    verifyLeaseHeld();
+
+    if (changeEntryBatchSize <= 0) {
+      long start = System.nanoTime();
+      getChangeLogCollection().insertOne(changeEntry.buildFullDBObject());
+      metrics().recordChangeEntryWrite(1, System.nanoTime() - start);
+      return;
+    }
+
+    pendingChangeEntries.add(changeEntry.buildFullDBObject());
+    if (pendingChangeEntries.size() >= changeEntryBatchSize) {
+      flushChangeEntries();
+    }
+  }
+
+  /**
+   * Writes buffered entries with a single unordered insert. Entries are cleared from the buffer even if the insert
+   * fails, an unordered insert writes all entries which do not fail on their own.
+   *
+   * @throws MongobeeConnectionException exception
+   * @throws MongobeeLockException if the lease of the lock held by this process was lost
+   */
+  public synchronized void flushChangeEntries() throws MongobeeConnectionException, MongobeeLockException {
+    if (pendingChangeEntries.isEmpty()) {
+      return;
+    }
+    verifyDbConnection();
+    verifyLeaseHeld();
+
+    List<Document> entries = new ArrayList<>(pendingChangeEntries);
+    pendingChangeEntries.clear();
+    long start = System.nanoTime();
+    try {
+      getChangeLogCollection().insertMany(entries, new InsertManyOptions().ordered(false));
+    } finally {
+      metrics().recordChangeEntryWrite(entries.size(), System.nanoTime() - start);
+    }
+    logger.debug(entries.size() + " entries written to collection " + changelogCollectionName);
+  }
+
+  private MongoCollection<Document> getChangeLogCollection() {
+    MongoCollection<Document> collection = getMongoDatabase().getCollection(changelogCollectionName);
+    return changeEntryWriteConcern != null ? collection.withWriteConcern(changeEntryWriteConcern) : collection;
+  }
+
+  private MigrationMetrics metrics() {
+    // null on partial mocks of the dao
+    return metrics != null ? metrics : MigrationMetrics.NONE;
+  }
+
+  private static Document notInProgress() {
+    return new Document("$ne", ChangeEntry.STATE_IN_PROGRESS);
   }
 
   private void verifyDbConnection() throws MongobeeConnectionException {
@@ -152,6 +418,18 @@ public class ChangeEntryDao {
     }
   }
 
+  /**
+   * Changesets executed after the lease was lost ran without the lock, another process may be executing them too.
+   * Recording them fails the migration instead.
+   */
+  private void verifyLeaseHeld() throws MongobeeLockException {
+    // null on partial mocks of the dao
+    if ((lockDao != null && lockDao.isLeaseLost()) || (deferredLockDao != null && deferredLockDao.isLeaseLost())) {
+      throw new MongobeeLockException("The lease of the lock was lost while changesets were executed. "
+          + "Another process may have taken over the migration");
+    }
+  }
+
   private void ensureChangeLogCollectionIndex(MongoCollection<Document> collection) {
     Document index = indexDao.findRequiredChangeAndAuthorIndex(mongoDatabase);
     if (index == null) {
@@ -182,6 +460,16 @@ public class ChangeEntryDao {
     this.lockDao = lockDao;
   }
 
+  /* Visible for testing */
+  void setDeferredLockDao(LockDao deferredLockDao) {
+    this.deferredLockDao = deferredLockDao;
+  }
+
+  /* Visible for testing */
+  void setMetadataDao(MetadataDao metadataDao) {
+    this.metadataDao = metadataDao;
+  }
+
   public void setChangelogCollectionName(String changelogCollectionName) {
 	this.indexDao.setChangelogCollectionName(changelogCollectionName);
 	this.changelogCollectionName = changelogCollectionName;
@@ -189,6 +477,26 @@ public class ChangeEntryDao {
 
   public void setLockCollectionName(String lockCollectionName) {
 	this.lockDao.setLockCollectionName(lockCollectionName);
+	this.deferredLockDao.setLockCollectionName(lockCollectionName);
+  }
+
+  /**
+   * @param metrics receiver of lock wait and changelog entry write timings
+   */
+  public void setMetrics(MigrationMetrics metrics) {
+    this.metrics = metrics != null ? metrics : MigrationMetrics.NONE;
+  }
+
+  public void setMetadataCollectionName(String metadataCollectionName) {
+    this.metadataDao.setMetadataCollectionName(metadataCollectionName);
+  }
+
+  /**
+   * @param changeLogLockLeaseTime time in seconds after which a lock which is not renewed by its owner expires
+   */
+  public void setChangeLogLockLeaseTime(long changeLogLockLeaseTime) {
+    this.lockDao.setLeaseTime(changeLogLockLeaseTime * 1000);
+    this.deferredLockDao.setLeaseTime(changeLogLockLeaseTime * 1000);
   }
 
   public boolean isWaitForLock() {
@@ -215,6 +523,39 @@ public class ChangeEntryDao {
     this.changeLogLockPollRate = changeLogLockPollRate;
   }
 
+  /**
+   * @return strategy of waiting for the lock, by default polling at {@link #getChangeLogLockPollRate()}
+   */
+  public LockWaitStrategy getLockWaitStrategy() {
+    return lockWaitStrategy != null ? lockWaitStrategy : new FixedRateLockWaitStrategy(changeLogLockPollRate * 1000);
+  }
+
+  public void setLockWaitStrategy(LockWaitStrategy lockWaitStrategy) {
+    this.lockWaitStrategy = lockWaitStrategy;
+  }
+
+  public int getChangeEntryBatchSize() {
+    return changeEntryBatchSize;
+  }
+
+  /**
+   * @param changeEntryBatchSize number of buffered entries which triggers a write, 0 to write each entry immediately
+   */
+  public void setChangeEntryBatchSize(int changeEntryBatchSize) {
+    this.changeEntryBatchSize = changeEntryBatchSize;
+  }
+
+  public WriteConcern getChangeEntryWriteConcern() {
+    return changeEntryWriteConcern;
+  }
+
+  /**
+   * @param changeEntryWriteConcern write concern of changelog entry writes, null for the default of the collection
+   */
+  public void setChangeEntryWriteConcern(WriteConcern changeEntryWriteConcern) {
+    this.changeEntryWriteConcern = changeEntryWriteConcern;
+  }
+
   public boolean isThrowExceptionIfCannotObtainLock() {
     return throwExceptionIfCannotObtainLock;
   }
@@ -0,0 +1,35 @@
+package com.github.mongobee.dao;
+
+import java.util.Random;
+
+/**
+ * Doubles the wait time after each failed attempt, up to a limit. Half of each wait is random, so processes
+ * started at the same time do not query the lock collection in sync.
+ */
+public class ExponentialBackoffLockWaitStrategy implements LockWaitStrategy {
+  private static final int MAX_DOUBLINGS = 30;
+
+  private final long initialWaitMillis;
+  private final long maxWaitMillis;
+  private final Random random = new Random();
+
+  /**
+   * @param initialWaitMillis wait before the second attempt
+   * @param maxWaitMillis upper bound of a single wait
+   */
+  public ExponentialBackoffLockWaitStrategy(long initialWaitMillis, long maxWaitMillis) {
+    this.initialWaitMillis = initialWaitMillis;
+    this.maxWaitMillis = maxWaitMillis;
+  }
+
+  @Override
+  public void await(LockWaitContext context, int attempt, long remainingMillis) throws InterruptedException {
+    Thread.sleep(Math.min(nextWait(attempt), remainingMillis));
+  }
+
+  long nextWait(int attempt) {
+    long wait = Math.min(maxWaitMillis, initialWaitMillis << Math.min(attempt - 1, MAX_DOUBLINGS));
+    long half = wait / 2;
+    return half + (long) (random.nextDouble() * (wait - half));
+  }
+}
@@ -0,0 +1,17 @@
+package com.github.mongobee.dao;
+
+/**
+ * Waits the same time before each attempt
+ */
+public class FixedRateLockWaitStrategy implements LockWaitStrategy {
+  private final long pollRateMillis;
+
+  public FixedRateLockWaitStrategy(long pollRateMillis) {
+    this.pollRateMillis = pollRateMillis;
+  }
+
+  @Override
+  public void await(LockWaitContext context, int attempt, long remainingMillis) throws InterruptedException {
+    Thread.sleep(Math.min(pollRateMillis, remainingMillis));
+  }
+}
@@ -1,29 +1,70 @@
 package com.github.mongobee.dao;
 
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.mongobee.utils.LocalHost;
 import com.mongodb.ErrorCategory;
-import com.mongodb.MongoWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.result.UpdateResult;
 
 /**
+ * Process lock kept as a lease: the lock document holds its owner and an expiry time, which is extended
+ * by a heartbeat while the lock is held. A lease which is not renewed (e.g. the owner process was killed)
+ * can be taken over by another process once it expires and is eventually removed by a TTL index.
+ *
  * @author colsson11
  * @since 13.01.15
  */
 public class LockDao {
   private static final Logger logger = LoggerFactory.getLogger(LockDao.class);
   private static final String KEY_PROP_NAME = "key";
+  private static final String STATUS_PROP_NAME = "status";
+  private static final String OWNER_PROP_NAME = "owner";
+  private static final String HOST_PROP_NAME = "host";
+  private static final String EXPIRES_AT_PROP_NAME = "expiresAt";
 
   private static final int INDEX_SORT_ASC = 1;
+  private static final long DEFAULT_LEASE_TIME_MILLIS = 60 * 1000L;
+  private static final int HEARTBEATS_PER_LEASE = 3;
 
   private static final String LOCK_ENTRY_KEY_VAL = "LOCK";
+  private static final String LOCK_HELD_STATUS = "LOCK_HELD";
   private String lockCollectionName;
-  
+  private final String lockKey;
+  private long leaseTimeMillis = DEFAULT_LEASE_TIME_MILLIS;
+
+  private final String owner = UUID.randomUUID().toString();
+  private final String host = LocalHost.getName();
+  private ScheduledExecutorService heartbeat;
+  private volatile boolean leaseLost;
+
   public LockDao(String lockCollectionName) {
-	this.lockCollectionName = lockCollectionName;
+    this(lockCollectionName, LOCK_ENTRY_KEY_VAL);
+  }
+
+  /**
+   * @param lockCollectionName collection of lock documents
+   * @param lockKey key of the lock document, locks with different keys are independent
+   */
+  public LockDao(String lockCollectionName, String lockKey) {
+    this.lockCollectionName = lockCollectionName;
+    this.lockKey = lockKey;
   }
 
   public void intitializeLock(MongoDatabase db) {
@@ -35,28 +76,58 @@ public class LockDao {
     IndexOptions indexOptions = new IndexOptions().unique(true).name("mongobeelock_key_idx");
 
     db.getCollection(lockCollectionName).createIndex(indexKeys, indexOptions);
+
+    // expired leases are removed by the server, the lock does not need manual cleanup after a crash
+    Document ttlIndexKeys = new Document(EXPIRES_AT_PROP_NAME, INDEX_SORT_ASC);
+    IndexOptions ttlIndexOptions = new IndexOptions().expireAfter(0L, TimeUnit.SECONDS).name("mongobeelock_ttl_idx");
+
+    db.getCollection(lockCollectionName).createIndex(ttlIndexKeys, ttlIndexOptions);
   }
 
   public boolean acquireLock(MongoDatabase db) {
+    Date now = new Date();
 
-    Document insertObj = new Document(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL).append("status", "LOCK_HELD");
+    // take the lease if there is no lock document (upsert) or if the lease has expired - if the lock is held
+    // by a live owner the upsert fails on the unique key index. A lock document left by a version before leases
+    // has no expiry and would never be removed by the TTL index, it expires one lease time after its creation.
+    ObjectId createdBeforeLease = new ObjectId(new Date(now.getTime() - leaseTimeMillis), 0, (short) 0, 0);
+    Document expiredLock = new Document(KEY_PROP_NAME, lockKey)
+        .append("$or", Arrays.asList(
+            new Document(EXPIRES_AT_PROP_NAME, new Document("$lt", now)),
+            new Document(EXPIRES_AT_PROP_NAME, new Document("$exists", false))
+                .append("_id", new Document("$lt", createdBeforeLease))));
+    Document lease = new Document("$set", new Document(STATUS_PROP_NAME, LOCK_HELD_STATUS)
+        .append(OWNER_PROP_NAME, owner)
+        .append(HOST_PROP_NAME, host)
+        .append(EXPIRES_AT_PROP_NAME, new Date(now.getTime() + leaseTimeMillis)));
 
-    // acquire lock by attempting to insert the same value in the collection - if it already exists (i.e. lock held)
-    // there will be an exception
+    Document previous;
     try {
-      db.getCollection(lockCollectionName).insertOne(insertObj);
-    } catch (MongoWriteException ex) {
-      if (ex.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+      previous = db.getCollection(lockCollectionName)
+          .findOneAndUpdate(expiredLock, lease, new FindOneAndUpdateOptions().upsert(true));
+    } catch (MongoServerException ex) {
+      if (ErrorCategory.fromErrorCode(ex.getCode()) == ErrorCategory.DUPLICATE_KEY) {
         logger.warn("Duplicate key exception while acquireLock. Probably the lock has been already acquired.");
+        return false;
       }
-      return false;
+      throw ex;
     }
+
+    if (previous != null) {
+      logger.warn("Took over expired lock of owner " + previous.get(OWNER_PROP_NAME)
+          + " on host " + previous.get(HOST_PROP_NAME));
+    }
+    leaseLost = false;
+    startHeartbeat(db);
     return true;
   }
 
   public void releaseLock(MongoDatabase db) {
-    // release lock by deleting collection entry
-    db.getCollection(lockCollectionName).deleteMany(new Document(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL));
+    stopHeartbeat();
+    leaseLost = false;
+    // release lock by deleting collection entry - only if the lease has not been taken over by another process
+    db.getCollection(lockCollectionName).deleteMany(new Document(KEY_PROP_NAME, lockKey)
+        .append(OWNER_PROP_NAME, owner));
   }
 
   /**
@@ -66,11 +137,100 @@ public class LockDao {
    * @return true if the lock is currently held
    */
   public boolean isLockHeld(MongoDatabase db) {
-    return db.getCollection(lockCollectionName).count() == 1;
+    Document lock = db.getCollection(lockCollectionName).find(new Document(KEY_PROP_NAME, lockKey)).first();
+    if (lock == null) {
+      return false;
+    }
+    Date expiresAt = lock.getDate(EXPIRES_AT_PROP_NAME);
+    if (expiresAt == null) {
+      // lock document of a version before leases, it was never renewed
+      Object id = lock.get("_id");
+      if (!(id instanceof ObjectId)) {
+        return true;
+      }
+      expiresAt = new Date(((ObjectId) id).getDate().getTime() + leaseTimeMillis);
+    }
+    return expiresAt.after(new Date());
+  }
+
+  /**
+   * @return true if the heartbeat found the lease of the held lock taken over by another process; reset when
+   * the lock is acquired or released
+   */
+  public boolean isLeaseLost() {
+    return leaseLost;
+  }
+
+  /**
+   * Extends the lease of a held lock
+   *
+   * @param db MongoDatabase object
+   * @return false if the lock is not held by this process anymore
+   */
+  public boolean renewLock(MongoDatabase db) {
+    Document ownLock = new Document(KEY_PROP_NAME, lockKey).append(OWNER_PROP_NAME, owner);
+    UpdateResult result = db.getCollection(lockCollectionName).updateOne(ownLock,
+        new Document("$set", new Document(EXPIRES_AT_PROP_NAME, new Date(System.currentTimeMillis() + leaseTimeMillis))));
+    return result.getMatchedCount() > 0;
+  }
+
+  public String getLockCollectionName() {
+    return lockCollectionName;
   }
 
   public void setLockCollectionName(String lockCollectionName) {
 	this.lockCollectionName = lockCollectionName;
   }
 
+  /**
+   * @param leaseTimeMillis time after which a lock which is not renewed can be taken over by another process.
+   *                        Should be well above the clock difference between hosts. A lock document left by
+   *                        a version before leases can be taken over this time after it was created.
+   */
+  public void setLeaseTime(long leaseTimeMillis) {
+    this.leaseTimeMillis = leaseTimeMillis;
+  }
+
+  public long getLeaseTime() {
+    return leaseTimeMillis;
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  private synchronized void startHeartbeat(final MongoDatabase db) {
+    stopHeartbeat();
+    long period = Math.max(1L, leaseTimeMillis / HEARTBEATS_PER_LEASE);
+    heartbeat = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mongobee-lock-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    heartbeat.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          if (!renewLock(db)) {
+            logger.error("Mongobee lock lease was lost, another process may have taken over the lock");
+            leaseLost = true;
+            stopHeartbeat();
+          }
+        } catch (MongoException e) {
+          logger.warn("Mongobee lock lease could not be renewed: " + e.getMessage());
+        }
+      }
+    }, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void stopHeartbeat() {
+    if (heartbeat != null) {
+      heartbeat.shutdownNow();
+      heartbeat = null;
+    }
+  }
+
 }
@@ -0,0 +1,31 @@
+package com.github.mongobee.dao;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Lock a {@link LockWaitStrategy} waits for
+ */
+public class LockWaitContext {
+  private final MongoClient mongoClient;
+  private final MongoDatabase mongoDatabase;
+  private final String lockCollectionName;
+
+  public LockWaitContext(MongoClient mongoClient, MongoDatabase mongoDatabase, String lockCollectionName) {
+    this.mongoClient = mongoClient;
+    this.mongoDatabase = mongoDatabase;
+    this.lockCollectionName = lockCollectionName;
+  }
+
+  public MongoClient getMongoClient() {
+    return mongoClient;
+  }
+
+  public MongoDatabase getMongoDatabase() {
+    return mongoDatabase;
+  }
+
+  public String getLockCollectionName() {
+    return lockCollectionName;
+  }
+}
@@ -0,0 +1,22 @@
+package com.github.mongobee.dao;
+
+/**
+ * Decides how long a process waits between attempts to acquire the process lock held by another process
+ *
+ * @see FixedRateLockWaitStrategy
+ * @see ExponentialBackoffLockWaitStrategy
+ * @see OplogLockWaitStrategy
+ */
+public interface LockWaitStrategy {
+
+  /**
+   * Blocks until the next attempt to acquire the lock should be made
+   *
+   * @param context lock being waited for
+   * @param attempt number of failed attempts so far, starting from 1
+   * @param remainingMillis time left until the process gives up waiting; the strategy must not wait longer
+   * @throws InterruptedException if the waiting thread is interrupted
+   */
+  void await(LockWaitContext context, int attempt, long remainingMillis) throws InterruptedException;
+
+}
@@ -0,0 +1,56 @@
+package com.github.mongobee.dao;
+
+import java.util.Date;
+
+import org.bson.Document;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.UpdateOptions;
+
+/**
+ * Keeps the fingerprint of the last fully applied migration plan, one document per changelog collection.
+ * Documents are looked up by <tt>_id</tt>, so a check costs a single indexed read.
+ */
+public class MetadataDao {
+  private static final String ID_PROP_NAME = "_id";
+  private static final String FINGERPRINT_PROP_NAME = "fingerprint";
+  private static final String UPDATED_AT_PROP_NAME = "updatedAt";
+
+  private String metadataCollectionName;
+
+  public MetadataDao(String metadataCollectionName) {
+    this.metadataCollectionName = metadataCollectionName;
+  }
+
+  /**
+   * @param db MongoDatabase object
+   * @param changelogCollectionName changelog collection the fingerprint belongs to
+   * @return fingerprint of the last fully applied migration plan, null if there is none
+   */
+  public String findFingerprint(MongoDatabase db, String changelogCollectionName) {
+    Document metadata = db.getCollection(metadataCollectionName)
+        .find(new Document(ID_PROP_NAME, changelogCollectionName))
+        .first();
+    return metadata != null ? metadata.getString(FINGERPRINT_PROP_NAME) : null;
+  }
+
+  public void saveFingerprint(MongoDatabase db, String changelogCollectionName, String fingerprint) {
+    db.getCollection(metadataCollectionName).updateOne(new Document(ID_PROP_NAME, changelogCollectionName),
+        new Document("$set", new Document(FINGERPRINT_PROP_NAME, fingerprint)
+            .append(UPDATED_AT_PROP_NAME, new Date())),
+        new UpdateOptions().upsert(true));
+  }
+
+  public void removeFingerprint(MongoDatabase db, String changelogCollectionName) {
+    db.getCollection(metadataCollectionName).deleteOne(new Document(ID_PROP_NAME, changelogCollectionName));
+  }
+
+  public String getMetadataCollectionName() {
+    return metadataCollectionName;
+  }
+
+  public void setMetadataCollectionName(String metadataCollectionName) {
+    this.metadataCollectionName = metadataCollectionName;
+  }
+
+}
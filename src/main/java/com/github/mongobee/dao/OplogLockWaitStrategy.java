@@ -0,0 +1,88 @@
+package com.github.mongobee.dao;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.CursorType;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+
+/**
+ * Watches the replica set oplog and wakes up as soon as the lock document is deleted, i.e. the lock is released
+ * or an expired lease is removed. Waits at most the poll rate, so an expired lease is still taken over in time.
+ * On servers without an oplog (standalone) or without access to the <tt>local</tt> database it polls at a fixed rate.
+ */
+public class OplogLockWaitStrategy implements LockWaitStrategy {
+  private static final Logger logger = LoggerFactory.getLogger(OplogLockWaitStrategy.class);
+  private static final String OPLOG_DATABASE = "local";
+  private static final String OPLOG_COLLECTION = "oplog.rs";
+  private static final long AWAIT_TIME_MILLIS = 1000L;
+
+  private final long pollRateMillis;
+  private volatile boolean oplogUnavailable;
+
+  /**
+   * @param pollRateMillis longest wait before the next attempt; also the poll rate if the oplog is not available
+   */
+  public OplogLockWaitStrategy(long pollRateMillis) {
+    this.pollRateMillis = pollRateMillis;
+  }
+
+  @Override
+  public void await(LockWaitContext context, int attempt, long remainingMillis) throws InterruptedException {
+    long waitMillis = Math.min(pollRateMillis, remainingMillis);
+    if (oplogUnavailable || context.getMongoClient() == null) {
+      Thread.sleep(waitMillis);
+      return;
+    }
+
+    try {
+      awaitLockDeletion(context, waitMillis);
+    } catch (MongoException e) {
+      logger.info("Oplog can not be watched, polling for the lock instead: " + e.getMessage());
+      oplogUnavailable = true;
+      Thread.sleep(waitMillis);
+    }
+  }
+
+  private void awaitLockDeletion(LockWaitContext context, long waitMillis) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+    MongoCollection<Document> oplog = context.getMongoClient().getDatabase(OPLOG_DATABASE).getCollection(OPLOG_COLLECTION);
+
+    Document last = oplog.find().sort(new Document("$natural", -1)).limit(1).first();
+    if (last == null) {
+      logger.info("No oplog found (standalone server), polling for the lock instead");
+      oplogUnavailable = true;
+      Thread.sleep(waitMillis);
+      return;
+    }
+
+    String namespace = context.getMongoDatabase().getName() + "." + context.getLockCollectionName();
+    Document lockDeletion = new Document("ns", namespace)
+        .append("op", "d")
+        .append("ts", new Document("$gt", last.get("ts", BsonTimestamp.class)));
+    MongoCursor<Document> cursor = oplog.find(lockDeletion)
+        .cursorType(CursorType.TailableAwait)
+        .maxAwaitTime(AWAIT_TIME_MILLIS, TimeUnit.MILLISECONDS)
+        .noCursorTimeout(true)
+        .iterator();
+    try {
+      while (System.nanoTime() < deadline) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        if (cursor.tryNext() != null) {
+          logger.debug("Lock document deleted, trying to acquire the lock");
+          return;
+        }
+      }
+    } finally {
+      cursor.close();
+    }
+  }
+}
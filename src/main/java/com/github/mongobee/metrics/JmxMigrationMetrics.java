@@ -0,0 +1,197 @@
+package com.github.mongobee.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records migration metrics as attributes of a standard MBean, for environments without Micrometer.
+ * Totals accumulate over all migrations until {@link #reset()}.
+ */
+public class JmxMigrationMetrics implements MigrationMetrics, JmxMigrationMetricsMBean {
+  public static final String DEFAULT_OBJECT_NAME = "com.github.mongobee:type=Migration";
+
+  private long scanNanos;
+  private long connectNanos;
+  private long lockWaitNanos;
+  private long lockAttempts;
+  private long lockNotAcquired;
+  private long applied;
+  private long reapplied;
+  private long passedOver;
+  private long failed;
+  private long changeSetNanos;
+  private long slowestChangeSetNanos;
+  private String slowestChangeSet;
+  private long changeEntryWrites;
+  private long changeEntryWriteNanos;
+  private long maxChangeEntryWriteNanos;
+
+  /**
+   * Registers metrics as {@link #DEFAULT_OBJECT_NAME} in the platform MBean server
+   *
+   * @return registered metrics
+   * @throws JMException if the MBean can not be registered, e.g. if the name is already taken
+   */
+  public static JmxMigrationMetrics register() throws JMException {
+    return register(ManagementFactory.getPlatformMBeanServer(), new ObjectName(DEFAULT_OBJECT_NAME));
+  }
+
+  /**
+   * @param server MBean server
+   * @param name name of the MBean, e.g. with the database name as an additional key when migrating several databases
+   * @return registered metrics
+   * @throws JMException if the MBean can not be registered
+   */
+  public static JmxMigrationMetrics register(MBeanServer server, ObjectName name) throws JMException {
+    JmxMigrationMetrics metrics = new JmxMigrationMetrics();
+    server.registerMBean(metrics, name);
+    return metrics;
+  }
+
+  @Override
+  public synchronized void recordScan(long nanos) {
+    scanNanos += nanos;
+  }
+
+  @Override
+  public synchronized void recordConnect(long nanos) {
+    connectNanos += nanos;
+  }
+
+  @Override
+  public synchronized void recordLockWait(long nanos, int attempts, boolean acquired) {
+    lockWaitNanos += nanos;
+    lockAttempts += attempts;
+    if (!acquired) {
+      lockNotAcquired++;
+    }
+  }
+
+  @Override
+  public synchronized void recordChangeSet(String changeLogClass, String changeSetId, String outcome, long nanos) {
+    if (APPLIED.equals(outcome)) {
+      applied++;
+    } else if (REAPPLIED.equals(outcome)) {
+      reapplied++;
+    } else if (PASSED_OVER.equals(outcome)) {
+      passedOver++;
+    } else {
+      failed++;
+    }
+    changeSetNanos += nanos;
+    if (nanos > slowestChangeSetNanos) {
+      slowestChangeSetNanos = nanos;
+      slowestChangeSet = changeLogClass + "#" + changeSetId;
+    }
+  }
+
+  @Override
+  public synchronized void recordChangeEntryWrite(int entries, long nanos) {
+    changeEntryWrites++;
+    changeEntryWriteNanos += nanos;
+    maxChangeEntryWriteNanos = Math.max(maxChangeEntryWriteNanos, nanos);
+  }
+
+  @Override
+  public synchronized long getScanTimeMillis() {
+    return millis(scanNanos);
+  }
+
+  @Override
+  public synchronized long getConnectTimeMillis() {
+    return millis(connectNanos);
+  }
+
+  @Override
+  public synchronized long getLockWaitTimeMillis() {
+    return millis(lockWaitNanos);
+  }
+
+  @Override
+  public synchronized long getLockAttempts() {
+    return lockAttempts;
+  }
+
+  @Override
+  public synchronized long getLockNotAcquiredCount() {
+    return lockNotAcquired;
+  }
+
+  @Override
+  public synchronized long getChangeSetsApplied() {
+    return applied;
+  }
+
+  @Override
+  public synchronized long getChangeSetsReapplied() {
+    return reapplied;
+  }
+
+  @Override
+  public synchronized long getChangeSetsPassedOver() {
+    return passedOver;
+  }
+
+  @Override
+  public synchronized long getChangeSetsFailed() {
+    return failed;
+  }
+
+  @Override
+  public synchronized long getChangeSetTimeMillis() {
+    return millis(changeSetNanos);
+  }
+
+  @Override
+  public synchronized long getSlowestChangeSetTimeMillis() {
+    return millis(slowestChangeSetNanos);
+  }
+
+  @Override
+  public synchronized String getSlowestChangeSet() {
+    return slowestChangeSet;
+  }
+
+  @Override
+  public synchronized long getChangeEntryWrites() {
+    return changeEntryWrites;
+  }
+
+  @Override
+  public synchronized long getChangeEntryWriteTimeMillis() {
+    return millis(changeEntryWriteNanos);
+  }
+
+  @Override
+  public synchronized long getMaxChangeEntryWriteTimeMillis() {
+    return millis(maxChangeEntryWriteNanos);
+  }
+
+  @Override
+  public synchronized void reset() {
+    scanNanos = 0;
+    connectNanos = 0;
+    lockWaitNanos = 0;
+    lockAttempts = 0;
+    lockNotAcquired = 0;
+    applied = 0;
+    reapplied = 0;
+    passedOver = 0;
+    failed = 0;
+    changeSetNanos = 0;
+    slowestChangeSetNanos = 0;
+    slowestChangeSet = null;
+    changeEntryWrites = 0;
+    changeEntryWriteNanos = 0;
+    maxChangeEntryWriteNanos = 0;
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+}
@@ -0,0 +1,40 @@
+package com.github.mongobee.metrics;
+
+/**
+ * Attributes of {@link JmxMigrationMetrics}, times in milliseconds
+ */
+public interface JmxMigrationMetricsMBean {
+
+  long getScanTimeMillis();
+
+  long getConnectTimeMillis();
+
+  long getLockWaitTimeMillis();
+
+  long getLockAttempts();
+
+  long getLockNotAcquiredCount();
+
+  long getChangeSetsApplied();
+
+  long getChangeSetsReapplied();
+
+  long getChangeSetsPassedOver();
+
+  long getChangeSetsFailed();
+
+  long getChangeSetTimeMillis();
+
+  long getSlowestChangeSetTimeMillis();
+
+  String getSlowestChangeSet();
+
+  long getChangeEntryWrites();
+
+  long getChangeEntryWriteTimeMillis();
+
+  long getMaxChangeEntryWriteTimeMillis();
+
+  void reset();
+
+}
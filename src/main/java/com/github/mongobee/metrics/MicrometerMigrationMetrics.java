@@ -0,0 +1,58 @@
+package com.github.mongobee.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records migration metrics in a Micrometer {@link MeterRegistry}, which has to be on the classpath:
+ * <ul>
+ * <li><tt>mongobee.scan</tt>, <tt>mongobee.connect</tt> - timers of the startup phases,</li>
+ * <li><tt>mongobee.lock.wait</tt> - timer tagged by <tt>acquired</tt>, <tt>mongobee.lock.attempts</tt> - summary,</li>
+ * <li><tt>mongobee.changeset</tt> - timer tagged by <tt>changelog</tt>, <tt>id</tt> and <tt>outcome</tt>,</li>
+ * <li><tt>mongobee.changelog.write</tt> - timer of changelog entry writes, <tt>mongobee.changelog.entries</tt> - summary
+ * of entries per write.</li>
+ * </ul>
+ */
+public class MicrometerMigrationMetrics implements MigrationMetrics {
+  private final MeterRegistry registry;
+
+  public MicrometerMigrationMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void recordScan(long nanos) {
+    registry.timer("mongobee.scan").record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordConnect(long nanos) {
+    registry.timer("mongobee.connect").record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordLockWait(long nanos, int attempts, boolean acquired) {
+    registry.timer("mongobee.lock.wait", "acquired", String.valueOf(acquired)).record(nanos, TimeUnit.NANOSECONDS);
+    registry.summary("mongobee.lock.attempts").record(attempts);
+  }
+
+  @Override
+  public void recordChangeSet(String changeLogClass, String changeSetId, String outcome, long nanos) {
+    Timer.builder("mongobee.changeset")
+        .tag("changelog", changeLogClass)
+        .tag("id", changeSetId)
+        .tag("outcome", outcome)
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordChangeEntryWrite(int entries, long nanos) {
+    registry.timer("mongobee.changelog.write").record(nanos, TimeUnit.NANOSECONDS);
+    DistributionSummary.builder("mongobee.changelog.entries").register(registry).record(entries);
+  }
+
+}
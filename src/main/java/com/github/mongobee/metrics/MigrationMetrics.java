@@ -0,0 +1,74 @@
+package com.github.mongobee.metrics;
+
+/**
+ * Receives timings of the migration phases, e.g. to export them to a monitoring system
+ *
+ * @see MicrometerMigrationMetrics
+ * @see JmxMigrationMetrics
+ */
+public interface MigrationMetrics {
+
+  /** outcome of a changeset executed for the first time */
+  String APPLIED = "applied";
+  /** outcome of a runAlways changeset executed again */
+  String REAPPLIED = "reapplied";
+  /** outcome of a changeset applied before */
+  String PASSED_OVER = "passed_over";
+  /** outcome of a changeset which threw an exception or could not be invoked */
+  String FAILED = "failed";
+
+  /** metrics which are not recorded */
+  MigrationMetrics NONE = new MigrationMetrics() {
+    @Override
+    public void recordScan(long nanos) {
+    }
+
+    @Override
+    public void recordConnect(long nanos) {
+    }
+
+    @Override
+    public void recordLockWait(long nanos, int attempts, boolean acquired) {
+    }
+
+    @Override
+    public void recordChangeSet(String changeLogClass, String changeSetId, String outcome, long nanos) {
+    }
+
+    @Override
+    public void recordChangeEntryWrite(int entries, long nanos) {
+    }
+  };
+
+  /**
+   * @param nanos time spent scanning changelog classes
+   */
+  void recordScan(long nanos);
+
+  /**
+   * @param nanos time spent connecting and ensuring the indexes of Mongobee collections
+   */
+  void recordConnect(long nanos);
+
+  /**
+   * @param nanos time spent acquiring the process lock, including waiting for it
+   * @param attempts number of attempts to acquire the lock
+   * @param acquired whether the lock was acquired
+   */
+  void recordLockWait(long nanos, int attempts, boolean acquired);
+
+  /**
+   * @param changeLogClass class name of the changelog
+   * @param changeSetId id of the changeset
+   * @param outcome one of {@link #APPLIED}, {@link #REAPPLIED}, {@link #PASSED_OVER}, {@link #FAILED}
+   * @param nanos time spent executing the changeset
+   */
+  void recordChangeSet(String changeLogClass, String changeSetId, String outcome, long nanos);
+
+  /**
+   * @param entries number of changelog entries written
+   * @param nanos latency of the write
+   */
+  void recordChangeEntryWrite(int entries, long nanos);
+
+}
@@ -0,0 +1,93 @@
+package com.github.mongobee.resolver;
+
+import com.github.mongobee.changeset.BulkWriter;
+import com.github.mongobee.changeset.Checkpoint;
+import com.github.mongobee.changeset.CollectionTransformer;
+import com.github.mongobee.throttle.ThrottledMongoDatabase;
+import com.github.mongobee.throttle.WriteThrottle;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Resolves objects belonging to a single changeset execution: a {@link BulkWriter} shared by the parameters of the
+ * execution and flushed once the changeset returns or saves its {@link Checkpoint}, a {@link CollectionTransformer},
+ * the {@link Checkpoint} and, for throttled changesets, a {@link MongoDatabase} whose writes wait for the
+ * {@link WriteThrottle}.
+ */
+public class BuiltInParameterResolver implements ParameterResolver {
+  private static final String THROTTLED_DATABASE = "throttledMongoDatabase";
+
+  private final WriteThrottle writeThrottle;
+  private final int bulkWriteBatchSize;
+  private final long bulkWriteMaxBytes;
+  private final int transformerParallelism;
+
+  /**
+   * @param writeThrottle throttle of throttled changesets, null to not throttle writes
+   * @param bulkWriteBatchSize number of operations sent in one bulk write
+   * @param bulkWriteMaxBytes estimated BSON size of operations sent in one bulk write
+   * @param transformerParallelism number of <tt>_id</tt> ranges transformed at a time
+   */
+  public BuiltInParameterResolver(WriteThrottle writeThrottle, int bulkWriteBatchSize, long bulkWriteMaxBytes,
+      int transformerParallelism) {
+    this.writeThrottle = writeThrottle;
+    this.bulkWriteBatchSize = bulkWriteBatchSize;
+    this.bulkWriteMaxBytes = bulkWriteMaxBytes;
+    this.transformerParallelism = transformerParallelism;
+  }
+
+  @Override
+  public boolean supports(ChangeSetParameter parameter) {
+    Class<?> parameterType = parameter.getType();
+    return parameterType.equals(BulkWriter.class)
+        || parameterType.equals(CollectionTransformer.class)
+        || parameterType.equals(Checkpoint.class)
+        || parameterType.equals(MongoDatabase.class) && isThrottled(parameter);
+  }
+
+  @Override
+  public Object getCacheKey(ChangeSetParameter parameter) {
+    // the throttled database depends on the migration only, everything else on the execution
+    return parameter.getType().equals(MongoDatabase.class) ? THROTTLED_DATABASE : null;
+  }
+
+  @Override
+  public Object resolve(ChangeSetParameter parameter, final ChangeSetContext context) {
+    Class<?> parameterType = parameter.getType();
+    if (parameterType.equals(Checkpoint.class)) {
+      return context.getCheckpoint();
+    } else if (parameterType.equals(MongoDatabase.class)) {
+      return ThrottledMongoDatabase.wrap(context.getMigration().getMongoDatabase(), writeThrottle);
+    } else if (parameterType.equals(CollectionTransformer.class)) {
+      return new CollectionTransformer(database(parameter, context), transformerParallelism, bulkWriteBatchSize,
+          bulkWriteMaxBytes, context.getBulkWriteStats());
+    }
+    BulkWriter bulkWriter = (BulkWriter) context.get(BulkWriter.class);
+    if (bulkWriter == null) {
+      bulkWriter = new BulkWriter(database(parameter, context), bulkWriteBatchSize, bulkWriteMaxBytes,
+          context.getBulkWriteStats());
+      context.put(BulkWriter.class, bulkWriter);
+      final BulkWriter pendingWrites = bulkWriter;
+      Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+          pendingWrites.flush();
+        }
+      };
+      context.onCompletion(flush);
+      // a saved resume token must not run ahead of the writes it covers
+      if (context.getCheckpoint() != null) {
+        context.getCheckpoint().beforeSave(flush);
+      }
+    }
+    return bulkWriter;
+  }
+
+  private boolean isThrottled(ChangeSetParameter parameter) {
+    return writeThrottle != null && parameter.getChangeSet().isThrottled();
+  }
+
+  private MongoDatabase database(ChangeSetParameter parameter, ChangeSetContext context) {
+    MongoDatabase db = context.getMigration().getMongoDatabase();
+    return isThrottled(parameter) ? ThrottledMongoDatabase.wrap(db, writeThrottle) : db;
+  }
+}
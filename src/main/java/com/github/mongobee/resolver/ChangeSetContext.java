@@ -0,0 +1,98 @@
+package com.github.mongobee.resolver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.mongobee.changeset.BulkWriteStats;
+import com.github.mongobee.changeset.Checkpoint;
+import com.github.mongobee.utils.ChangeSetDescriptor;
+
+/**
+ * Execution of a single changeset, available to {@link ParameterResolver}s. Arguments of one execution are resolved
+ * by a single thread, so resolvers may keep values of the execution here without synchronization.
+ */
+public class ChangeSetContext {
+  private final MigrationContext migration;
+  private final ChangeSetDescriptor changeSet;
+  private final Checkpoint checkpoint;
+  private final BulkWriteStats bulkWriteStats;
+  private final Map<Object, Object> values = new HashMap<>();
+  private final List<Runnable> completionTasks = new ArrayList<>();
+
+  public ChangeSetContext(MigrationContext migration, ChangeSetDescriptor changeSet) {
+    this(migration, changeSet, null, new BulkWriteStats(migration.getBulkWriteStats()));
+  }
+
+  /**
+   * @param migration migration the changeset is executed by
+   * @param changeSet changeset being executed
+   * @param checkpoint checkpoint of the execution, null if the changeset method does not take one
+   * @param bulkWriteStats counts of documents written by the execution, adding up to those of the migration
+   */
+  public ChangeSetContext(MigrationContext migration, ChangeSetDescriptor changeSet, Checkpoint checkpoint,
+      BulkWriteStats bulkWriteStats) {
+    this.migration = migration;
+    this.changeSet = changeSet;
+    this.checkpoint = checkpoint;
+    this.bulkWriteStats = bulkWriteStats;
+  }
+
+  /**
+   * @return migration the changeset is executed by
+   */
+  public MigrationContext getMigration() {
+    return migration;
+  }
+
+  public ChangeSetDescriptor getChangeSet() {
+    return changeSet;
+  }
+
+  /**
+   * @return checkpoint of the execution, null if the changeset method does not take one
+   */
+  public Checkpoint getCheckpoint() {
+    return checkpoint;
+  }
+
+  /**
+   * @return counts of documents written by the execution
+   */
+  public BulkWriteStats getBulkWriteStats() {
+    return bulkWriteStats;
+  }
+
+  /**
+   * @param key key chosen by the resolver
+   * @return value stored for this execution, null if none
+   */
+  public Object get(Object key) {
+    return values.get(key);
+  }
+
+  /**
+   * @param key key chosen by the resolver
+   * @param value value shared by the parameters of this execution
+   */
+  public void put(Object key, Object value) {
+    values.put(key, value);
+  }
+
+  /**
+   * @param task run after the changeset method returns successfully, before the changeset is recorded as applied
+   */
+  public void onCompletion(Runnable task) {
+    completionTasks.add(task);
+  }
+
+  /**
+   * Runs the completion tasks in the order they were added
+   */
+  public void complete() {
+    for (Runnable task : completionTasks) {
+      task.run();
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.github.mongobee.resolver;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.mongobee.utils.ChangeSetDescriptor;
+
+/**
+ * Parameter of a {@link com.github.mongobee.changeset.ChangeSet} method, described once together with its changeset
+ *
+ * @see ChangeSetDescriptor#getParameters()
+ */
+public final class ChangeSetParameter {
+  private final ChangeSetDescriptor changeSet;
+  private final int index;
+  private final Class<?> type;
+  private final Type genericType;
+  private final List<Annotation> annotations;
+
+  private ChangeSetParameter(ChangeSetDescriptor changeSet, int index, Class<?> type, Type genericType,
+      Annotation[] annotations) {
+    this.changeSet = changeSet;
+    this.index = index;
+    this.type = type;
+    this.genericType = genericType;
+    this.annotations = Collections.unmodifiableList(Arrays.asList(annotations));
+  }
+
+  /**
+   * @param changeSet changeset
+   * @return parameters of the changeset method, in declaration order
+   */
+  public static List<ChangeSetParameter> of(ChangeSetDescriptor changeSet) {
+    Method method = changeSet.getMethod();
+    Class<?>[] types = method.getParameterTypes();
+    Type[] genericTypes = method.getGenericParameterTypes();
+    Annotation[][] annotations = method.getParameterAnnotations();
+    List<ChangeSetParameter> parameters = new ArrayList<>(types.length);
+    for (int i = 0; i < types.length; i++) {
+      parameters.add(new ChangeSetParameter(changeSet, i, types[i], genericTypes[i], annotations[i]));
+    }
+    return Collections.unmodifiableList(parameters);
+  }
+
+  public ChangeSetDescriptor getChangeSet() {
+    return changeSet;
+  }
+
+  /**
+   * @return position of the parameter in the method signature, starting at 0
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  /**
+   * @return declared type including type arguments, e.g. <tt>MongoCollection&lt;Document&gt;</tt>
+   */
+  public Type getGenericType() {
+    return genericType;
+  }
+
+  public List<Annotation> getAnnotations() {
+    return annotations;
+  }
+
+  /**
+   * @param annotationType type of the annotation
+   * @param <A> type of the annotation
+   * @return annotation of the parameter, null if the parameter is not annotated with it
+   */
+  public <A extends Annotation> A getAnnotation(Class<A> annotationType) {
+    for (Annotation annotation : annotations) {
+      if (annotationType.isInstance(annotation)) {
+        return annotationType.cast(annotation);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "[Parameter " + index + " of " + changeSet.getMethod().getName() + ": " + genericType.getTypeName() + "]";
+  }
+}
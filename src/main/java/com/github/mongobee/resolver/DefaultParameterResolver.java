@@ -0,0 +1,59 @@
+package com.github.mongobee.resolver;
+
+import org.jongo.Jongo;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.DB;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Resolves driver objects supported by mongobee out of the box: {@link MongoDatabase}, {@link DB}, {@link Jongo},
+ * {@link MongoTemplate} and Spring {@link Environment}. Pre-configured Jongo and MongoTemplate are used if given,
+ * otherwise they are created for the migration database.
+ */
+public class DefaultParameterResolver implements ParameterResolver {
+  private final Jongo jongo;
+  private final MongoTemplate mongoTemplate;
+
+  /**
+   * @param jongo pre-configured {@link Jongo}, may be null
+   * @param mongoTemplate pre-configured {@link MongoTemplate}, may be null
+   */
+  public DefaultParameterResolver(Jongo jongo, MongoTemplate mongoTemplate) {
+    this.jongo = jongo;
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public boolean supports(ChangeSetParameter parameter) {
+    Class<?> parameterType = parameter.getType();
+    return parameterType.equals(MongoDatabase.class)
+        || parameterType.equals(DB.class)
+        || parameterType.equals(Jongo.class)
+        || parameterType.equals(MongoTemplate.class)
+        || parameterType.equals(Environment.class);
+  }
+
+  @Override
+  public Object getCacheKey(ChangeSetParameter parameter) {
+    return parameter.getType();
+  }
+
+  @Override
+  public Object resolve(ChangeSetParameter parameter, ChangeSetContext changeSetContext) {
+    Class<?> parameterType = parameter.getType();
+    MigrationContext context = changeSetContext.getMigration();
+    if (parameterType.equals(MongoDatabase.class)) {
+      return context.getMongoDatabase();
+    } else if (parameterType.equals(DB.class)) {
+      return context.getDb();
+    } else if (parameterType.equals(Jongo.class)) {
+      return jongo != null ? jongo : new Jongo(context.getDb());
+    } else if (parameterType.equals(MongoTemplate.class)) {
+      return mongoTemplate != null ? mongoTemplate : new MongoTemplate(context.getDb().getMongo(), context.getDbName());
+    } else {
+      return context.getSpringEnvironment();
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.github.mongobee.resolver;
+
+/**
+ * Resolves arguments of the given type to a fixed instance, e.g. a Spring bean or a service used by changesets
+ *
+ * @param <T> type of the argument
+ */
+public class InstanceParameterResolver<T> implements ParameterResolver {
+  private final Class<T> type;
+  private final T instance;
+
+  public InstanceParameterResolver(Class<T> type, T instance) {
+    this.type = type;
+    this.instance = instance;
+  }
+
+  @Override
+  public boolean supports(ChangeSetParameter parameter) {
+    return parameter.getType().equals(type);
+  }
+
+  @Override
+  public Object getCacheKey(ChangeSetParameter parameter) {
+    return type;
+  }
+
+  @Override
+  public Object resolve(ChangeSetParameter parameter, ChangeSetContext context) {
+    return instance;
+  }
+}
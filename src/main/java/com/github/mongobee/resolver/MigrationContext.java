@@ -0,0 +1,55 @@
+package com.github.mongobee.resolver;
+
+import org.springframework.core.env.Environment;
+
+import com.github.mongobee.changeset.BulkWriteStats;
+import com.mongodb.DB;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Database and environment of a migration, available to {@link ParameterResolver}s
+ */
+public class MigrationContext {
+  private final DB db;
+  private final MongoDatabase mongoDatabase;
+  private final String dbName;
+  private final Environment springEnvironment;
+  private final BulkWriteStats bulkWriteStats = new BulkWriteStats();
+
+  public MigrationContext(DB db, MongoDatabase mongoDatabase, String dbName, Environment springEnvironment) {
+    this.db = db;
+    this.mongoDatabase = mongoDatabase;
+    this.dbName = dbName;
+    this.springEnvironment = springEnvironment;
+  }
+
+  /**
+   * @deprecated implemented only for Jongo driver compatibility and backward compatibility - do not use in other contexts
+   * @return com.mongodb.DB
+   */
+  public DB getDb() {
+    return db;
+  }
+
+  public MongoDatabase getMongoDatabase() {
+    return mongoDatabase;
+  }
+
+  public String getDbName() {
+    return dbName;
+  }
+
+  /**
+   * @return Spring environment, null if not set
+   */
+  public Environment getSpringEnvironment() {
+    return springEnvironment;
+  }
+
+  /**
+   * @return counts of documents written by bulk writers of the migration
+   */
+  public BulkWriteStats getBulkWriteStats() {
+    return bulkWriteStats;
+  }
+}
@@ -0,0 +1,35 @@
+package com.github.mongobee.resolver;
+
+import com.github.mongobee.exception.MongobeeException;
+
+/**
+ * Provides values of {@link com.github.mongobee.changeset.ChangeSet} method arguments. A resolver sees the whole
+ * parameter - its type, annotations and position - so e.g. a <tt>MongoCollection</tt> can be bound by a name given
+ * in an annotation. Values are shared by the changesets of a migration under the key chosen by the resolver.
+ *
+ * @see com.github.mongobee.Mongobee#addParameterResolver(ParameterResolver)
+ */
+public interface ParameterResolver {
+
+  /**
+   * @param parameter parameter of a changeset method
+   * @return true if this resolver provides its values
+   */
+  boolean supports(ChangeSetParameter parameter);
+
+  /**
+   * @param parameter parameter of a changeset method, supported by this resolver
+   * @return key under which the value is resolved at most once per migration and shared by all parameters with
+   * an equal key, e.g. the parameter type; null to resolve the value for every changeset execution
+   */
+  Object getCacheKey(ChangeSetParameter parameter);
+
+  /**
+   * @param parameter parameter of a changeset method, supported by this resolver
+   * @param context changeset being executed; values with a cache key must depend on the migration only
+   * @return value passed to the changeset method
+   * @throws MongobeeException if the value can not be provided
+   */
+  Object resolve(ChangeSetParameter parameter, ChangeSetContext context) throws MongobeeException;
+
+}
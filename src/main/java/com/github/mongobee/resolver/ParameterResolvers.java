@@ -0,0 +1,100 @@
+package com.github.mongobee.resolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.mongobee.exception.MongobeeChangeSetException;
+import com.github.mongobee.exception.MongobeeException;
+import com.github.mongobee.utils.ChangeSetDescriptor;
+
+/**
+ * Resolvers of changeset arguments for a single migration. Resolvers are asked in the order they were given; a value
+ * with a cache key is resolved at most once per resolver and key and reused by all changesets. Safe to use by
+ * changesets running in parallel.
+ */
+public class ParameterResolvers {
+  private final List<ParameterResolver> resolvers;
+  private final MigrationContext context;
+  private final Map<ChangeSetParameter, ParameterResolver> resolverByParameter = new HashMap<>();
+  private final Map<List<Object>, Object> resolved = new HashMap<>();
+
+  public ParameterResolvers(List<ParameterResolver> resolvers, MigrationContext context) {
+    this.resolvers = new ArrayList<>(resolvers);
+    this.context = context;
+  }
+
+  /**
+   * @param changeSet changeset being executed
+   * @return arguments of the changeset method, in the order of its parameters
+   * @throws MongobeeChangeSetException if no resolver supports a parameter
+   * @throws MongobeeException if a resolver fails
+   */
+  public Object[] resolve(ChangeSetDescriptor changeSet) throws MongobeeException {
+    return resolve(changeSet, new ChangeSetContext(context, changeSet));
+  }
+
+  /**
+   * @param changeSet changeset being executed
+   * @param changeSetContext execution of the changeset
+   * @return arguments of the changeset method, in the order of its parameters
+   * @throws MongobeeChangeSetException if no resolver supports a parameter
+   * @throws MongobeeException if a resolver fails
+   */
+  public Object[] resolve(ChangeSetDescriptor changeSet, ChangeSetContext changeSetContext)
+      throws MongobeeException {
+    List<ChangeSetParameter> parameters = changeSet.getParameters();
+    Object[] arguments = new Object[parameters.size()];
+    for (int i = 0; i < arguments.length; i++) {
+      arguments[i] = resolve(parameters.get(i), changeSetContext);
+    }
+    return arguments;
+  }
+
+  /**
+   * @param parameter parameter of a changeset method
+   * @param changeSetContext execution of the changeset
+   * @return value of the argument, shared within the migration if the resolver gives it a cache key
+   * @throws MongobeeChangeSetException if no resolver supports the parameter
+   * @throws MongobeeException if the resolver fails
+   */
+  public Object resolve(ChangeSetParameter parameter, ChangeSetContext changeSetContext) throws MongobeeException {
+    ParameterResolver resolver = findResolver(parameter);
+    Object cacheKey = resolver.getCacheKey(parameter);
+    if (cacheKey == null) {
+      return resolver.resolve(parameter, changeSetContext);
+    }
+    List<Object> key = Arrays.asList(resolver, cacheKey);
+    synchronized (resolved) {
+      if (resolved.containsKey(key)) {
+        return resolved.get(key);
+      }
+      Object value = resolver.resolve(parameter, changeSetContext);
+      resolved.put(key, value);
+      return value;
+    }
+  }
+
+  private ParameterResolver findResolver(ChangeSetParameter parameter) throws MongobeeChangeSetException {
+    synchronized (resolverByParameter) {
+      ParameterResolver resolver = resolverByParameter.get(parameter);
+      if (resolver != null) {
+        return resolver;
+      }
+      for (ParameterResolver candidate : resolvers) {
+        if (candidate.supports(parameter)) {
+          resolverByParameter.put(parameter, candidate);
+          return candidate;
+        }
+      }
+    }
+    throw new MongobeeChangeSetException("No parameter resolver supports argument type "
+        + parameter.getType().getName());
+  }
+
+  public MigrationContext getContext() {
+    return context;
+  }
+}
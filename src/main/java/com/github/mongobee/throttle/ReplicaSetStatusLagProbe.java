@@ -0,0 +1,62 @@
+package com.github.mongobee.throttle;
+
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+
+/**
+ * Replication lag of the slowest secondary, from <tt>replSetGetStatus</tt>. Reports no lag on servers which are not
+ * part of a replica set or if the command is not permitted.
+ */
+public class ReplicaSetStatusLagProbe implements ReplicationLagProbe {
+  private static final Logger logger = LoggerFactory.getLogger(ReplicaSetStatusLagProbe.class);
+  private static final String PRIMARY = "PRIMARY";
+  private static final String SECONDARY = "SECONDARY";
+
+  private final MongoClient mongoClient;
+  private volatile boolean unavailable;
+
+  public ReplicaSetStatusLagProbe(MongoClient mongoClient) {
+    this.mongoClient = mongoClient;
+  }
+
+  @Override
+  public long getReplicationLagMillis() {
+    if (unavailable) {
+      return 0;
+    }
+    Document status;
+    try {
+      status = mongoClient.getDatabase("admin").runCommand(new Document("replSetGetStatus", 1));
+    } catch (MongoException e) {
+      logger.info("Replication lag can not be measured, not throttling by lag: " + e.getMessage());
+      unavailable = true;
+      return 0;
+    }
+
+    Date primaryOptime = null;
+    Date oldestSecondaryOptime = null;
+    @SuppressWarnings("unchecked")
+    List<Document> members = (List<Document>) status.get("members");
+    for (Document member : members) {
+      Date optime = member.getDate("optimeDate");
+      if (PRIMARY.equals(member.getString("stateStr"))) {
+        primaryOptime = optime;
+      } else if (SECONDARY.equals(member.getString("stateStr"))
+          && (oldestSecondaryOptime == null || optime.before(oldestSecondaryOptime))) {
+        oldestSecondaryOptime = optime;
+      }
+    }
+    if (primaryOptime == null || oldestSecondaryOptime == null) {
+      return 0;
+    }
+    return Math.max(0, primaryOptime.getTime() - oldestSecondaryOptime.getTime());
+  }
+
+}
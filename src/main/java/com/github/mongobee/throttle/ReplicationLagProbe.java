@@ -0,0 +1,15 @@
+package com.github.mongobee.throttle;
+
+/**
+ * Measures how far secondaries are behind the primary
+ *
+ * @see ReplicaSetStatusLagProbe
+ */
+public interface ReplicationLagProbe {
+
+  /**
+   * @return replication lag in milliseconds, 0 if it is not known
+   */
+  long getReplicationLagMillis();
+
+}
@@ -0,0 +1,107 @@
+package com.github.mongobee.throttle;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.github.mongobee.exception.MongobeeException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * {@link MongoDatabase} whose collections pass writes through a {@link WriteThrottle}. Reads are not throttled.
+ * A write which cannot be sent within the maximum replication wait fails with a {@link MongoException} caused by
+ * the {@link MongobeeException} of the throttle.
+ */
+public final class ThrottledMongoDatabase {
+  private static final Set<String> SINGLE_DOCUMENT_WRITES = new HashSet<>(Arrays.asList(
+      "insertOne", "updateOne", "replaceOne", "deleteOne",
+      "findOneAndUpdate", "findOneAndReplace", "findOneAndDelete"));
+  private static final Set<String> MULTI_DOCUMENT_WRITES = new HashSet<>(Arrays.asList(
+      "insertMany", "bulkWrite", "updateMany", "deleteMany"));
+
+  private ThrottledMongoDatabase() {
+  }
+
+  /**
+   * @param db database to wrap
+   * @param throttle throttle of writes
+   * @return database throttling writes of its collections
+   */
+  public static MongoDatabase wrap(MongoDatabase db, WriteThrottle throttle) {
+    return (MongoDatabase) proxy(MongoDatabase.class, db, throttle);
+  }
+
+  private static Object proxy(Class<?> type, final Object target, final WriteThrottle throttle) {
+    return Proxy.newProxyInstance(ThrottledMongoDatabase.class.getClassLoader(), new Class<?>[]{type},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            boolean write = target instanceof MongoCollection
+                && (SINGLE_DOCUMENT_WRITES.contains(method.getName()) || MULTI_DOCUMENT_WRITES.contains(method.getName()));
+            long start = 0;
+            if (write) {
+              acquire(throttle, method, args);
+              start = System.nanoTime();
+            }
+            try {
+              result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+              throw e.getTargetException();
+            }
+            if (write) {
+              throttle.recordLatency(System.nanoTime() - start);
+              if (MULTI_DOCUMENT_WRITES.contains(method.getName())) {
+                chargeAfterWrite(throttle, result);
+              }
+            }
+            // collections and databases derived from a throttled one are throttled as well
+            if (result instanceof MongoCollection && method.getReturnType().equals(MongoCollection.class)) {
+              return proxy(MongoCollection.class, result, throttle);
+            } else if (result instanceof MongoDatabase && method.getReturnType().equals(MongoDatabase.class)) {
+              return proxy(MongoDatabase.class, result, throttle);
+            }
+            return result;
+          }
+        });
+  }
+
+  private static void acquire(WriteThrottle throttle, Method method, Object[] args) {
+    long documents;
+    if (SINGLE_DOCUMENT_WRITES.contains(method.getName())) {
+      documents = 1;
+    } else if (args != null && args.length > 0 && args[0] instanceof Collection) {
+      documents = ((Collection<?>) args[0]).size();
+    } else {
+      documents = 0; // updateMany and deleteMany, charged once the result is known
+    }
+    try {
+      throttle.acquire(1, documents);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MongoInterruptedException("Interrupted while throttling writes", e);
+    } catch (MongobeeException e) {
+      throw new MongoException(e.getMessage(), e);
+    }
+  }
+
+  private static void chargeAfterWrite(WriteThrottle throttle, Object result) {
+    if (result instanceof UpdateResult && ((UpdateResult) result).wasAcknowledged()
+        && ((UpdateResult) result).isModifiedCountAvailable()) {
+      throttle.charge(((UpdateResult) result).getModifiedCount());
+    } else if (result instanceof DeleteResult && ((DeleteResult) result).wasAcknowledged()) {
+      throttle.charge(((DeleteResult) result).getDeletedCount());
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+package com.github.mongobee.throttle;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Permits refilled at a fixed rate, with a burst of at most one second of permits. Permits taken beyond
+ * the available ones are owed and delay later callers, so writes of unknown size can be charged after the fact.
+ */
+class TokenBucket {
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final double ratePerSecond;
+  private double tokens;
+  private long lastRefillNanos = System.nanoTime();
+
+  TokenBucket(double ratePerSecond) {
+    this.ratePerSecond = ratePerSecond;
+    this.tokens = ratePerSecond;
+  }
+
+  /**
+   * Takes permits, waiting until they are refilled
+   *
+   * @param permits number of permits
+   * @param rateFactor fraction of the rate currently allowed, 1 for the full rate
+   * @throws InterruptedException if interrupted while waiting
+   */
+  void acquire(long permits, double rateFactor) throws InterruptedException {
+    long waitNanos = reserve(permits, rateFactor);
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  /**
+   * Takes permits without waiting, later callers wait for them instead
+   *
+   * @param permits number of permits
+   * @param rateFactor fraction of the rate currently allowed, 1 for the full rate
+   */
+  synchronized void charge(long permits, double rateFactor) {
+    refill(rateFactor);
+    tokens -= permits;
+  }
+
+  /**
+   * @return nanoseconds until the reserved permits are refilled
+   */
+  synchronized long reserve(long permits, double rateFactor) {
+    refill(rateFactor);
+    tokens -= permits;
+    return tokens >= 0 ? 0 : (long) (-tokens / (ratePerSecond * rateFactor) * NANOS_PER_SECOND);
+  }
+
+  private void refill(double rateFactor) {
+    long now = System.nanoTime();
+    double rate = ratePerSecond * rateFactor;
+    tokens = Math.min(Math.max(rate, 1), tokens + (now - lastRefillNanos) / NANOS_PER_SECOND * rate);
+    lastRefillNanos = now;
+  }
+
+}
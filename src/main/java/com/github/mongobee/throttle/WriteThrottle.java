@@ -0,0 +1,197 @@
+package com.github.mongobee.throttle;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.mongobee.exception.MongobeeException;
+
+/**
+ * Limits the write rate of throttled changesets (see {@link com.github.mongobee.changeset.ChangeSet#throttled()}),
+ * so a data migration does not saturate the primary while it serves live traffic:
+ * <ul>
+ * <li>token buckets on write operations and written documents per second,</li>
+ * <li>adaptive mode, which lowers the allowed rate while write latency is above a threshold and raises it again
+ * once writes are fast - without rate limits it pauses between writes instead,</li>
+ * <li>a pluggable {@link ReplicationLagProbe}, writes wait while secondaries lag behind more than allowed, up to
+ * a maximum wait after which the write fails.</li>
+ * </ul>
+ * Safe to use by changesets running in parallel.
+ */
+public class WriteThrottle {
+  private static final Logger logger = LoggerFactory.getLogger(WriteThrottle.class);
+  private static final double MIN_RATE_FACTOR = 0.05;
+  private static final double RATE_FACTOR_DECREASE = 0.5;
+  private static final double RATE_FACTOR_INCREASE = 0.05;
+  private static final long DEFAULT_LAG_PROBE_INTERVAL_MILLIS = 1000L;
+  private static final long DEFAULT_MAX_REPLICATION_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private TokenBucket operations;
+  private TokenBucket documents;
+  private long latencyThresholdNanos;
+  private volatile double rateFactor = 1.0;
+  private volatile long lastLatencyNanos;
+
+  private ReplicationLagProbe lagProbe;
+  private long maxLagMillis;
+  private long lagProbeIntervalMillis = DEFAULT_LAG_PROBE_INTERVAL_MILLIS;
+  private long maxReplicationWaitMillis = DEFAULT_MAX_REPLICATION_WAIT_MILLIS;
+  private long lastLagProbeNanos;
+
+  /**
+   * @param maxOperationsPerSecond write operations per second, a bulk write or insertMany counts as one
+   * @return WriteThrottle object for fluent interface
+   */
+  public WriteThrottle setMaxOperationsPerSecond(double maxOperationsPerSecond) {
+    this.operations = new TokenBucket(maxOperationsPerSecond);
+    return this;
+  }
+
+  /**
+   * @param maxDocumentsPerSecond written documents per second
+   * @return WriteThrottle object for fluent interface
+   */
+  public WriteThrottle setMaxDocumentsPerSecond(double maxDocumentsPerSecond) {
+    this.documents = new TokenBucket(maxDocumentsPerSecond);
+    return this;
+  }
+
+  /**
+   * Enables adaptive mode: each write slower than the threshold halves the allowed rate, down to 5% of it,
+   * each faster write raises it by 5% of the configured rate.
+   *
+   * @param latencyThreshold write latency above which writes are slowed down, 0 to disable adaptive mode
+   * @param unit unit of the threshold
+   * @return WriteThrottle object for fluent interface
+   */
+  public WriteThrottle setLatencyThreshold(long latencyThreshold, TimeUnit unit) {
+    this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+    return this;
+  }
+
+  /**
+   * @param lagProbe probe of the replication lag, null to ignore replication lag
+   * @param maxLag lag above which writes wait for secondaries to catch up
+   * @param unit unit of the lag
+   * @return WriteThrottle object for fluent interface
+   */
+  public WriteThrottle setReplicationLagProbe(ReplicationLagProbe lagProbe, long maxLag, TimeUnit unit) {
+    this.lagProbe = lagProbe;
+    this.maxLagMillis = unit.toMillis(maxLag);
+    return this;
+  }
+
+  /**
+   * @param lagProbeInterval time between two probes of the replication lag, 1 second by default
+   * @param unit unit of the interval
+   * @return WriteThrottle object for fluent interface
+   */
+  public WriteThrottle setLagProbeInterval(long lagProbeInterval, TimeUnit unit) {
+    this.lagProbeIntervalMillis = unit.toMillis(lagProbeInterval);
+    return this;
+  }
+
+  /**
+   * @param maxReplicationWait time a write waits for secondaries to catch up before it fails, 10 minutes by default
+   * @param unit unit of the wait
+   * @return WriteThrottle object for fluent interface
+   */
+  public WriteThrottle setMaxReplicationWait(long maxReplicationWait, TimeUnit unit) {
+    this.maxReplicationWaitMillis = unit.toMillis(maxReplicationWait);
+    return this;
+  }
+
+  /**
+   * Waits until a write may be sent
+   *
+   * @param operationCount number of write operations
+   * @param documentCount number of documents written, if known before the write
+   * @throws InterruptedException if interrupted while waiting
+   * @throws MongobeeException if the replication lag stays above the maximum for longer than the maximum wait
+   */
+  public void acquire(int operationCount, long documentCount) throws InterruptedException, MongobeeException {
+    awaitReplication();
+    double factor = rateFactor;
+    if (operations != null) {
+      operations.acquire(operationCount, factor);
+    }
+    if (documents != null && documentCount > 0) {
+      documents.acquire(documentCount, factor);
+    }
+    if (operations == null && documents == null && factor < 1.0) {
+      // no rate to lower, keep writes busy for the allowed fraction of time instead
+      TimeUnit.NANOSECONDS.sleep((long) (lastLatencyNanos * (1.0 - factor) / factor));
+    }
+  }
+
+  /**
+   * Counts documents of a write whose size was known only after it completed, e.g. updateMany.
+   * The following writes wait for them.
+   *
+   * @param documentCount number of written documents
+   */
+  public void charge(long documentCount) {
+    if (documents != null && documentCount > 0) {
+      documents.charge(documentCount, rateFactor);
+    }
+  }
+
+  /**
+   * @param latencyNanos duration of a completed write
+   */
+  public synchronized void recordLatency(long latencyNanos) {
+    lastLatencyNanos = latencyNanos;
+    if (latencyThresholdNanos <= 0) {
+      return;
+    }
+    if (latencyNanos > latencyThresholdNanos) {
+      double lowered = Math.max(MIN_RATE_FACTOR, rateFactor * RATE_FACTOR_DECREASE);
+      if (lowered < rateFactor) {
+        logger.debug("Write latency " + TimeUnit.NANOSECONDS.toMillis(latencyNanos) + " ms above threshold, "
+            + "throttling writes to " + Math.round(lowered * 100) + "% of the rate");
+      }
+      rateFactor = lowered;
+    } else if (rateFactor < 1.0) {
+      rateFactor = Math.min(1.0, rateFactor + RATE_FACTOR_INCREASE);
+    }
+  }
+
+  /**
+   * @return fraction of the configured rate currently allowed by adaptive mode
+   */
+  public double getRateFactor() {
+    return rateFactor;
+  }
+
+  /**
+   * Probes and waits without holding the monitor, so other writers and latency updates are not blocked by a wait
+   */
+  private void awaitReplication() throws InterruptedException, MongobeeException {
+    if (lagProbe == null || !isLagProbeDue()) {
+      return;
+    }
+    long start = System.nanoTime();
+    long lag;
+    while ((lag = lagProbe.getReplicationLagMillis()) > maxLagMillis) {
+      long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      if (waitedMillis >= maxReplicationWaitMillis) {
+        throw new MongobeeException("Replication lag " + lag + " ms still above " + maxLagMillis + " ms after waiting "
+            + waitedMillis + " ms for secondaries");
+      }
+      logger.info("Replication lag " + lag + " ms above " + maxLagMillis + " ms, waiting for secondaries");
+      Thread.sleep(Math.min(lagProbeIntervalMillis, maxReplicationWaitMillis - waitedMillis));
+    }
+    recordLagProbe();
+  }
+
+  private synchronized boolean isLagProbeDue() {
+    return lastLagProbeNanos == 0
+        || System.nanoTime() - lastLagProbeNanos >= TimeUnit.MILLISECONDS.toNanos(lagProbeIntervalMillis);
+  }
+
+  private synchronized void recordLagProbe() {
+    lastLagProbeNanos = System.nanoTime();
+  }
+
+}
@@ -0,0 +1,288 @@
+package com.github.mongobee.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of {@link com.github.mongobee.changeset.ChangeLog} classes generated at compile time by
+ * the <tt>mongobee-processor</tt> annotation processor. A registry lists the changelogs of the classpath root
+ * (directory or jar) it is packaged in: if it lists changelogs of the scanned package, class files of that root are
+ * not scanned. Other roots, e.g. jars built without the processor, are still scanned.
+ *
+ * <p>The registry is a UTF-8 text file with one tab separated record per line:
+ * <pre>
+ *   changelog  className  canonicalName  order  profiles
+ *   changeset  className  methodName  id  author  order  runAlways  profiles
+ * </pre>
+ * where <tt>profiles</tt> is a comma separated list of Spring profiles (empty if not profiled). Backslash, tab,
+ * line breaks and commas within a value are escaped with a backslash. Lines starting with <tt>#</tt> are comments.</p>
+ */
+public class ChangeLogIndex {
+  public static final String INDEX_RESOURCE = "META-INF/mongobee/changelog.index";
+
+  private static final Charset INDEX_CHARSET = Charset.forName("UTF-8");
+  private static final String CHANGELOG_RECORD = "changelog";
+  private static final String CHANGESET_RECORD = "changeset";
+  private static final String FIELD_SEPARATOR = "\t";
+  private static final String PROFILE_SEPARATOR = ",";
+  private static final String COMMENT_PREFIX = "#";
+  private static final char ESCAPE = '\\';
+
+  private final List<ChangeLogMetadata> changeLogs;
+  private final Map<String, List<ChangeLogMetadata>> changeLogsByRoot;
+
+  public ChangeLogIndex(List<ChangeLogMetadata> changeLogs) {
+    this(changeLogs, Collections.<String, List<ChangeLogMetadata>>emptyMap());
+  }
+
+  /**
+   * @param changeLogs changelogs of the registries
+   * @param changeLogsByRoot changelogs by URL of the classpath root whose registry lists them,
+   *                         e.g. <tt>jar:file:/app.jar!/</tt>
+   */
+  public ChangeLogIndex(List<ChangeLogMetadata> changeLogs, Map<String, List<ChangeLogMetadata>> changeLogsByRoot) {
+    this.changeLogs = changeLogs;
+    this.changeLogsByRoot = changeLogsByRoot;
+  }
+
+  /**
+   * Reads and merges all registries visible to the class loader
+   *
+   * @param classLoader class loader used to find {@link #INDEX_RESOURCE} resources
+   * @return merged registry or null if no registry is present
+   * @throws IOException if a registry can not be read
+   */
+  public static ChangeLogIndex load(ClassLoader classLoader) throws IOException {
+    Enumeration<URL> resources = classLoader.getResources(INDEX_RESOURCE);
+    if (!resources.hasMoreElements()) {
+      return null;
+    }
+
+    Map<String, String[]> changeLogRecords = new LinkedHashMap<>();
+    Map<String, List<ChangeSetMetadata>> changeSets = new LinkedHashMap<>();
+    Map<String, List<String>> classNamesByRoot = new LinkedHashMap<>();
+    while (resources.hasMoreElements()) {
+      URL resource = resources.nextElement();
+      String url = resource.toString();
+      classNamesByRoot.put(url.substring(0, url.length() - INDEX_RESOURCE.length()),
+          read(resource, changeLogRecords, changeSets));
+    }
+
+    Map<String, ChangeLogMetadata> changeLogs = new LinkedHashMap<>();
+    for (Map.Entry<String, String[]> record : changeLogRecords.entrySet()) {
+      String[] fields = record.getValue();
+      List<ChangeSetMetadata> classChangeSets = changeSets.get(record.getKey());
+      changeLogs.put(record.getKey(), new ChangeLogMetadata(fields[1], fields[2], fields[3],
+          classChangeSets != null ? classChangeSets : new ArrayList<ChangeSetMetadata>(), profiles(fields[4])));
+    }
+    Map<String, List<ChangeLogMetadata>> changeLogsByRoot = new LinkedHashMap<>();
+    for (Map.Entry<String, List<String>> root : classNamesByRoot.entrySet()) {
+      List<ChangeLogMetadata> rootChangeLogs = new ArrayList<>();
+      for (String className : root.getValue()) {
+        rootChangeLogs.add(changeLogs.get(className));
+      }
+      changeLogsByRoot.put(root.getKey(), rootChangeLogs);
+    }
+    return new ChangeLogIndex(new ArrayList<>(changeLogs.values()), changeLogsByRoot);
+  }
+
+  /**
+   * Writes changelogs in the registry format
+   *
+   * @param changeLogs changelogs to write
+   * @param writer target of the registry
+   * @throws IOException if writing fails
+   */
+  public static void write(List<ChangeLogMetadata> changeLogs, Writer writer) throws IOException {
+    writer.write(COMMENT_PREFIX + " Generated by mongobee-processor, do not edit\n");
+    for (ChangeLogMetadata changeLog : changeLogs) {
+      writeRecord(writer, CHANGELOG_RECORD, changeLog.getClassName(), changeLog.getCanonicalName(),
+          changeLog.getOrder(), joinProfiles(changeLog.getProfiles()));
+      for (ChangeSetMetadata changeSet : changeLog.getChangeSets()) {
+        writeRecord(writer, CHANGESET_RECORD, changeLog.getClassName(), changeSet.getMethodName(), changeSet.getId(),
+            changeSet.getAuthor(), changeSet.getOrder(), String.valueOf(changeSet.isRunAlways()),
+            joinProfiles(changeSet.getProfiles()));
+      }
+    }
+  }
+
+  /**
+   * @param basePackage package of changelogs
+   * @return changelogs declared in the package or its subpackages
+   */
+  public List<ChangeLogMetadata> getChangeLogs(String basePackage) {
+    List<ChangeLogMetadata> found = new ArrayList<>();
+    for (ChangeLogMetadata changeLog : changeLogs) {
+      if (changeLog.isInPackage(basePackage)) {
+        found.add(changeLog);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * @param url URL of a class file
+   * @param basePackage scanned package
+   * @return true if the class file belongs to a classpath root whose registry lists changelogs of the package
+   */
+  public boolean isIndexed(String url, String basePackage) {
+    for (Map.Entry<String, List<ChangeLogMetadata>> root : changeLogsByRoot.entrySet()) {
+      if (url.startsWith(root.getKey())) {
+        for (ChangeLogMetadata changeLog : root.getValue()) {
+          if (changeLog.isInPackage(basePackage)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return class names of the changelogs listed in the resource
+   */
+  private static List<String> read(URL resource, Map<String, String[]> changeLogRecords,
+      Map<String, List<ChangeSetMetadata>> changeSets) throws IOException {
+    List<String> classNames = new ArrayList<>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), INDEX_CHARSET));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty() || line.startsWith(COMMENT_PREFIX)) {
+          continue;
+        }
+        String[] fields = line.split(FIELD_SEPARATOR, -1);
+        for (int i = 0; i < fields.length; i++) {
+          // profiles are unescaped once split
+          fields[i] = isProfilesField(fields, i) ? fields[i] : unescape(fields[i]);
+        }
+        if (CHANGELOG_RECORD.equals(fields[0]) && fields.length == 5) {
+          changeLogRecords.put(fields[1], fields);
+          classNames.add(fields[1]);
+        } else if (CHANGESET_RECORD.equals(fields[0]) && fields.length == 8) {
+          List<ChangeSetMetadata> classChangeSets = changeSets.get(fields[1]);
+          if (classChangeSets == null) {
+            classChangeSets = new ArrayList<>();
+            changeSets.put(fields[1], classChangeSets);
+          }
+          classChangeSets.add(new ChangeSetMetadata(fields[2], fields[3], fields[4], fields[5],
+              Boolean.parseBoolean(fields[6]), profiles(fields[7])));
+        } else {
+          throw new IOException("Malformed record in " + resource + ": " + line);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return classNames;
+  }
+
+  /**
+   * @param fields fields of the record, the last one being the joined and escaped profiles
+   */
+  private static void writeRecord(Writer writer, String... fields) throws IOException {
+    List<String> escaped = new ArrayList<>(fields.length);
+    for (int i = 0; i < fields.length - 1; i++) {
+      escaped.add(escape(fields[i]));
+    }
+    escaped.add(fields[fields.length - 1]);
+    writer.write(join(escaped, FIELD_SEPARATOR));
+    writer.write('\n');
+  }
+
+  private static boolean isProfilesField(String[] fields, int index) {
+    return index == fields.length - 1
+        && (CHANGELOG_RECORD.equals(fields[0]) && index == 4 || CHANGESET_RECORD.equals(fields[0]) && index == 7);
+  }
+
+  private static String joinProfiles(List<String> profiles) {
+    List<String> escaped = new ArrayList<>(profiles.size());
+    for (String profile : profiles) {
+      escaped.add(escape(profile));
+    }
+    return join(escaped, PROFILE_SEPARATOR);
+  }
+
+  private static String[] profiles(String field) {
+    if (field.isEmpty()) {
+      return new String[0];
+    }
+    List<String> profiles = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i < field.length(); i++) {
+      if (field.charAt(i) == ESCAPE) {
+        i++;
+      } else if (field.charAt(i) == PROFILE_SEPARATOR.charAt(0)) {
+        profiles.add(unescape(field.substring(start, i)));
+        start = i + 1;
+      }
+    }
+    profiles.add(unescape(field.substring(start)));
+    return profiles.toArray(new String[profiles.size()]);
+  }
+
+  private static String escape(String value) {
+    StringBuilder escaped = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\t':
+          escaped.append(ESCAPE).append('t');
+          break;
+        case '\n':
+          escaped.append(ESCAPE).append('n');
+          break;
+        case '\r':
+          escaped.append(ESCAPE).append('r');
+          break;
+        case ESCAPE:
+        case ',':
+          escaped.append(ESCAPE).append(c);
+          break;
+        default:
+          escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+
+  private static String unescape(String value) {
+    if (value.indexOf(ESCAPE) < 0) {
+      return value;
+    }
+    StringBuilder unescaped = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c != ESCAPE || i == value.length() - 1) {
+        unescaped.append(c);
+        continue;
+      }
+      char escaped = value.charAt(++i);
+      unescaped.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+    }
+    return unescaped.toString();
+  }
+
+  // kept free of Spring utilities, the annotation processor writes the registry without Spring on its path
+  private static String join(List<String> values, String separator) {
+    StringBuilder joined = new StringBuilder();
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        joined.append(separator);
+      }
+      joined.append(values.get(i));
+    }
+    return joined.toString();
+  }
+
+}
@@ -0,0 +1,72 @@
+package com.github.mongobee.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Attributes of a {@link com.github.mongobee.changeset.ChangeLog} class and its changesets, read without reflection
+ */
+public class ChangeLogMetadata {
+  private final String className;
+  private final String canonicalName;
+  private final String order;
+  private final List<String> profiles;
+  private final List<ChangeSetMetadata> changeSets;
+
+  public ChangeLogMetadata(String className, String canonicalName, String order, List<ChangeSetMetadata> changeSets,
+      String... profiles) {
+    this.className = className;
+    this.canonicalName = canonicalName;
+    this.order = order;
+    this.changeSets = Collections.unmodifiableList(changeSets);
+    this.profiles = Collections.unmodifiableList(Arrays.asList(profiles));
+  }
+
+  /**
+   * @return binary name of the class, as accepted by {@link ClassLoader#loadClass(String)}
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  public String getCanonicalName() {
+    return canonicalName;
+  }
+
+  public String getOrder() {
+    return order;
+  }
+
+  /**
+   * @return value used for sorting, 'order' or canonical class name if no 'order' is set
+   */
+  public String getSortKey() {
+    return hasText(order) ? order : canonicalName;
+  }
+
+  // kept free of Spring utilities, the annotation processor creates metadata without Spring on its path
+  private static boolean hasText(String value) {
+    return value != null && !value.trim().isEmpty();
+  }
+
+  /**
+   * @return values of the Spring {@code @Profile} annotation, empty if the class is not profiled
+   */
+  public List<String> getProfiles() {
+    return profiles;
+  }
+
+  public List<ChangeSetMetadata> getChangeSets() {
+    return changeSets;
+  }
+
+  public boolean isInPackage(String basePackage) {
+    return className.startsWith(basePackage + ".");
+  }
+
+  @Override
+  public String toString() {
+    return "[ChangeLog: class=" + className + ", order=" + order + "]";
+  }
+}
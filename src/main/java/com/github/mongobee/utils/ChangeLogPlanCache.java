@@ -0,0 +1,106 @@
+package com.github.mongobee.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Changelogs and changesets resolved by {@link ChangeService}, shared by all instances in the JVM - e.g. by the
+ * Mongobee beans of many Spring contexts of a test suite, or by repeated migrations. Plans are kept per class loader,
+ * scanned package and active profiles. Class loaders are referenced weakly and plans hold no classes, so a plan
+ * goes away with its class loader.
+ * <p>
+ * Classes of a loaded class loader do not change, but a class loader reading a directory may find new changelogs
+ * there; call {@link #invalidate()} in that case.
+ */
+public final class ChangeLogPlanCache {
+  private static final Map<ClassLoader, ConcurrentMap<List<String>, Plan>> PLANS = new WeakHashMap<>();
+
+  private ChangeLogPlanCache() {
+  }
+
+  /**
+   * @param classLoader class loader scanned for changelogs
+   * @param basePackage scanned package
+   * @param activeProfiles active Spring profiles
+   * @return plan shared by all change services with the same class loader, package and profiles
+   */
+  static Plan get(ClassLoader classLoader, String basePackage, List<String> activeProfiles) {
+    List<String> key = new ArrayList<>(activeProfiles.size() + 1);
+    key.addAll(activeProfiles);
+    Collections.sort(key);
+    key.add(0, basePackage);
+
+    ConcurrentMap<List<String>, Plan> plans;
+    synchronized (PLANS) {
+      plans = PLANS.get(classLoader);
+      if (plans == null) {
+        plans = new ConcurrentHashMap<>();
+        PLANS.put(classLoader, plans);
+      }
+    }
+    Plan plan = plans.get(key);
+    if (plan == null) {
+      Plan created = new Plan();
+      plan = plans.putIfAbsent(key, created);
+      if (plan == null) {
+        plan = created;
+      }
+    }
+    return plan;
+  }
+
+  /**
+   * Forgets all plans, the next migration scans the classpath again
+   */
+  public static void invalidate() {
+    synchronized (PLANS) {
+      PLANS.clear();
+    }
+  }
+
+  /**
+   * Forgets plans of a class loader
+   *
+   * @param classLoader class loader whose changelogs have changed
+   */
+  public static void invalidate(ClassLoader classLoader) {
+    synchronized (PLANS) {
+      PLANS.remove(classLoader);
+    }
+  }
+
+  /**
+   * Resolved changelogs and their changesets; holds metadata only, never classes
+   */
+  static final class Plan {
+    private volatile List<ChangeLogMetadata> changeLogs;
+    private final ConcurrentMap<ChangeLogMetadata, List<ChangeSetMetadata>> changeSets = new ConcurrentHashMap<>();
+
+    /**
+     * @return changelogs matching active profiles, sorted; null if not resolved yet
+     */
+    List<ChangeLogMetadata> getChangeLogs() {
+      return changeLogs;
+    }
+
+    void setChangeLogs(List<ChangeLogMetadata> changeLogs) {
+      this.changeLogs = Collections.unmodifiableList(new ArrayList<>(changeLogs));
+    }
+
+    /**
+     * @return changesets of a changelog matching active profiles, sorted; null if not resolved yet
+     */
+    List<ChangeSetMetadata> getChangeSets(ChangeLogMetadata changeLog) {
+      return changeSets.get(changeLog);
+    }
+
+    void setChangeSets(ChangeLogMetadata changeLog, List<ChangeSetMetadata> changeSets) {
+      this.changeSets.putIfAbsent(changeLog, Collections.unmodifiableList(changeSets));
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package com.github.mongobee.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+
+/**
+ * Finds {@link ChangeLog} classes of a package by reading class files with ASM. Classes are neither loaded
+ * nor initialized, class files are read in parallel.
+ */
+public class ChangeLogScanner {
+  private static final String CLASS_FILES_PATTERN = "/**/*.class";
+
+  private final PathMatchingResourcePatternResolver resourceResolver;
+  private final MetadataReaderFactory metadataReaderFactory;
+  private final int parallelism;
+
+  public ChangeLogScanner(ClassLoader classLoader) {
+    this(classLoader, Runtime.getRuntime().availableProcessors());
+  }
+
+  public ChangeLogScanner(ClassLoader classLoader, int parallelism) {
+    this.resourceResolver = new PathMatchingResourcePatternResolver(classLoader);
+    this.metadataReaderFactory = new SimpleMetadataReaderFactory(resourceResolver);
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * @param basePackage package to scan, including subpackages
+   * @return changelogs found in the package, unsorted and not filtered by profiles
+   * @throws IOException if the classpath or a class file can not be read
+   */
+  public List<ChangeLogMetadata> scan(String basePackage) throws IOException {
+    return scan(basePackage, null);
+  }
+
+  /**
+   * @param basePackage package to scan, including subpackages
+   * @param index registries whose classpath roots are not scanned if they list changelogs of the package,
+   *              null to scan all roots
+   * @return changelogs found in the package, unsorted and not filtered by profiles
+   * @throws IOException if the classpath or a class file can not be read
+   */
+  public List<ChangeLogMetadata> scan(String basePackage, ChangeLogIndex index) throws IOException {
+    Resource[] classFiles = resourceResolver.getResources(PathMatchingResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX
+        + org.springframework.util.ClassUtils.convertClassNameToResourcePath(basePackage) + CLASS_FILES_PATTERN);
+    if (index != null) {
+      List<Resource> unindexed = new ArrayList<>(classFiles.length);
+      for (Resource classFile : classFiles) {
+        if (!index.isIndexed(classFile.getURL().toString(), basePackage)) {
+          unindexed.add(classFile);
+        }
+      }
+      classFiles = unindexed.toArray(new Resource[unindexed.size()]);
+    }
+    if (classFiles.length == 0) {
+      return new ArrayList<>();
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, classFiles.length)));
+    try {
+      List<Future<ChangeLogMetadata>> results = new ArrayList<>(classFiles.length);
+      for (final Resource classFile : classFiles) {
+        results.add(executor.submit(new Callable<ChangeLogMetadata>() {
+          @Override
+          public ChangeLogMetadata call() throws IOException {
+            return read(classFile);
+          }
+        }));
+      }
+
+      List<ChangeLogMetadata> changeLogs = new ArrayList<>();
+      for (Future<ChangeLogMetadata> result : results) {
+        ChangeLogMetadata changeLog = result.get();
+        if (changeLog != null) {
+          changeLogs.add(changeLog);
+        }
+      }
+      return changeLogs;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while scanning package " + basePackage, e);
+    } catch (ExecutionException e) {
+      throw new IOException("Could not read class files of package " + basePackage, e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private ChangeLogMetadata read(Resource classFile) throws IOException {
+    AnnotationMetadata type = metadataReaderFactory.getMetadataReader(classFile).getAnnotationMetadata();
+    if (!type.hasAnnotation(ChangeLog.class.getName())) {
+      return null;
+    }
+
+    List<ChangeSetMetadata> changeSets = new ArrayList<>();
+    for (MethodMetadata method : type.getAnnotatedMethods(ChangeSet.class.getName())) {
+      Map<String, Object> changeSet = method.getAnnotationAttributes(ChangeSet.class.getName());
+      Object runAlways = changeSet.get("runAlways");
+      changeSets.add(new ChangeSetMetadata(method.getMethodName(),
+          (String) changeSet.get("id"),
+          (String) changeSet.get("author"),
+          (String) changeSet.get("order"),
+          runAlways != null && (Boolean) runAlways,
+          profiles(method.getAnnotationAttributes(Profile.class.getName()))));
+    }
+
+    Map<String, Object> changeLog = type.getAnnotationAttributes(ChangeLog.class.getName());
+    Object order = changeLog.get("order");
+    return new ChangeLogMetadata(type.getClassName(),
+        type.getClassName().replace('$', '.'),
+        order != null ? (String) order : "",
+        changeSets,
+        profiles(type.getAnnotationAttributes(Profile.class.getName())));
+  }
+
+  private static String[] profiles(Map<String, Object> profile) {
+    return profile != null ? (String[]) profile.get("value") : new String[0];
+  }
+
+}
@@ -1,22 +1,25 @@
 package com.github.mongobee.utils;
 
 import com.github.mongobee.changeset.ChangeEntry;
-import com.github.mongobee.changeset.ChangeLog;
 import com.github.mongobee.changeset.ChangeSet;
 import com.github.mongobee.exception.MongobeeChangeSetException;
-import org.reflections.Reflections;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
 
+import java.io.IOException;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static java.util.Arrays.asList;
 
@@ -27,10 +30,39 @@ import static java.util.Arrays.asList;
  * @since 27/07/2014
  */
 public class ChangeService {
+  private static final Logger logger = LoggerFactory.getLogger(ChangeService.class);
   private static final String DEFAULT_PROFILE = "default";
+  private static final boolean PROFILE_ANNOTATION_PRESENT =
+      ClassUtils.isPresent("org.springframework.context.annotation.Profile", null);
+  private static final Comparator<ChangeSetMetadata> CHANGE_SET_METADATA_ORDER = new Comparator<ChangeSetMetadata>() {
+    @Override
+    public int compare(ChangeSetMetadata o1, ChangeSetMetadata o2) {
+      return o1.getOrder().compareTo(o2.getOrder());
+    }
+  };
+  private static final Comparator<ChangeSetDescriptor> CHANGE_SET_DESCRIPTOR_ORDER =
+      new Comparator<ChangeSetDescriptor>() {
+        @Override
+        public int compare(ChangeSetDescriptor o1, ChangeSetDescriptor o2) {
+          return o1.getOrder().compareTo(o2.getOrder());
+        }
+      };
+
+  // descriptors of a changelog class by sorted active profiles, stored with the class so they share its lifetime
+  private static final ClassValue<ConcurrentMap<List<String>, List<ChangeSetDescriptor>>> CHANGE_SET_DESCRIPTORS =
+      new ClassValue<ConcurrentMap<List<String>, List<ChangeSetDescriptor>>>() {
+        @Override
+        protected ConcurrentMap<List<String>, List<ChangeSetDescriptor>> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
 
   private final String changeLogsBasePackage;
   private final List<String> activeProfiles;
+  private final List<String> sortedActiveProfiles;
+  private final ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+  // changelogs and changesets are resolved once per JVM, every later migration and stage reads these lists
+  private final ChangeLogPlanCache.Plan plan;
 
   public ChangeService(String changeLogsBasePackage) {
     this(changeLogsBasePackage, null);
@@ -44,59 +76,170 @@ public class ChangeService {
     } else {
       this.activeProfiles = asList(DEFAULT_PROFILE);
     }
+    List<String> sortedProfiles = new ArrayList<>(activeProfiles);
+    Collections.sort(sortedProfiles);
+    this.sortedActiveProfiles = Collections.unmodifiableList(sortedProfiles);
+    this.plan = ChangeLogPlanCache.get(classLoader, changeLogsBasePackage, sortedActiveProfiles);
   }
 
   public List<Class<?>> fetchChangeLogs(){
-    Reflections reflections = new Reflections(changeLogsBasePackage);
-    Set<Class<?>> changeLogs = reflections.getTypesAnnotatedWith(ChangeLog.class); // TODO remove dependency, do own method
-    List<Class<?>> filteredChangeLogs = (List<Class<?>>) filterByActiveProfiles(changeLogs);
+    List<ChangeLogMetadata> changeLogs = fetchChangeLogMetadata();
+    List<Class<?>> classes = new ArrayList<>(changeLogs.size());
+    for (ChangeLogMetadata changeLog : changeLogs) {
+      classes.add(loadChangeLog(changeLog));
+    }
+    return classes;
+  }
 
-    Collections.sort(filteredChangeLogs, new ChangeLogComparator());
+  /**
+   * Reads changelogs of the scanned package without loading their classes. Changelogs of classpath roots whose
+   * registry generated by the annotation processor lists the package are taken from it, other roots are scanned.
+   * The result is kept in the {@link ChangeLogPlanCache}, later calls of any change service with the same class loader,
+   * package and profiles do not scan again.
+   *
+   * @return changelogs matching active profiles, sorted
+   * @see ChangeLogIndex
+   * @see ChangeLogScanner
+   */
+  public List<ChangeLogMetadata> fetchChangeLogMetadata() {
+    List<ChangeLogMetadata> cached = plan.getChangeLogs();
+    if (cached != null) {
+      return new ArrayList<>(cached);
+    }
+    ChangeLogIndex index = loadIndex();
+    List<ChangeLogMetadata> changeLogs = new ArrayList<>();
+    Set<String> classNames = new HashSet<>();
+    if (index != null) {
+      for (ChangeLogMetadata changeLog : index.getChangeLogs(changeLogsBasePackage)) {
+        if (classNames.add(changeLog.getClassName())) {
+          changeLogs.add(changeLog);
+        }
+      }
+    }
+    try {
+      // roots without a registry of the package, e.g. jars built without the annotation processor, are scanned
+      for (ChangeLogMetadata changeLog : new ChangeLogScanner(classLoader).scan(changeLogsBasePackage, index)) {
+        if (classNames.add(changeLog.getClassName())) {
+          changeLogs.add(changeLog);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not scan package " + changeLogsBasePackage + " for changelogs", e);
+    }
 
+    List<ChangeLogMetadata> filteredChangeLogs = new ArrayList<>();
+    for (ChangeLogMetadata changeLog : changeLogs) {
+      if (matchesActiveProfiles(changeLog.getProfiles())) {
+        filteredChangeLogs.add(changeLog);
+      }
+    }
+    Collections.sort(filteredChangeLogs, new Comparator<ChangeLogMetadata>() {
+      @Override
+      public int compare(ChangeLogMetadata o1, ChangeLogMetadata o2) {
+        return o1.getSortKey().compareTo(o2.getSortKey());
+      }
+    });
+    plan.setChangeLogs(filteredChangeLogs);
     return filteredChangeLogs;
   }
 
-  public List<Method> fetchChangeSets(final Class<?> type) throws MongobeeChangeSetException {
-    final List<Method> changeSets = filterChangeSetAnnotation(asList(type.getDeclaredMethods()));
-    final List<Method> filteredChangeSets = (List<Method>) filterByActiveProfiles(changeSets);
-
-    Collections.sort(filteredChangeSets, new ChangeSetComparator());
-
-    return filteredChangeSets;
+  /**
+   * Changesets of a changelog read without loading its class
+   *
+   * @param changeLog changelog metadata
+   * @return changesets matching active profiles, sorted by 'order'
+   * @throws MongobeeChangeSetException if changeset ids are duplicated
+   */
+  public List<ChangeSetMetadata> fetchChangeSets(ChangeLogMetadata changeLog) throws MongobeeChangeSetException {
+    List<ChangeSetMetadata> cached = plan.getChangeSets(changeLog);
+    if (cached != null) {
+      return cached;
+    }
+    final Set<String> changeSetIds = new HashSet<>();
+    final List<ChangeSetMetadata> filteredChangeSets = new ArrayList<>();
+    for (ChangeSetMetadata changeSet : changeLog.getChangeSets()) {
+      if (!changeSetIds.add(changeSet.getId())) {
+        throw new MongobeeChangeSetException(String.format("Duplicated changeset id found: '%s'", changeSet.getId()));
+      }
+      if (matchesActiveProfiles(changeSet.getProfiles())) {
+        filteredChangeSets.add(changeSet);
+      }
+    }
+    Collections.sort(filteredChangeSets, CHANGE_SET_METADATA_ORDER);
+    plan.setChangeSets(changeLog, filteredChangeSets);
+    return plan.getChangeSets(changeLog);
   }
 
-  public boolean isRunAlwaysChangeSet(Method changesetMethod){
-    if (changesetMethod.isAnnotationPresent(ChangeSet.class)){
-      ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
-      return annotation.runAlways();
-    } else {
-      return false;
+  public Class<?> loadChangeLog(ChangeLogMetadata changeLog) {
+    try {
+      return Class.forName(changeLog.getClassName(), false, classLoader);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Changelog " + changeLog.getClassName() + " could not be loaded", e);
     }
   }
 
-  public ChangeEntry createChangeEntry(Method changesetMethod){
-    if (changesetMethod.isAnnotationPresent(ChangeSet.class)){
-      ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
-  
-      return new ChangeEntry(
-          annotation.id(),
-          annotation.author(),
-          new Date(),
-          changesetMethod.getDeclaringClass().getName(),
-          changesetMethod.getName());
-    } else {
+  /**
+   * @return registries generated by the annotation processor, null if there are none or they can not be read
+   */
+  private ChangeLogIndex loadIndex() {
+    try {
+      return ChangeLogIndex.load(classLoader);
+    } catch (IOException e) {
+      logger.warn("Changelog index could not be read, falling back to classpath scanning: " + e.getMessage());
       return null;
     }
   }
 
+  /**
+   * Changesets of a loaded changelog class. The annotations are read on the first call for the class and active
+   * profiles only, later calls of any change service return the same list.
+   *
+   * @param type changelog class
+   * @return immutable descriptors of the changesets matching active profiles, sorted by 'order'
+   * @throws MongobeeChangeSetException if changeset ids are duplicated
+   */
+  public List<ChangeSetDescriptor> fetchChangeSetDescriptors(Class<?> type) throws MongobeeChangeSetException {
+    ConcurrentMap<List<String>, List<ChangeSetDescriptor>> changeSetDescriptors = CHANGE_SET_DESCRIPTORS.get(type);
+    List<ChangeSetDescriptor> cached = changeSetDescriptors.get(sortedActiveProfiles);
+    if (cached != null) {
+      return cached;
+    }
+    List<Method> changeSetMethods = filterChangeSetAnnotation(asList(type.getDeclaredMethods()));
+    List<ChangeSetDescriptor> descriptors = new ArrayList<>(changeSetMethods.size());
+    for (Method method : changeSetMethods) {
+      if (matchesActiveSpringProfile(method)) {
+        descriptors.add(ChangeSetDescriptor.of(method));
+      }
+    }
+    Collections.sort(descriptors, CHANGE_SET_DESCRIPTOR_ORDER);
+    List<ChangeSetDescriptor> changeSets = Collections.unmodifiableList(descriptors);
+    cached = changeSetDescriptors.putIfAbsent(sortedActiveProfiles, changeSets);
+    return cached != null ? cached : changeSets;
+  }
+
+  public ChangeEntry createChangeEntry(ChangeLogMetadata changeLog, ChangeSetMetadata changeSet){
+    return new ChangeEntry(
+        changeSet.getId(),
+        changeSet.getAuthor(),
+        new Date(),
+        changeLog.getClassName(),
+        changeSet.getMethodName());
+  }
+
   private boolean matchesActiveSpringProfile(AnnotatedElement element) {
-    if (!ClassUtils.isPresent("org.springframework.context.annotation.Profile", null)) {
+    if (!PROFILE_ANNOTATION_PRESENT) {
       return true;
     }
     if (!element.isAnnotationPresent(Profile.class)) {
       return true; // no-profiled changeset always matches
     }
-    List<String> profiles = asList(element.getAnnotation(Profile.class).value());
+    return matchesActiveProfiles(asList(element.getAnnotation(Profile.class).value()));
+  }
+
+  private boolean matchesActiveProfiles(List<String> profiles) {
+    if (profiles.isEmpty()) {
+      return true; // metadata of a no-profiled element
+    }
     for (String profile : profiles) {
       if (profile != null && profile.length() > 0 && profile.charAt(0) == '!') {
         if (!activeProfiles.contains(profile.substring(1))) {
@@ -109,16 +252,6 @@ public class ChangeService {
     return false;
   }
 
-  private List<?> filterByActiveProfiles(Collection<? extends AnnotatedElement> annotated) {
-    List<AnnotatedElement> filtered = new ArrayList<>();
-    for (AnnotatedElement element : annotated) {
-      if (matchesActiveSpringProfile(element)){
-        filtered.add( element);
-      }
-    }
-    return filtered;
-  }
-
   private List<Method> filterChangeSetAnnotation(List<Method> allMethods) throws MongobeeChangeSetException {
     final Set<String> changeSetIds = new HashSet<>();
     final List<Method> changesetMethods = new ArrayList<>();
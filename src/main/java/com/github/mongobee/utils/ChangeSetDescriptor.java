@@ -0,0 +1,196 @@
+package com.github.mongobee.utils;
+
+import static java.util.Arrays.asList;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.github.mongobee.changeset.ChangeEntry;
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+import com.github.mongobee.changeset.Checkpoint;
+import com.github.mongobee.resolver.ChangeSetParameter;
+
+/**
+ * Immutable attributes of a {@link ChangeSet} method of a loaded changelog class, read from the annotations once.
+ * Executing a changeset only reads its descriptor, so descriptors can be shared by migrations.
+ *
+ * @see ChangeService#fetchChangeSetDescriptors(Class)
+ */
+public final class ChangeSetDescriptor {
+  private final Method method;
+  private final List<Class<?>> parameterTypes;
+  private final Class<?>[] wrappedParameterTypes;
+  private final MethodHandle methodHandle;
+  private volatile MethodHandle invocationHandle;
+  private final String changeLogClassName;
+  private final String id;
+  private final String author;
+  private final String order;
+  private final boolean runAlways;
+  private final boolean deferred;
+  private final boolean throttled;
+  private final boolean checkpointed;
+  private final String group;
+  private final List<String> dependsOn;
+  private final List<ChangeSetParameter> parameters;
+
+  private ChangeSetDescriptor(Method method, ChangeLog changeLog, ChangeSet changeSet) {
+    this.method = method;
+    this.parameterTypes = Collections.unmodifiableList(Arrays.<Class<?>>asList(method.getParameterTypes()));
+    this.wrappedParameterTypes = MethodType.methodType(void.class, method.getParameterTypes()).wrap().parameterArray();
+    this.methodHandle = unreflect(method);
+    this.changeLogClassName = method.getDeclaringClass().getName();
+    this.id = changeSet.id();
+    this.author = changeSet.author();
+    this.order = changeSet.order();
+    this.runAlways = changeSet.runAlways();
+    this.deferred = changeSet.deferred();
+    this.throttled = changeSet.throttled();
+    this.checkpointed = parameterTypes.contains(Checkpoint.class);
+
+    String changeLogGroup = changeLog != null ? changeLog.group() : "";
+    this.group = changeSet.group().isEmpty() ? changeLogGroup : changeSet.group();
+    List<String> dependencies = new ArrayList<>();
+    if (changeLog != null) {
+      dependencies.addAll(asList(changeLog.dependsOn()));
+    }
+    dependencies.addAll(asList(changeSet.dependsOn()));
+    this.dependsOn = Collections.unmodifiableList(dependencies);
+    this.parameters = ChangeSetParameter.of(this);
+  }
+
+  /**
+   * @param method method annotated with {@link ChangeSet}
+   * @return descriptor of the changeset
+   */
+  public static ChangeSetDescriptor of(Method method) {
+    return new ChangeSetDescriptor(method, method.getDeclaringClass().getAnnotation(ChangeLog.class),
+        method.getAnnotation(ChangeSet.class));
+  }
+
+  private static MethodHandle unreflect(Method method) {
+    try {
+      return MethodHandles.publicLookup().unreflect(method);
+    } catch (IllegalAccessException e) {
+      return null; // reported when the changeset is invoked
+    }
+  }
+
+  public Method getMethod() {
+    return method;
+  }
+
+  public List<Class<?>> getParameterTypes() {
+    return parameterTypes;
+  }
+
+  /**
+   * @return parameters of the changeset method, with their annotations
+   */
+  public List<ChangeSetParameter> getParameters() {
+    return parameters;
+  }
+
+  /**
+   * @return handle of the changeset method, not bound to a changelog instance; null if the method is not accessible
+   */
+  public MethodHandle getMethodHandle() {
+    return methodHandle;
+  }
+
+  /**
+   * @return handle taking the changelog instance and an array of the arguments, built on the first call and
+   * shared by all invocations of the changeset
+   * @throws IllegalAccessException if the method is not accessible
+   * @see ChangeSetInvoker#create(ChangeSetDescriptor, Object)
+   */
+  MethodHandle getInvocationHandle() throws IllegalAccessException {
+    MethodHandle handle = invocationHandle;
+    if (handle == null) {
+      MethodHandle unbound = methodHandle != null ? methodHandle : MethodHandles.publicLookup().unreflect(method);
+      handle = ChangeSetInvoker.spread(unbound, parameterTypes.size());
+      invocationHandle = handle;
+    }
+    return handle;
+  }
+
+  /**
+   * @return parameter types with primitives replaced by their wrappers, not to be modified
+   */
+  Class<?>[] getWrappedParameterTypes() {
+    return wrappedParameterTypes;
+  }
+
+  public String getChangeLogClassName() {
+    return changeLogClassName;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getAuthor() {
+    return author;
+  }
+
+  /**
+   * @return 'order' of the changeset, the sort key within its changelog
+   */
+  public String getOrder() {
+    return order;
+  }
+
+  public boolean isRunAlways() {
+    return runAlways;
+  }
+
+  public boolean isDeferred() {
+    return deferred;
+  }
+
+  public boolean isThrottled() {
+    return throttled;
+  }
+
+  /**
+   * @return true if the changeset method takes a {@link Checkpoint}
+   */
+  public boolean isCheckpointed() {
+    return checkpointed;
+  }
+
+  /**
+   * @return group of the changeset, or of its changelog if the changeset has none; empty if neither has one
+   */
+  public String getGroup() {
+    return group;
+  }
+
+  /**
+   * @return ids of changesets to complete first, listed by the changelog and the changeset
+   */
+  public List<String> getDependsOn() {
+    return dependsOn;
+  }
+
+  /**
+   * @return new changelog entry of the changeset, timestamped now
+   */
+  public ChangeEntry createChangeEntry() {
+    return new ChangeEntry(id, author, new Date(), changeLogClassName, method.getName());
+  }
+
+  @Override
+  public String toString() {
+    return "[ChangeSet: id=" + id + ", author=" + author + ", changeLogClass=" + changeLogClassName
+        + ", changeSetMethod=" + method.getName() + "]";
+  }
+}
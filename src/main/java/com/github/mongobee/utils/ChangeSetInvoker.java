@@ -0,0 +1,85 @@
+package com.github.mongobee.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * {@link com.github.mongobee.changeset.ChangeSet} method of a changelog instance, invoked through a method handle
+ * that takes the instance and an array of the arguments. The handle of a changeset is built once and kept by its
+ * {@link ChangeSetDescriptor}, an invoker only pairs it with the changelog instance.
+ */
+public class ChangeSetInvoker {
+  private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+  private final ChangeSetDescriptor changeSet;
+  private final MethodHandle handle;
+  private final Object changeLogInstance;
+
+  private ChangeSetInvoker(ChangeSetDescriptor changeSet, MethodHandle handle, Object changeLogInstance) {
+    this.changeSet = changeSet;
+    this.handle = handle;
+    this.changeLogInstance = changeLogInstance;
+  }
+
+  /**
+   * @param changeSet changeset, its handle is reused instead of reflecting on the method again
+   * @param changeLogInstance instance of the changelog declaring the method
+   * @return invoker of the method, see {@link #invoke(Object...)}
+   * @throws IllegalAccessException if the method is not accessible
+   */
+  public static ChangeSetInvoker create(ChangeSetDescriptor changeSet, Object changeLogInstance)
+      throws IllegalAccessException {
+    return new ChangeSetInvoker(changeSet, changeSet.getInvocationHandle(), changeLogInstance);
+  }
+
+  /**
+   * @param handle unbound handle of a changeset method
+   * @param parameterCount number of method parameters
+   * @return handle taking the changelog instance and an array of the arguments
+   */
+  static MethodHandle spread(MethodHandle handle, int parameterCount) {
+    return handle.asSpreader(Object[].class, parameterCount).asType(INVOKER_TYPE);
+  }
+
+  /**
+   * @param values arguments, in the order of method parameters
+   * @return value returned by the changeset method, null for void methods
+   * @throws InvocationTargetException wrapping anything thrown by the changeset method
+   * @throws IllegalArgumentException if the arguments do not match the method parameters
+   */
+  public Object invoke(Object... values) throws InvocationTargetException {
+    // checked up front, so a ClassCastException of the invocation can only come from the changeset method
+    checkArguments(values);
+    try {
+      return (Object) handle.invokeExact(changeLogInstance, values);
+    } catch (WrongMethodTypeException e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new InvocationTargetException(e);
+    }
+  }
+
+  private void checkArguments(Object[] values) {
+    Class<?>[] parameterTypes = changeSet.getWrappedParameterTypes();
+    if (values.length != parameterTypes.length) {
+      throw new IllegalArgumentException("ChangeSet method " + changeSet.getMethod().getName() + " takes "
+          + parameterTypes.length + " arguments, " + values.length + " given");
+    }
+    for (int i = 0; i < values.length; i++) {
+      boolean primitive = changeSet.getParameterTypes().get(i).isPrimitive();
+      if (values[i] == null ? primitive : !parameterTypes[i].isInstance(values[i])) {
+        throw new IllegalArgumentException("Argument " + i + " of ChangeSet method " + changeSet.getMethod().getName()
+            + " is " + (values[i] == null ? "null" : values[i].getClass().getName()) + ", "
+            + parameterTypes[i].getName() + " expected");
+      }
+    }
+  }
+
+  public Method getMethod() {
+    return changeSet.getMethod();
+  }
+
+}
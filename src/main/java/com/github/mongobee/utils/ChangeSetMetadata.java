@@ -0,0 +1,59 @@
+package com.github.mongobee.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Attributes of a {@link com.github.mongobee.changeset.ChangeSet} method, read without reflection
+ */
+public class ChangeSetMetadata {
+  private final String methodName;
+  private final String id;
+  private final String author;
+  private final String order;
+  private final boolean runAlways;
+  private final List<String> profiles;
+
+  public ChangeSetMetadata(String methodName, String id, String author, String order, boolean runAlways,
+      String... profiles) {
+    this.methodName = methodName;
+    this.id = id;
+    this.author = author;
+    this.order = order;
+    this.runAlways = runAlways;
+    this.profiles = Collections.unmodifiableList(Arrays.asList(profiles));
+  }
+
+  public String getMethodName() {
+    return methodName;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getAuthor() {
+    return author;
+  }
+
+  public String getOrder() {
+    return order;
+  }
+
+  public boolean isRunAlways() {
+    return runAlways;
+  }
+
+  /**
+   * @return values of the Spring {@code @Profile} annotation, empty if the method is not profiled
+   */
+  public List<String> getProfiles() {
+    return profiles;
+  }
+
+  @Override
+  public String toString() {
+    return "[ChangeSet: id=" + id + ", author=" + author + ", changeSetMethod=" + methodName + "]";
+  }
+}
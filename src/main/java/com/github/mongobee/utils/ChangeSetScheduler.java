@@ -0,0 +1,371 @@
+package com.github.mongobee.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.mongobee.changeset.ChangeSet;
+import com.github.mongobee.exception.MongobeeChangeSetException;
+import com.github.mongobee.exception.MongobeeException;
+
+/**
+ * Runs changesets as a dependency graph on a bounded pool. Dependencies follow from the execution order,
+ * {@link ChangeSet#group()} and {@link ChangeSet#dependsOn()}:
+ * <ul>
+ * <li>a changeset without a group depends on all previous changesets,</li>
+ * <li>a grouped changeset depends on the previous changeset of its group and the previous changeset without a group,</li>
+ * <li>each changeset depends on the changesets listed in its dependsOn.</li>
+ * </ul>
+ * An id in dependsOn refers to the changesets of that id by the same author, or to the changesets of that id if
+ * only one author uses it. Without groups the changesets run one after another, in order. After a failure no more
+ * changesets are started. A changeset which was passed over passes over the changesets which list it in their
+ * dependsOn, directly or through other changesets.
+ */
+public class ChangeSetScheduler {
+  private static final Logger logger = LoggerFactory.getLogger(ChangeSetScheduler.class);
+
+  /**
+   * Work of a single changeset
+   */
+  public interface Task {
+    /**
+     * @return false if the changeset was passed over
+     */
+    boolean run() throws MongobeeException;
+  }
+
+  /**
+   * Changeset in the graph
+   */
+  public static class Node {
+    private final String id;
+    private final String author;
+    private final String group;
+    private final List<String> dependsOn;
+    private final Task task;
+
+    /**
+     * @param id changeset id, referenced by dependsOn of other changesets
+     * @param author changeset author, an id in dependsOn refers to the changesets of the same author first
+     * @param group group of the changeset, empty if it has none
+     * @param dependsOn ids of changesets which have to complete first
+     * @param task work of the changeset
+     */
+    public Node(String id, String author, String group, List<String> dependsOn, Task task) {
+      this.id = id;
+      this.author = author;
+      this.group = group != null ? group : "";
+      this.dependsOn = dependsOn;
+      this.task = task;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getAuthor() {
+      return author;
+    }
+
+    public String getGroup() {
+      return group;
+    }
+
+    public List<String> getDependsOn() {
+      return dependsOn;
+    }
+  }
+
+  private final int parallelism;
+
+  public ChangeSetScheduler(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * @param nodes changesets in execution order
+   * @return changesets listed in the dependsOn of each changeset, as indexes of the list
+   * @throws MongobeeChangeSetException if an id in dependsOn is not part of the migration or is used by several
+   * authors, none of them the author of the changeset
+   */
+  public static List<Set<Integer>> resolveDependsOn(List<Node> nodes) throws MongobeeChangeSetException {
+    Map<String, List<Integer>> indexesById = new HashMap<>();
+    for (int i = 0; i < nodes.size(); i++) {
+      List<Integer> indexes = indexesById.get(nodes.get(i).getId());
+      if (indexes == null) {
+        indexes = new ArrayList<>();
+        indexesById.put(nodes.get(i).getId(), indexes);
+      }
+      indexes.add(i);
+    }
+
+    List<Set<Integer>> dependsOn = new ArrayList<>(nodes.size());
+    for (Node node : nodes) {
+      Set<Integer> nodeDependsOn = new LinkedHashSet<>();
+      for (String dependency : node.getDependsOn()) {
+        List<Integer> indexes = indexesById.get(dependency);
+        if (indexes == null) {
+          throw new MongobeeChangeSetException("ChangeSet " + node.getId() + " depends on " + dependency
+              + " which is not part of the migration");
+        }
+        nodeDependsOn.addAll(resolve(nodes, node, dependency, indexes));
+      }
+      dependsOn.add(nodeDependsOn);
+    }
+    return dependsOn;
+  }
+
+  private static List<Integer> resolve(List<Node> nodes, Node node, String dependency, List<Integer> indexes)
+      throws MongobeeChangeSetException {
+    List<Integer> ofSameAuthor = new ArrayList<>();
+    Set<String> authors = new LinkedHashSet<>();
+    for (int index : indexes) {
+      String author = nodes.get(index).getAuthor();
+      authors.add(author);
+      if (author != null && author.equals(node.getAuthor())) {
+        ofSameAuthor.add(index);
+      }
+    }
+    if (!ofSameAuthor.isEmpty()) {
+      return ofSameAuthor;
+    }
+    if (authors.size() > 1) {
+      throw new MongobeeChangeSetException("ChangeSet " + node.getId() + " depends on " + dependency
+          + " which is ambiguous, changesets of the authors " + authors + " use this id");
+    }
+    return indexes;
+  }
+
+  /**
+   * @param nodes changesets in execution order
+   * @return dependencies of each changeset, as indexes of the list
+   * @throws MongobeeChangeSetException if the dependencies contain a cycle or cannot be resolved, see
+   * {@link #resolveDependsOn(List)}
+   */
+  public static List<Set<Integer>> buildGraph(List<Node> nodes) throws MongobeeChangeSetException {
+    return buildGraph(nodes, resolveDependsOn(nodes));
+  }
+
+  private static List<Set<Integer>> buildGraph(List<Node> nodes, List<Set<Integer>> dependsOn)
+      throws MongobeeChangeSetException {
+    List<Set<Integer>> dependencies = new ArrayList<>(nodes.size());
+    Map<String, Integer> lastOfGroup = new HashMap<>();
+    int lastUngrouped = -1;
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      Set<Integer> nodeDependencies = new LinkedHashSet<>();
+      if (node.getGroup().isEmpty()) {
+        for (int previous = Math.max(lastUngrouped, 0); previous < i; previous++) {
+          nodeDependencies.add(previous);
+        }
+        lastUngrouped = i;
+      } else {
+        if (lastUngrouped >= 0) {
+          nodeDependencies.add(lastUngrouped);
+        }
+        Integer previousOfGroup = lastOfGroup.put(node.getGroup(), i);
+        if (previousOfGroup != null) {
+          nodeDependencies.add(previousOfGroup);
+        }
+      }
+      nodeDependencies.addAll(dependsOn.get(i));
+      nodeDependencies.remove(i);
+      dependencies.add(nodeDependencies);
+    }
+
+    verifyAcyclic(nodes, dependencies);
+    return dependencies;
+  }
+
+  private static void verifyAcyclic(List<Node> nodes, List<Set<Integer>> dependencies)
+      throws MongobeeChangeSetException {
+    int[] remaining = new int[nodes.size()];
+    List<List<Integer>> dependents = dependents(dependencies);
+    List<Integer> ready = new ArrayList<>();
+    for (int i = 0; i < nodes.size(); i++) {
+      remaining[i] = dependencies.get(i).size();
+      if (remaining[i] == 0) {
+        ready.add(i);
+      }
+    }
+    int visited = 0;
+    while (!ready.isEmpty()) {
+      int node = ready.remove(ready.size() - 1);
+      visited++;
+      for (int dependent : dependents.get(node)) {
+        if (--remaining[dependent] == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+    if (visited < nodes.size()) {
+      List<String> cycle = new ArrayList<>();
+      for (int i = 0; i < nodes.size(); i++) {
+        if (remaining[i] > 0) {
+          cycle.add(nodes.get(i).getId());
+        }
+      }
+      throw new MongobeeChangeSetException("ChangeSet dependencies contain a cycle between " + cycle);
+    }
+  }
+
+  private static List<List<Integer>> dependents(List<Set<Integer>> dependencies) {
+    List<List<Integer>> dependents = new ArrayList<>(dependencies.size());
+    for (int i = 0; i < dependencies.size(); i++) {
+      dependents.add(new ArrayList<Integer>());
+    }
+    for (int i = 0; i < dependencies.size(); i++) {
+      for (int dependency : dependencies.get(i)) {
+        dependents.get(dependency).add(i);
+      }
+    }
+    return dependents;
+  }
+
+  /**
+   * Runs changesets once their dependencies are completed, up to parallelism at a time
+   *
+   * @param nodes changesets in execution order
+   * @return false if a changeset was passed over
+   * @throws MongobeeException the first failure of a changeset, or if the dependencies contain a cycle or cannot
+   * be resolved
+   */
+  public boolean execute(List<Node> nodes) throws MongobeeException {
+    List<Set<Integer>> dependsOn = resolveDependsOn(nodes);
+    List<Set<Integer>> dependencies = buildGraph(nodes, dependsOn);
+    List<List<Integer>> dependents = dependents(dependencies);
+    int[] remaining = new int[nodes.size()];
+    boolean[] passedOver = new boolean[nodes.size()];
+    List<Integer> ready = new ArrayList<>();
+
+    final AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        return new Thread(runnable, "mongobee-changeset-" + threadCount.incrementAndGet());
+      }
+    });
+    CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+    int running = 0;
+    MongobeeException failure = null;
+    try {
+      for (int i = 0; i < nodes.size(); i++) {
+        remaining[i] = dependencies.get(i).size();
+        if (remaining[i] == 0) {
+          ready.add(i);
+        }
+      }
+      running += start(completion, nodes, ready, dependsOn, dependents, remaining, passedOver);
+
+      while (running > 0) {
+        int completed;
+        try {
+          completed = completion.take().get();
+        } catch (ExecutionException e) {
+          running--;
+          if (failure == null) {
+            failure = asMongobeeException(e.getCause());
+          }
+          continue;
+        }
+        running--;
+        if (failure != null) {
+          continue;
+        }
+        if (completed < 0) {
+          completed = -completed - 1;
+          passedOver[completed] = true;
+        }
+        release(completed, dependents, remaining, ready);
+        running += start(completion, nodes, ready, dependsOn, dependents, remaining, passedOver);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MongobeeException("Interrupted while executing changesets", e);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+    for (boolean nodePassedOver : passedOver) {
+      if (nodePassedOver) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void release(int completed, List<List<Integer>> dependents, int[] remaining, List<Integer> ready) {
+    for (int dependent : dependents.get(completed)) {
+      if (--remaining[dependent] == 0) {
+        ready.add(dependent);
+      }
+    }
+  }
+
+  /**
+   * Submits the ready changesets, a changeset depending on a passed over changeset is passed over without running
+   *
+   * @return number of submitted changesets
+   */
+  private static int start(CompletionService<Integer> completion, List<Node> nodes, List<Integer> ready,
+      List<Set<Integer>> dependsOn, List<List<Integer>> dependents, int[] remaining, boolean[] passedOver) {
+    int submitted = 0;
+    while (!ready.isEmpty()) {
+      int index = ready.remove(0);
+      Integer passedOverDependency = null;
+      for (int dependency : dependsOn.get(index)) {
+        if (passedOver[dependency]) {
+          passedOverDependency = dependency;
+          break;
+        }
+      }
+      if (passedOverDependency == null) {
+        submit(completion, nodes.get(index), index);
+        submitted++;
+      } else {
+        logger.warn("ChangeSet " + nodes.get(index).getId() + " passed over, it depends on "
+            + nodes.get(passedOverDependency).getId() + " which was passed over");
+        passedOver[index] = true;
+        release(index, dependents, remaining, ready);
+      }
+    }
+    return submitted;
+  }
+
+  /**
+   * The task of a submitted changeset returns its index, or <tt>-index - 1</tt> if it was passed over
+   */
+  private static void submit(CompletionService<Integer> completion, final Node node, final int index) {
+    completion.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() throws MongobeeException {
+        return node.task.run() ? index : -index - 1;
+      }
+    });
+  }
+
+  private static MongobeeException asMongobeeException(Throwable failure) {
+    if (failure instanceof MongobeeException) {
+      return (MongobeeException) failure;
+    }
+    return new MongobeeException(failure.getMessage(), failure);
+  }
+
+}
@@ -40,4 +40,24 @@ public class ClassUtils {
     }
   }
 
+  /**
+   * Return the default ClassLoader to use: typically the thread context
+   * ClassLoader, if available; the ClassLoader that loaded the ClassUtils
+   * class will be used as fallback.
+   * @return the default ClassLoader (never {@code null})
+   */
+  public static ClassLoader getDefaultClassLoader() {
+    ClassLoader classLoader = null;
+    try {
+      classLoader = Thread.currentThread().getContextClassLoader();
+    }
+    catch (Throwable ex) {
+      // Cannot access thread context ClassLoader - falling back...
+    }
+    if (classLoader == null) {
+      classLoader = ClassUtils.class.getClassLoader();
+    }
+    return classLoader;
+  }
+
 }
@@ -0,0 +1,30 @@
+package com.github.mongobee.utils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Name of the host running the migration, recorded with changelog entries and locks
+ */
+public final class LocalHost {
+  // resolved once, the lookup may take seconds on misconfigured hosts
+  private static final String NAME = resolveName();
+
+  private LocalHost() {
+  }
+
+  /**
+   * @return host name of this machine, "unknown" if it can not be resolved
+   */
+  public static String getName() {
+    return NAME;
+  }
+
+  private static String resolveName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return "unknown";
+    }
+  }
+}
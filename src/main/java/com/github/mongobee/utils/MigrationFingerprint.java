@@ -0,0 +1,58 @@
+package com.github.mongobee.utils;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import com.github.mongobee.exception.MongobeeChangeSetException;
+
+/**
+ * Fingerprint of a resolved migration plan: SHA-256 of the ids and authors of all changesets, in execution order.
+ * Equal fingerprints mean the same changesets would be executed in the same order.
+ */
+public final class MigrationFingerprint {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private MigrationFingerprint() {
+  }
+
+  /**
+   * @param service change service resolving changesets of a changelog
+   * @param changeLogs changelogs in execution order
+   * @return hex encoded fingerprint
+   * @throws MongobeeChangeSetException if changesets of a changelog can not be resolved
+   */
+  public static String of(ChangeService service, List<ChangeLogMetadata> changeLogs) throws MongobeeChangeSetException {
+    MessageDigest digest = sha256();
+    for (ChangeLogMetadata changeLog : changeLogs) {
+      for (ChangeSetMetadata changeSet : service.fetchChangeSets(changeLog)) {
+        digest.update(changeSet.getId().getBytes(UTF_8));
+        digest.update((byte) 0);
+        digest.update(changeSet.getAuthor().getBytes(UTF_8));
+        digest.update((byte) '\n');
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+      chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+    }
+    return new String(chars);
+  }
+
+}
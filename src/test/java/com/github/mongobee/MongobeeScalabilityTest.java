@@ -0,0 +1,156 @@
+package com.github.mongobee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.changeset.ChangeEntry;
+import com.github.mongobee.exception.MongobeeException;
+import com.github.mongobee.test.scalability.RoundTripCounter;
+import com.github.mongobee.test.scalability.SyntheticChangeLogGenerator;
+import com.github.mongobee.test.scalability.SyntheticChangeLogGenerator.GeneratedChangeLogs;
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+
+/**
+ * End-to-end runs over a large generated set of changelogs: a cold start on an empty database, a warm run with
+ * everything applied and a run with the newest changesets pending. Logs the wall time, bytes allocated by the
+ * migrating thread and database round trips of each run at INFO level, shown once an slf4j binding is on the
+ * test classpath.
+ * <p>
+ * Skipped unless enabled with <tt>-Dmongobee.scalability=true</tt>. Runs on Fongo, or on the server given by
+ * <tt>-Dmongobee.scalability.uri</tt>; the size is set by <tt>-Dmongobee.scalability.changeSets</tt> (default 5000),
+ * <tt>-Dmongobee.scalability.profileEvery</tt> and <tt>-Dmongobee.scalability.runAlwaysEvery</tt>.
+ */
+public class MongobeeScalabilityTest {
+  private static final Logger logger = LoggerFactory.getLogger(MongobeeScalabilityTest.class);
+  private static final String CHANGELOG_COLLECTION_NAME = "dbchangelog";
+  private static final String METADATA_COLLECTION_NAME = "mongobeemeta";
+  private static final int CHANGESETS_PER_CHANGELOG = 50;
+  private static final int PENDING_PERCENT = 10;
+
+  private static GeneratedChangeLogs changeLogs;
+
+  @BeforeClass
+  public static void generateChangeLogs() throws Exception {
+    assumeTrue(Boolean.getBoolean("mongobee.scalability"));
+    int changeSets = Integer.getInteger("mongobee.scalability.changeSets", 5000);
+    changeLogs = new SyntheticChangeLogGenerator()
+        .setChangeLogs((changeSets + CHANGESETS_PER_CHANGELOG - 1) / CHANGESETS_PER_CHANGELOG)
+        .setChangeSetsPerChangeLog(CHANGESETS_PER_CHANGELOG)
+        .setProfileEvery(Integer.getInteger("mongobee.scalability.profileEvery", 100))
+        .setRunAlwaysEvery(Integer.getInteger("mongobee.scalability.runAlwaysEvery", 0))
+        .generate("com.github.mongobee.test.scalability.generated");
+  }
+
+  @AfterClass
+  public static void removeChangeLogs() throws Exception {
+    if (changeLogs != null) {
+      changeLogs.close();
+    }
+  }
+
+  @Test
+  public void shouldScaleWithDefaultConfiguration() throws Exception {
+    runScenarios("mongobeescalabilitydefault", false);
+  }
+
+  @Test
+  public void shouldScaleWithPrefetchFingerprintAndBatchedEntries() throws Exception {
+    runScenarios("mongobeescalabilitytuned", true);
+  }
+
+  private void runScenarios(String dbName, boolean tuned) throws Exception {
+    RoundTripCounter roundTrips = new RoundTripCounter();
+    String uri = System.getProperty("mongobee.scalability.uri");
+    MongoClient mongoClient = uri != null ? roundTrips.connect(uri) : roundTrips.connect(new Fongo("scalability"));
+    try {
+      mongoClient.getDatabase(dbName).drop();
+      MongoCollection<Document> changelog = mongoClient.getDatabase(dbName).getCollection(CHANGELOG_COLLECTION_NAME);
+      List<String> active = changeLogs.getActiveChangeSetIds();
+      logger.info(String.format("Scalability of %d changesets on %s, %s configuration:", active.size(),
+          uri != null ? "server" : "Fongo", tuned ? "tuned" : "default"));
+
+      // when
+      run("cold start", mongoClient, dbName, tuned, roundTrips);
+
+      // then
+      assertEquals(active.size(), appliedChangeSets(changelog));
+
+      // when
+      run("warm no-op", mongoClient, dbName, tuned, roundTrips);
+
+      // then
+      assertEquals(active.size(), appliedChangeSets(changelog));
+
+      // given - a release adding the newest changesets
+      List<String> pending = active.subList(active.size() - active.size() * PENDING_PERCENT / 100, active.size());
+      changelog.deleteMany(new Document(ChangeEntry.KEY_CHANGEID, new Document("$in", pending)));
+      mongoClient.getDatabase(dbName).getCollection(METADATA_COLLECTION_NAME).drop();
+
+      // when
+      run("partially applied (" + pending.size() + " pending)", mongoClient, dbName, tuned, roundTrips);
+
+      // then
+      assertEquals(active.size(), appliedChangeSets(changelog));
+    } finally {
+      mongoClient.close();
+    }
+  }
+
+  private static void run(String scenario, MongoClient mongoClient, String dbName, boolean tuned,
+      RoundTripCounter roundTrips) throws MongobeeException {
+    Mongobee runner = new Mongobee(mongoClient)
+        .setDbName(dbName)
+        .setChangeLogsScanPackage(changeLogs.getPackageName());
+    if (tuned) {
+      runner.setPrefetchAppliedChanges(true)
+          .setMigrationFingerprintEnabled(true)
+          .setChangeEntryBatchSize(500);
+    }
+
+    // Mongobee scans and loads changelogs through the thread context class loader
+    Thread thread = Thread.currentThread();
+    ClassLoader previous = thread.getContextClassLoader();
+    thread.setContextClassLoader(changeLogs.getClassLoader());
+    long roundTripsBefore = roundTrips.get();
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    try {
+      runner.execute();
+    } finally {
+      thread.setContextClassLoader(previous);
+    }
+    long wallMillis = (System.nanoTime() - start) / 1000000L;
+    long allocatedKb = (allocatedBytes() - allocatedBefore) / 1024L;
+    logger.info(String.format("  %-40s %8d ms %12d KB allocated %8d round trips",
+        scenario, wallMillis, allocatedKb, roundTrips.get() - roundTripsBefore));
+  }
+
+  private static long appliedChangeSets(MongoCollection<Document> changelog) {
+    return changelog.distinct(ChangeEntry.KEY_CHANGEID, String.class).into(new ArrayList<String>()).size();
+  }
+
+  /**
+   * @return bytes allocated by the current thread, -1 if the JVM does not tell
+   */
+  private static long allocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1L;
+  }
+}
@@ -2,11 +2,25 @@ package com.github.mongobee;
 
 import com.github.fakemongo.Fongo;
 import com.github.mongobee.changeset.ChangeEntry;
+import com.github.mongobee.dao.AppliedChanges;
 import com.github.mongobee.dao.ChangeEntryDao;
 import com.github.mongobee.dao.ChangeEntryIndexDao;
+import com.github.mongobee.exception.MongobeeChangeSetException;
 import com.github.mongobee.exception.MongobeeConfigurationException;
+import com.github.mongobee.exception.MongobeeConnectionException;
 import com.github.mongobee.exception.MongobeeException;
+import com.github.mongobee.metrics.MigrationMetrics;
+import com.github.mongobee.test.bulk.BulkChangeLog;
+import com.github.mongobee.test.bulkcheckpoint.BulkCheckpointChangeLog;
 import com.github.mongobee.test.changelogs.MongobeeTestResource;
+import com.github.mongobee.test.checkpoint.CheckpointChangeLog;
+import com.github.mongobee.test.deferred.DeferredChangeLog;
+import com.github.mongobee.test.dependson.DeferredDependencyChangeLog;
+import com.github.mongobee.test.indexed.IndexedChangeLog;
+import com.github.mongobee.test.parallel.ParallelChangeLog;
+import com.github.mongobee.test.passedover.PassedOverDependencyChangeLog;
+import com.github.mongobee.utils.ChangeService;
+import com.github.mongobee.utils.MigrationFingerprint;
 import com.mongodb.DB;
 import com.mongodb.MongoClientURI;
 import com.mongodb.client.MongoDatabase;
@@ -16,17 +30,31 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.data.mongodb.core.MongoTemplate;
 
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -124,6 +152,492 @@ public class MongobeeTest {
     verify(dao, times(0)).save(any(ChangeEntry.class)); // no changesets saved to dbchangelog
   }
 
+  @Test
+  public void shouldPassOverPrefetchedChangeSetsWithoutQuery() throws Exception {
+    // given
+    ChangeEntry applied = new ChangeEntry("test1", "testuser", new Date(),
+        MongobeeTestResource.class.getName(), "testChangeSet");
+    AppliedChanges appliedChanges = new AppliedChanges();
+    appliedChanges.add(applied);
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.fetchAppliedChanges()).thenReturn(appliedChanges);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    runner.setPrefetchAppliedChanges(true);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao, times(1)).fetchAppliedChanges();
+    verify(dao, times(12)).isNewChange(any(ChangeEntry.class)); // only pending changesets are re-checked
+    verify(dao, times(12)).save(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldNotAcquireLockWhenNoChangeSetIsPending() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(IndexedChangeLog.class.getPackage().getName());
+    runner.setPrefetchAppliedChanges(true);
+    AppliedChanges appliedChanges = new AppliedChanges();
+    appliedChanges.add("Itest1", "testuser");
+    when(dao.fetchAppliedChanges()).thenReturn(appliedChanges);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao).fetchAppliedChanges();
+    verify(dao, never()).initializeCollections();
+    verify(dao, never()).acquireProcessLock();
+    verify(dao, never()).isNewChange(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldRevalidatePendingChangeSetsAfterAcquiringLock() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(IndexedChangeLog.class.getPackage().getName());
+    runner.setPrefetchAppliedChanges(true);
+    when(dao.fetchAppliedChanges()).thenReturn(new AppliedChanges());
+    when(dao.acquireProcessLock()).thenReturn(true);
+    // applied by another process between planning and acquiring the lock
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(false);
+
+    // when
+    runner.execute();
+
+    // then
+    InOrder inOrder = inOrder(dao);
+    inOrder.verify(dao).fetchAppliedChanges();
+    inOrder.verify(dao).acquireProcessLock();
+    inOrder.verify(dao).isNewChange(any(ChangeEntry.class));
+    verify(dao, never()).save(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldRecordMigrationFingerprintAfterCompleteRun() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    runner.setMigrationFingerprintEnabled(true);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao).initializeCollections();
+    verify(dao, times(13)).save(any(ChangeEntry.class));
+    verify(dao).saveMigrationFingerprint(fingerprintOf(MongobeeTestResource.class.getPackage().getName()));
+  }
+
+  @Test
+  public void shouldSkipUnchangedMigrationPlanWithoutLock() throws Exception {
+    // given
+    String scanPackage = IndexedChangeLog.class.getPackage().getName();
+    runner.setChangeLogsScanPackage(scanPackage);
+    runner.setMigrationFingerprintEnabled(true);
+    when(dao.findMigrationFingerprint()).thenReturn(fingerprintOf(scanPackage));
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao, never()).initializeCollections();
+    verify(dao, never()).acquireProcessLock();
+    verify(dao, never()).isNewChange(any(ChangeEntry.class));
+    verify(dao, never()).saveMigrationFingerprint(anyString());
+  }
+
+  @Test
+  public void shouldExecuteOnlyRunAlwaysChangeSetsOfUnchangedMigrationPlan() throws Exception {
+    // given
+    runner.setMigrationFingerprintEnabled(true);
+    when(dao.findMigrationFingerprint()).thenReturn(fingerprintOf(MongobeeTestResource.class.getPackage().getName()));
+    when(dao.acquireProcessLock()).thenReturn(true);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao).acquireProcessLock();
+    verify(dao, never()).isNewChange(any(ChangeEntry.class));
+    verify(dao, never()).save(any(ChangeEntry.class));
+    verify(dao, never()).saveMigrationFingerprint(anyString());
+    verify(dao).releaseProcessLock();
+  }
+
+  @Test
+  public void shouldRecordMigrationFingerprintAfterFlushingChangeEntries() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(ParallelChangeLog.class.getPackage().getName());
+    runner.setParallelism(4);
+    runner.setMigrationFingerprintEnabled(true);
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+
+    // when
+    runner.execute();
+
+    // then
+    InOrder inOrder = inOrder(dao);
+    inOrder.verify(dao, times(4)).save(any(ChangeEntry.class));
+    inOrder.verify(dao).flushChangeEntries();
+    inOrder.verify(dao).saveMigrationFingerprint(fingerprintOf(ParallelChangeLog.class.getPackage().getName()));
+    inOrder.verify(dao).releaseProcessLock();
+  }
+
+  @Test
+  public void shouldNotRecordMigrationFingerprintWhenChangeEntriesAreNotWritten() throws Exception {
+    // given
+    runner.setMigrationFingerprintEnabled(true);
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    doNothing().doNothing().doNothing().doNothing()
+        .doThrow(new MongobeeConnectionException("write failed", null)).when(dao).flushChangeEntries();
+
+    // when
+    try {
+      runner.execute();
+      fail("MongobeeConnectionException expected");
+    } catch (MongobeeConnectionException e) {
+      // then
+      verify(dao, never()).saveMigrationFingerprint(anyString());
+      verify(dao).releaseProcessLock();
+    }
+  }
+
+  @Test
+  public void shouldFlushChangeEntriesOfEachChangeLogAndBeforeReleasingLock() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao, times(5)).flushChangeEntries(); // one per changelog class and one before releasing the lock
+    InOrder inOrder = inOrder(dao);
+    inOrder.verify(dao, times(13)).save(any(ChangeEntry.class));
+    inOrder.verify(dao, times(2)).flushChangeEntries(); // end of the last changelog class and end of migration
+    inOrder.verify(dao).releaseProcessLock();
+  }
+
+  @Test
+  public void shouldExecuteChangeSetGraphInParallel() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(ParallelChangeLog.class.getPackage().getName());
+    runner.setParallelism(4);
+    ParallelChangeLog.EXECUTED.clear();
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao, times(4)).save(any(ChangeEntry.class));
+    List<String> executed = ParallelChangeLog.EXECUTED;
+    assertEquals(4, executed.size());
+    assertTrue(executed.indexOf("Ptest1") < executed.indexOf("Ptest3"));
+    assertEquals("Ptest4", executed.get(3));
+  }
+
+  @Test
+  public void shouldPassOverDependentsOfPassedOverChangeSetInParallel() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(PassedOverDependencyChangeLog.class.getPackage().getName());
+    runner.setParallelism(4);
+    PassedOverDependencyChangeLog.EXECUTED.clear();
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+
+    // when
+    MigrationResult result = runner.execute(null);
+
+    // then
+    assertFalse(result.isCompleted());
+    assertEquals(Collections.singletonList("POtest3"), PassedOverDependencyChangeLog.EXECUTED);
+    verify(dao, times(1)).save(any(ChangeEntry.class));
+    verify(dao, never()).saveMigrationFingerprint(anyString());
+  }
+
+  @Test
+  public void shouldExecuteDeferredChangeSetsAfterReleasingLock() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(DeferredChangeLog.class.getPackage().getName());
+    final List<Runnable> workers = new ArrayList<>();
+    runner.setDeferredExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        workers.add(command);
+      }
+    });
+    DeferredChangeLog.EXECUTED.clear();
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.acquireDeferredLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(Collections.singletonList("Dtest1"), DeferredChangeLog.EXECUTED);
+    assertTrue(runner.isReady());
+    assertFalse(runner.getDeferredExecution().isDone());
+    verify(dao).releaseProcessLock();
+    verify(dao, never()).acquireDeferredLock();
+
+    // when
+    assertEquals(1, workers.size());
+    workers.get(0).run();
+
+    // then
+    runner.getDeferredExecution().get(1, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList("Dtest1", "Dtest2"), DeferredChangeLog.EXECUTED);
+    verify(dao, times(2)).save(any(ChangeEntry.class));
+    verify(dao).releaseDeferredLock();
+  }
+
+  @Test
+  public void shouldNotExecuteDeferredChangeSetsAppliedByAnotherProcess() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(DeferredChangeLog.class.getPackage().getName());
+    DeferredChangeLog.EXECUTED.clear();
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.acquireDeferredLock()).thenReturn(false);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true, true, false);
+
+    // when
+    runner.execute();
+    runner.getDeferredExecution().get(5, TimeUnit.SECONDS);
+
+    // then
+    assertEquals(Collections.singletonList("Dtest1"), DeferredChangeLog.EXECUTED);
+    verify(dao, never()).releaseDeferredLock();
+  }
+
+  @Test
+  public void shouldPassOverAppliedDeferredChangeSets() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(DeferredChangeLog.class.getPackage().getName());
+    runner.setMigrationFingerprintEnabled(true);
+    final List<Runnable> workers = new ArrayList<>();
+    runner.setDeferredExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        workers.add(command);
+      }
+    });
+    DeferredChangeLog.EXECUTED.clear();
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true, false);
+
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(Collections.singletonList("Dtest1"), DeferredChangeLog.EXECUTED);
+    assertTrue(workers.isEmpty());
+    assertTrue(runner.getDeferredExecution().isDone());
+    verify(dao).saveMigrationFingerprint(fingerprintOf(DeferredChangeLog.class.getPackage().getName()));
+  }
+
+  @Test
+  public void shouldRejectDependencyOnDeferredChangeSetInParallel() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(DeferredDependencyChangeLog.class.getPackage().getName());
+    runner.setParallelism(4);
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+
+    // when
+    try {
+      runner.execute();
+      fail("MongobeeChangeSetException expected");
+    } catch (MongobeeChangeSetException e) {
+      // then
+      verify(dao, never()).save(any(ChangeEntry.class));
+      verify(dao).releaseProcessLock();
+    }
+  }
+
+  @Test
+  public void shouldFlushBulkWriterAfterChangeSet() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(BulkChangeLog.class.getPackage().getName());
+    runner.setBulkWriteLimits(4, Long.MAX_VALUE);
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+
+    // when
+    MigrationResult result = runner.execute(null);
+
+    // then
+    assertEquals(10, fakeMongoDatabase.getCollection(BulkChangeLog.COLLECTION_NAME).count());
+    assertEquals(3, result.getBulkWriteStats().getBulkWrites());
+    assertEquals(10, result.getBulkWriteStats().getInserted());
+
+    Document entry = fakeMongoDatabase.getCollection(CHANGELOG_COLLECTION_NAME)
+        .find(new Document(ChangeEntry.KEY_CHANGEID, "Btest1")).first();
+    assertEquals(10L, entry.get(ChangeEntry.KEY_DOCUMENTS_AFFECTED));
+    assertTrue(entry.get(ChangeEntry.KEY_DURATION_MILLIS) instanceof Long);
+    assertTrue(entry.getDate(ChangeEntry.KEY_STARTED_AT) != null);
+    assertTrue(entry.getString(ChangeEntry.KEY_HOST) != null);
+  }
+
+  @Test
+  public void shouldResumeChangeSetFromCheckpoint() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(CheckpointChangeLog.class.getPackage().getName());
+    CheckpointChangeLog.PROCESSED.clear();
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    when(dao.findCheckpoint(any(ChangeEntry.class))).thenReturn(new Document(ChangeEntry.KEY_RESUME_TOKEN, 5));
+
+    // when
+    runner.execute();
+
+    // then
+    assertEquals(Arrays.asList(6, 7, 8, 9), CheckpointChangeLog.PROCESSED);
+    verify(dao).saveCheckpoint(any(ChangeEntry.class), eq(8));
+    verify(dao).completeCheckpoint(any(ChangeEntry.class));
+    verify(dao, never()).save(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldFlushBulkWriterBeforeSavingCheckpoint() throws Exception {
+    // given
+    runner.setChangeLogsScanPackage(BulkCheckpointChangeLog.class.getPackage().getName());
+    runner.setBulkWriteLimits(100, Long.MAX_VALUE);
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    BulkCheckpointChangeLog.crash = true;
+
+    // when - the first execution crashes with writes after the last checkpoint pending
+    try {
+      runner.execute();
+      fail("MongobeeException expected");
+    } catch (MongobeeException e) {
+      // then
+      verify(dao).saveCheckpoint(any(ChangeEntry.class), eq(5));
+      assertEquals(6, fakeMongoDatabase.getCollection(BulkCheckpointChangeLog.COLLECTION_NAME).count());
+    } finally {
+      BulkCheckpointChangeLog.crash = false;
+    }
+
+    // when - the next execution resumes from the checkpoint
+    when(dao.findCheckpoint(any(ChangeEntry.class))).thenReturn(new Document(ChangeEntry.KEY_RESUME_TOKEN, 5));
+    runner.execute();
+
+    // then
+    assertEquals(10, fakeMongoDatabase.getCollection(BulkCheckpointChangeLog.COLLECTION_NAME).count());
+    verify(dao).completeCheckpoint(any(ChangeEntry.class));
+  }
+
+  @Test
+  public void shouldRecordMetricsOfMigrationPhases() throws Exception {
+    // given
+    MigrationMetrics metrics = mock(MigrationMetrics.class);
+    runner.setMetrics(metrics);
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(dao).setMetrics(metrics);
+    verify(metrics).recordScan(anyLong());
+    verify(metrics).recordConnect(anyLong());
+    verify(metrics).recordChangeSet(eq(MongobeeTestResource.class.getName()), eq("test1"),
+        eq(MigrationMetrics.APPLIED), anyLong());
+    verify(metrics, times(13)).recordChangeSet(anyString(), anyString(), eq(MigrationMetrics.APPLIED), anyLong());
+  }
+
+  @Test
+  public void shouldRecordMetricsOfChangeSetsPassedOverByPlan() throws Exception {
+    // given
+    MigrationMetrics metrics = mock(MigrationMetrics.class);
+    runner.setMetrics(metrics);
+    runner.setMigrationFingerprintEnabled(true);
+    when(dao.findMigrationFingerprint()).thenReturn(fingerprintOf(MongobeeTestResource.class.getPackage().getName()));
+    when(dao.acquireProcessLock()).thenReturn(true);
+
+    // when
+    runner.execute();
+
+    // then
+    verify(metrics).recordConnect(anyLong()); // connecting and initializing collections once
+    verify(metrics).recordChangeSet(eq(MongobeeTestResource.class.getName()), eq("test1"),
+        eq(MigrationMetrics.PASSED_OVER), anyLong());
+    verify(metrics, never()).recordChangeSet(anyString(), anyString(), eq(MigrationMetrics.APPLIED), anyLong());
+  }
+
+  @Test
+  public void shouldExecuteAsynchronouslyAndBecomeReady() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // when
+    try {
+      MigrationResult result = runner.executeAsync(executor).get(30, TimeUnit.SECONDS);
+
+      // then
+      assertEquals(MigrationResult.Status.EXECUTED, result.getStatus());
+      assertTrue(result.isCompleted());
+      assertTrue(runner.isReady());
+      assertTrue(runner.awaitReady(1, TimeUnit.SECONDS));
+      verify(dao, times(13)).save(any(ChangeEntry.class));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void shouldNotBeReadyWhenAsyncMigrationFails() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(true);
+    when(dao.isNewChange(any(ChangeEntry.class))).thenThrow(RuntimeException.class);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // when
+    try {
+      CompletableFuture<MigrationResult> result = runner.executeAsync(executor);
+
+      // then
+      assertFalse(runner.awaitReady(30, TimeUnit.SECONDS));
+      assertFalse(runner.isReady());
+      try {
+        result.get(30, TimeUnit.SECONDS);
+        fail("migration failure expected");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof RuntimeException);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void shouldReportLockNotAcquired() throws Exception {
+    // given
+    when(dao.acquireProcessLock()).thenReturn(false);
+
+    // when
+    MigrationResult result = runner.executeAsync(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    }).get();
+
+    // then
+    assertEquals(MigrationResult.Status.LOCK_NOT_ACQUIRED, result.getStatus());
+  }
+
   @Test
   public void shouldUsePreConfiguredMongoTemplate() throws Exception {
     MongoTemplate mt = mock(MongoTemplate.class);
@@ -214,8 +728,17 @@ public class MongobeeTest {
 
   }
 
+  private static String fingerprintOf(String scanPackage) throws MongobeeException {
+    ChangeService service = new ChangeService(scanPackage);
+    return MigrationFingerprint.of(service, service.fetchChangeLogMetadata());
+  }
+
   @After
   public void cleanUp() {
+    runner.setPrefetchAppliedChanges(false);
+    runner.setMigrationFingerprintEnabled(false);
+    runner.setParallelism(1);
+    runner.setDeferredExecutor(null);
     runner.setMongoTemplate(null);
     runner.setJongo(null);
     fakeDb.dropDatabase();
@@ -0,0 +1,100 @@
+package com.github.mongobee;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.changeset.ChangeEntry;
+import com.github.mongobee.exception.MongobeeConfigurationException;
+import com.github.mongobee.exception.MongobeeException;
+import com.github.mongobee.test.indexed.IndexedChangeLog;
+import com.mongodb.MongoClient;
+
+public class MultiDatabaseMongobeeTest {
+  private static final String CHANGELOG_COLLECTION_NAME = "dbchangelog";
+
+  @Test
+  public void shouldMigrateEachDatabaseAndReportFailures() throws Exception {
+    // given
+    MongoClient mongoClient = new Fongo("testServer").getMongo();
+    MultiDatabaseMongobee runner = new MultiDatabaseMongobee(mongoClient, asList("tenant1", "tenant2", "tenant3"))
+        .setChangeLogsScanPackage(IndexedChangeLog.class.getPackage().getName())
+        .setConcurrency(2)
+        .setConfigurer(new MultiDatabaseMongobee.Configurer() {
+          @Override
+          public void configure(Mongobee mongobee, String dbName) throws MongobeeException {
+            if ("tenant2".equals(dbName)) {
+              throw new MongobeeException("tenant2 is not configured");
+            }
+          }
+        });
+
+    // when
+    MultiDatabaseMigrationReport report = runner.execute();
+
+    // then
+    assertFalse(report.isSuccessful());
+    assertEquals(asList("tenant1", "tenant3"), report.getSucceeded());
+    assertEquals("tenant2 is not configured", report.getFailures().get("tenant2").getMessage());
+    assertEquals(1, countAppliedChanges(mongoClient, "tenant1"));
+    assertEquals(0, countAppliedChanges(mongoClient, "tenant2"));
+    assertEquals(1, countAppliedChanges(mongoClient, "tenant3"));
+  }
+
+  @Test
+  public void shouldMigrateOnPlatformThreads() throws Exception {
+    // given
+    MongoClient mongoClient = new Fongo("testServer").getMongo();
+    MultiDatabaseMongobee runner = new MultiDatabaseMongobee(mongoClient, asList("tenant1", "tenant2"))
+        .setChangeLogsScanPackage(IndexedChangeLog.class.getPackage().getName())
+        .setVirtualThreads(false)
+        .setConcurrency(1);
+
+    // when
+    MultiDatabaseMigrationReport report = runner.execute();
+
+    // then
+    assertTrue(report.isSuccessful());
+    assertEquals(asList("tenant1", "tenant2"), report.getSucceeded());
+  }
+
+  @Test
+  public void shouldReportDatabasesLockedByAnotherProcessAsPending() throws Exception {
+    // given
+    MongoClient mongoClient = new Fongo("testServer").getMongo();
+    mongoClient.getDatabase("tenant2").getCollection("mongobeelock").insertOne(new Document("key", "LOCK")
+        .append("owner", "other")
+        .append("expiresAt", new Date(System.currentTimeMillis() + 60000L)));
+    MultiDatabaseMongobee runner = new MultiDatabaseMongobee(mongoClient, asList("tenant1", "tenant2"))
+        .setChangeLogsScanPackage(IndexedChangeLog.class.getPackage().getName());
+
+    // when
+    MultiDatabaseMigrationReport report = runner.execute();
+
+    // then
+    assertFalse(report.isSuccessful());
+    assertEquals(asList("tenant1"), report.getSucceeded());
+    assertEquals(asList("tenant2"), report.getPending());
+    assertEquals(MigrationResult.Status.EXECUTED, report.getResults().get("tenant1").getStatus());
+    assertEquals(MigrationResult.Status.LOCK_NOT_ACQUIRED, report.getResults().get("tenant2").getStatus());
+    assertEquals(0, countAppliedChanges(mongoClient, "tenant2"));
+  }
+
+  @Test(expected = MongobeeConfigurationException.class)
+  public void shouldThrowAnExceptionIfNoScanPackageSet() throws Exception {
+    new MultiDatabaseMongobee(new Fongo("testServer").getMongo(), asList("tenant1")).execute();
+  }
+
+  private static long countAppliedChanges(MongoClient mongoClient, String dbName) {
+    return mongoClient.getDatabase(dbName).getCollection(CHANGELOG_COLLECTION_NAME)
+        .count(new Document(ChangeEntry.KEY_CHANGEID, "Itest1"));
+  }
+
+}
@@ -0,0 +1,117 @@
+package com.github.mongobee.changeset;
+
+import static org.junit.Assert.assertEquals;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.client.MongoDatabase;
+
+public class BulkWriterTest {
+
+  private static final String COLLECTION_NAME = "users";
+
+  private MongoDatabase db;
+  private BulkWriteStats stats;
+
+  @Before
+  public void init() {
+    db = new Fongo("testServer").getDatabase("mongobeetest");
+    stats = new BulkWriteStats();
+  }
+
+  @Test
+  public void shouldKeepWritesPendingUntilFlush() {
+    // given
+    BulkWriter writer = new BulkWriter(db, 100, Long.MAX_VALUE, stats);
+
+    // when
+    writer.insert(COLLECTION_NAME, new Document("_id", 1))
+        .insert(COLLECTION_NAME, new Document("_id", 2));
+
+    // then
+    assertEquals(2, writer.getPendingOperations());
+    assertEquals(0, db.getCollection(COLLECTION_NAME).count());
+
+    // when
+    writer.flush();
+
+    // then
+    assertEquals(0, writer.getPendingOperations());
+    assertEquals(2, db.getCollection(COLLECTION_NAME).count());
+    assertEquals(1, stats.getBulkWrites());
+    assertEquals(2, stats.getInserted());
+  }
+
+  @Test
+  public void shouldFlushWhenBatchSizeReached() {
+    // given
+    BulkWriter writer = new BulkWriter(db, 2, Long.MAX_VALUE, stats);
+
+    // when
+    for (int i = 0; i < 5; i++) {
+      writer.insert(COLLECTION_NAME, new Document("_id", i));
+    }
+
+    // then
+    assertEquals(1, writer.getPendingOperations());
+    assertEquals(4, db.getCollection(COLLECTION_NAME).count());
+    assertEquals(2, stats.getBulkWrites());
+  }
+
+  @Test
+  public void shouldFlushWhenEstimatedSizeReached() {
+    // given
+    BulkWriter writer = new BulkWriter(db, 100, 1, stats);
+
+    // when
+    writer.insert(COLLECTION_NAME, new Document("_id", 1));
+
+    // then
+    assertEquals(0, writer.getPendingOperations());
+    assertEquals(1, db.getCollection(COLLECTION_NAME).count());
+  }
+
+  @Test
+  public void shouldCountOnlyDocumentsInEstimatedSize() {
+    // given
+    BulkWriter writer = new BulkWriter(db, 100, 1, stats);
+    db.getCollection(COLLECTION_NAME).insertOne(new Document("_id", 1));
+
+    // when
+    writer.updateOne(COLLECTION_NAME, new Document("_id", 1), new Document("$set", new Document("active", true)));
+    int pendingUpdates = writer.getPendingOperations();
+    writer.replaceOne(COLLECTION_NAME, new Document("_id", 1), new Document("active", false));
+
+    // then
+    assertEquals(1, pendingUpdates);
+    assertEquals(0, writer.getPendingOperations());
+    assertEquals(false, db.getCollection(COLLECTION_NAME).find().first().getBoolean("active"));
+  }
+
+  @Test
+  public void shouldAggregateCountsOfAllOperations() {
+    // given
+    BulkWriter writer = new BulkWriter(db, 100, Long.MAX_VALUE, stats);
+    writer.insert(COLLECTION_NAME, new Document("_id", 1).append("active", true))
+        .insert(COLLECTION_NAME, new Document("_id", 2).append("active", true))
+        .insert(COLLECTION_NAME, new Document("_id", 3).append("active", false))
+        .flush();
+
+    // when
+    writer.updateMany(COLLECTION_NAME, new Document("active", true), new Document("$set", new Document("role", "user")))
+        .replaceOne(COLLECTION_NAME, new Document("_id", 3), new Document("active", true))
+        .deleteOne(COLLECTION_NAME, new Document("_id", 1))
+        .flush();
+
+    // then
+    assertEquals(2, stats.getBulkWrites());
+    assertEquals(3, stats.getInserted());
+    assertEquals(3, stats.getMatched());
+    assertEquals(1, stats.getDeleted());
+    assertEquals(2, db.getCollection(COLLECTION_NAME).count());
+  }
+
+}
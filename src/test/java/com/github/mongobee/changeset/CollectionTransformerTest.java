@@ -0,0 +1,161 @@
+package com.github.mongobee.changeset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.exception.MongobeeException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+
+public class CollectionTransformerTest {
+
+  private static final String COLLECTION_NAME = "users";
+
+  private MongoDatabase db;
+  private BulkWriteStats stats;
+
+  @Before
+  public void init() {
+    db = new Fongo("testServer").getDatabase("mongobeetest");
+    stats = new BulkWriteStats();
+    List<Document> users = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      users.add(new Document("_id", i).append("active", i % 2 == 0));
+    }
+    db.getCollection(COLLECTION_NAME).insertMany(users);
+  }
+
+  @Test
+  public void shouldSplitCollectionIntoAscendingRanges() {
+    // given
+    CollectionTransformer transformer = new CollectionTransformer(db, 4, 10, Long.MAX_VALUE, stats);
+
+    // when
+    List<CollectionTransformer.Range> ranges = transformer.split(db.getCollection(COLLECTION_NAME), new Document(), 4);
+
+    // then
+    assertEquals(4, ranges.size());
+    assertNull(ranges.get(0).getLowerBound());
+    assertNull(ranges.get(3).getUpperBound());
+    for (int i = 1; i < ranges.size(); i++) {
+      assertEquals(ranges.get(i - 1).getUpperBound(), ranges.get(i).getLowerBound());
+    }
+  }
+
+  @Test
+  public void shouldSplitOnlyFilteredDocuments() {
+    // given
+    CollectionTransformer transformer = new CollectionTransformer(db, 4, 10, Long.MAX_VALUE, stats);
+
+    // when
+    List<CollectionTransformer.Range> ranges = transformer.split(db.getCollection(COLLECTION_NAME),
+        new Document("_id", new Document("$gte", 80)), 4);
+
+    // then
+    assertEquals(4, ranges.size());
+    for (int i = 1; i < ranges.size(); i++) {
+      assertTrue((Integer) ranges.get(i).getLowerBound() > 80);
+    }
+  }
+
+  @Test
+  public void shouldTransformCollectionWithIdsOfSeveralTypesAsSingleRange() throws MongobeeException {
+    // given
+    MongoCollection<Document> users = db.getCollection(COLLECTION_NAME);
+    for (int i = 0; i < 20; i++) {
+      users.insertOne(new Document("_id", "user" + i));
+      users.insertOne(new Document("_id", new ObjectId()));
+    }
+    CollectionTransformer transformer = new CollectionTransformer(db, 4, 10, Long.MAX_VALUE, stats);
+
+    // when
+    List<CollectionTransformer.Range> ranges = transformer.transform(COLLECTION_NAME,
+        new Function<Document, WriteModel<Document>>() {
+          @Override
+          public WriteModel<Document> apply(Document user) {
+            return new UpdateOneModel<>(new Document("_id", user.get("_id")),
+                new Document("$set", new Document("role", "user")));
+          }
+        });
+
+    // then
+    assertEquals(1, ranges.size());
+    assertEquals(140, ranges.get(0).getProcessed());
+    assertEquals(140, users.count(new Document("role", "user")));
+  }
+
+  @Test
+  public void shouldTransformAllDocumentsOfCollection() throws MongobeeException {
+    // given
+    CollectionTransformer transformer = new CollectionTransformer(db, 4, 7, Long.MAX_VALUE, stats);
+
+    // when
+    List<CollectionTransformer.Range> ranges = transformer.transform(COLLECTION_NAME,
+        new Function<Document, WriteModel<Document>>() {
+          @Override
+          public WriteModel<Document> apply(Document user) {
+            return new UpdateOneModel<>(new Document("_id", user.get("_id")),
+                new Document("$set", new Document("role", "user")));
+          }
+        });
+
+    // then
+    long processed = 0;
+    for (CollectionTransformer.Range range : ranges) {
+      assertTrue(range.isCompleted());
+      processed += range.getProcessed();
+    }
+    assertEquals(100, processed);
+    assertEquals(100, stats.getMatched());
+    assertEquals(100, db.getCollection(COLLECTION_NAME).count(new Document("role", "user")));
+  }
+
+  @Test
+  public void shouldTransformFilteredDocumentsIntoTargetCollection() throws MongobeeException {
+    // given
+    CollectionTransformer transformer = new CollectionTransformer(db, 2, 100, Long.MAX_VALUE, stats);
+    MongoCollection<Document> archive = db.getCollection("archive");
+
+    // when
+    transformer.transform(COLLECTION_NAME, new Document("active", false), "archive",
+        new Function<Document, WriteModel<Document>>() {
+          @Override
+          public WriteModel<Document> apply(Document user) {
+            return user.getInteger("_id") < 10 ? null : new InsertOneModel<>(user);
+          }
+        });
+
+    // then
+    assertEquals(45, archive.count());
+    assertEquals(45, stats.getInserted());
+  }
+
+  @Test(expected = MongobeeException.class)
+  public void shouldFailWhenTransformationFails() throws MongobeeException {
+    // given
+    CollectionTransformer transformer = new CollectionTransformer(db, 2, 100, Long.MAX_VALUE, stats);
+
+    // when
+    transformer.transform(COLLECTION_NAME, new Function<Document, WriteModel<Document>>() {
+      @Override
+      public WriteModel<Document> apply(Document user) {
+        throw new IllegalStateException("broken transformation");
+      }
+    });
+  }
+
+}
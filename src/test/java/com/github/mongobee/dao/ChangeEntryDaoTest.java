@@ -1,22 +1,33 @@
 package com.github.mongobee.dao;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Date;
+import java.util.List;
+
 import org.bson.Document;
 import org.junit.Test;
 
 import com.github.fakemongo.Fongo;
+import com.github.mongobee.changeset.ChangeEntry;
 import com.github.mongobee.exception.MongobeeConfigurationException;
 import com.github.mongobee.exception.MongobeeLockException;
 import com.mongodb.FongoMongoCollection;
 import com.mongodb.MongoClient;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoDatabase;
 
 /**
@@ -167,6 +178,8 @@ public class ChangeEntryDaoTest {
     LockDao lockDao = mock(LockDao.class);
     when(lockDao.acquireLock(any(MongoDatabase.class))).thenReturn(false,true);
     dao.setLockDao(lockDao);
+    LockWaitStrategy strategy = mock(LockWaitStrategy.class);
+    dao.setLockWaitStrategy(strategy);
 
     dao.connectMongoDb(mongoClient, DB_NAME);
 
@@ -175,7 +188,66 @@ public class ChangeEntryDaoTest {
 
     // then
     verify(lockDao, times(2)).acquireLock(any(MongoDatabase.class));
+    verify(strategy).await(any(LockWaitContext.class), eq(1), anyLong());
+    assertTrue(hasLock);
+  }
+
+  @Test
+  public void shouldWaitForLockUsingLockWaitStrategy() throws Exception {
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME, true,
+        CHANGE_LOG_LOCK_WAIT_TIME, CHANGE_LOG_LOCK_POLL_RATE, THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+
+    LockDao lockDao = mock(LockDao.class);
+    when(lockDao.acquireLock(any(MongoDatabase.class))).thenReturn(false, false, false, true);
+    dao.setLockDao(lockDao);
+    LockWaitStrategy strategy = mock(LockWaitStrategy.class);
+    dao.setLockWaitStrategy(strategy);
+
+    dao.connectMongoDb(mongoClient, DB_NAME);
+
+    // when
+    boolean hasLock = dao.acquireProcessLock();
+
+    // then
     assertTrue(hasLock);
+    verify(lockDao, times(4)).acquireLock(any(MongoDatabase.class));
+    verify(strategy).await(any(LockWaitContext.class), eq(1), anyLong());
+    verify(strategy).await(any(LockWaitContext.class), eq(2), anyLong());
+    verify(strategy).await(any(LockWaitContext.class), eq(3), anyLong());
+    verify(strategy, never()).await(any(LockWaitContext.class), eq(4), anyLong());
+  }
+
+  @Test
+  public void shouldStopWaitingForLockWhenInterrupted() throws Exception {
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME, true,
+        CHANGE_LOG_LOCK_WAIT_TIME, CHANGE_LOG_LOCK_POLL_RATE, THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+
+    LockDao lockDao = mock(LockDao.class);
+    when(lockDao.acquireLock(any(MongoDatabase.class))).thenReturn(false);
+    dao.setLockDao(lockDao);
+
+    dao.connectMongoDb(mongoClient, DB_NAME);
+
+    // when
+    Thread.currentThread().interrupt();
+    try {
+      dao.acquireProcessLock();
+      fail("MongobeeLockException expected");
+    } catch (MongobeeLockException e) {
+      // then
+      assertTrue(e.getCause() instanceof InterruptedException);
+      assertTrue(Thread.interrupted());
+    }
   }
 
   @Test(expected = MongobeeLockException.class)
@@ -249,4 +321,182 @@ public class ChangeEntryDaoTest {
     assertTrue(lockHeld);
   }
 
+  @Test
+  public void shouldFetchAppliedChanges() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME, WAIT_FOR_LOCK,
+        CHANGE_LOG_LOCK_WAIT_TIME, CHANGE_LOG_LOCK_POLL_RATE, THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+    dao.setIndexDao(mock(ChangeEntryIndexDao.class));
+    dao.setLockDao(mock(LockDao.class));
+    dao.connectMongoDb(mongoClient, DB_NAME);
+
+    ChangeEntry applied = new ChangeEntry("applied", "testuser", new Date(), "ChangeLog", "applied");
+    ChangeEntry otherAuthor = new ChangeEntry("applied", "otheruser", new Date(), "ChangeLog", "applied");
+    dao.save(applied);
+
+    // when
+    AppliedChanges appliedChanges = dao.fetchAppliedChanges();
+
+    // then
+    assertEquals(1, appliedChanges.size());
+    assertTrue(appliedChanges.contains(applied));
+    assertFalse(appliedChanges.contains(otherAuthor));
+  }
+
+  @Test
+  public void shouldBufferChangeEntriesUntilBatchSize() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME, WAIT_FOR_LOCK,
+        CHANGE_LOG_LOCK_WAIT_TIME, CHANGE_LOG_LOCK_POLL_RATE, THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+    dao.setIndexDao(mock(ChangeEntryIndexDao.class));
+    dao.setLockDao(mock(LockDao.class));
+    dao.setChangeEntryBatchSize(3);
+    dao.setChangeEntryWriteConcern(WriteConcern.ACKNOWLEDGED);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+
+    // when
+    dao.save(new ChangeEntry("batched1", "testuser", new Date(), "ChangeLog", "batched1"));
+    dao.save(new ChangeEntry("batched2", "testuser", new Date(), "ChangeLog", "batched2"));
+
+    // then
+    assertEquals(0, db.getCollection(CHANGELOG_COLLECTION_NAME).count());
+
+    // when
+    dao.save(new ChangeEntry("batched3", "testuser", new Date(), "ChangeLog", "batched3"));
+    dao.save(new ChangeEntry("batched4", "testuser", new Date(), "ChangeLog", "batched4"));
+
+    // then
+    assertEquals(3, db.getCollection(CHANGELOG_COLLECTION_NAME).count());
+
+    // when
+    dao.flushChangeEntries();
+    dao.flushChangeEntries();
+
+    // then
+    assertEquals(4, db.getCollection(CHANGELOG_COLLECTION_NAME).count());
+    assertFalse(dao.isNewChange(new ChangeEntry("batched4", "testuser", new Date(), "ChangeLog", "batched4")));
+  }
+
+  @Test
+  public void shouldTreatChangeSetWithCheckpointAsInProgressUntilCompleted() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME, WAIT_FOR_LOCK,
+        CHANGE_LOG_LOCK_WAIT_TIME, CHANGE_LOG_LOCK_POLL_RATE, THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+    dao.setIndexDao(mock(ChangeEntryIndexDao.class));
+    LockDao lockDao = mock(LockDao.class);
+    when(lockDao.renewLock(db)).thenReturn(true);
+    when(lockDao.getOwner()).thenReturn("owner1");
+    dao.setLockDao(lockDao);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+
+    ChangeEntry backfill = new ChangeEntry("backfill", "testuser", new Date(), "ChangeLog", "backfill");
+
+    // when
+    dao.saveCheckpoint(backfill, 100);
+    dao.saveCheckpoint(backfill, 200);
+
+    // then
+    assertTrue(dao.isNewChange(backfill));
+    assertEquals(0, dao.fetchAppliedChanges().size());
+    Document checkpoint = dao.findCheckpoint(backfill);
+    assertEquals(200, checkpoint.get(ChangeEntry.KEY_RESUME_TOKEN));
+    assertEquals("owner1", checkpoint.get(ChangeEntry.KEY_CHECKPOINT_OWNER));
+
+    // when
+    dao.completeCheckpoint(backfill);
+
+    // then
+    assertFalse(dao.isNewChange(backfill));
+    assertEquals(null, dao.findCheckpoint(backfill));
+    assertEquals(1, db.getCollection(CHANGELOG_COLLECTION_NAME).count());
+  }
+
+  @Test(expected = MongobeeLockException.class)
+  public void shouldNotSaveCheckpointWithoutLock() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME, WAIT_FOR_LOCK,
+        CHANGE_LOG_LOCK_WAIT_TIME, CHANGE_LOG_LOCK_POLL_RATE, THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+    dao.setIndexDao(mock(ChangeEntryIndexDao.class));
+    dao.setLockDao(mock(LockDao.class));
+    dao.setDeferredLockDao(mock(LockDao.class));
+    dao.connectMongoDb(mongoClient, DB_NAME);
+
+    // when
+    dao.saveCheckpoint(new ChangeEntry("backfill", "testuser", new Date(), "ChangeLog", "backfill"), 100);
+  }
+
+  @Test(expected = MongobeeLockException.class)
+  public void shouldNotSaveChangeEntryAfterLeaseWasLost() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME, WAIT_FOR_LOCK,
+        CHANGE_LOG_LOCK_WAIT_TIME, CHANGE_LOG_LOCK_POLL_RATE, THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+    dao.setIndexDao(mock(ChangeEntryIndexDao.class));
+    LockDao lockDao = mock(LockDao.class);
+    when(lockDao.isLeaseLost()).thenReturn(true);
+    dao.setLockDao(lockDao);
+    dao.connectMongoDb(mongoClient, DB_NAME);
+
+    // when
+    dao.save(new ChangeEntry("unlocked", "testuser", new Date(), "ChangeLog", "unlocked"));
+  }
+
+  @Test
+  public void shouldFindSlowestChangeSets() throws Exception {
+
+    // given
+    MongoClient mongoClient = mock(MongoClient.class);
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+    ChangeEntryDao dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME, WAIT_FOR_LOCK,
+        CHANGE_LOG_LOCK_WAIT_TIME, CHANGE_LOG_LOCK_POLL_RATE, THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+    dao.setIndexDao(mock(ChangeEntryIndexDao.class));
+    dao.setLockDao(mock(LockDao.class));
+    dao.connectMongoDb(mongoClient, DB_NAME);
+
+    dao.save(new ChangeEntry("untimed", "testuser", new Date(), "ChangeLog", "untimed"));
+    for (int minutes = 1; minutes <= 3; minutes++) {
+      ChangeEntry entry = new ChangeEntry("backfill" + minutes, "testuser", new Date(), "ChangeLog", "backfill");
+      entry.recordExecution(new Date(0), new Date(minutes * 60000L), minutes * 1000L);
+      dao.save(entry);
+    }
+
+    // when
+    List<ChangeEntry> slowest = dao.findSlowest(2);
+
+    // then
+    assertEquals(2, slowest.size());
+    assertEquals("backfill3", slowest.get(0).getChangeId());
+    assertEquals(Long.valueOf(180000L), slowest.get(0).getDurationMillis());
+    assertEquals(Long.valueOf(3000L), slowest.get(0).getDocumentsAffected());
+    assertNotNull(slowest.get(0).getHost());
+    assertNotNull(slowest.get(0).getProcessId());
+    assertEquals("backfill2", slowest.get(1).getChangeId());
+  }
+
 }
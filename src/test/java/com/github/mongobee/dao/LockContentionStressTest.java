@@ -0,0 +1,97 @@
+package com.github.mongobee.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.test.lock.LockContentionHarness;
+import com.github.mongobee.test.lock.LockContentionHarness.LockWaitStrategyFactory;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+
+/**
+ * Many processes starting at once and competing for the changelog lock, e.g. pods of a rollout, with different
+ * lock wait strategies and poll rates. Logs acquisition latencies, wasted polls and fairness of each at INFO level,
+ * shown once an slf4j binding is on the test classpath.
+ * <p>
+ * Skipped unless enabled with <tt>-Dmongobee.lockstress=true</tt>. Runs on Fongo, or on the server given by
+ * <tt>-Dmongobee.lockstress.uri</tt>; <tt>-Dmongobee.lockstress.workers</tt> (default 50),
+ * <tt>-Dmongobee.lockstress.acquisitions</tt> (per worker, default 1) and <tt>-Dmongobee.lockstress.holdMillis</tt>
+ * (default 100) shape the load.
+ */
+public class LockContentionStressTest {
+  private static final Logger logger = LoggerFactory.getLogger(LockContentionStressTest.class);
+  private static final String DB_NAME = "mongobeelockstress";
+
+  private MongoClient mongoClient;
+  private boolean server;
+
+  @Before
+  public void connect() {
+    assumeTrue(Boolean.getBoolean("mongobee.lockstress"));
+    String uri = System.getProperty("mongobee.lockstress.uri");
+    server = uri != null;
+    mongoClient = server ? new MongoClient(new MongoClientURI(uri)) : new Fongo("lockstress").getMongo();
+    mongoClient.getDatabase(DB_NAME).drop();
+  }
+
+  @After
+  public void close() {
+    if (mongoClient != null) {
+      mongoClient.close();
+    }
+  }
+
+  @Test
+  public void shouldNeverGrantTheLockTwice() throws Exception {
+    run("fixed rate 100 ms", fixedRate(100));
+    run("fixed rate 500 ms", fixedRate(500));
+    run("fixed rate 1000 ms", fixedRate(1000));
+    run("exponential backoff 50..1000 ms", new LockWaitStrategyFactory() {
+      @Override
+      public LockWaitStrategy create() {
+        return new ExponentialBackoffLockWaitStrategy(50, 1000);
+      }
+    });
+    if (server) {
+      run("oplog 1000 ms", new LockWaitStrategyFactory() {
+        @Override
+        public LockWaitStrategy create() {
+          return new OplogLockWaitStrategy(1000);
+        }
+      });
+    }
+  }
+
+  private void run(String strategy, LockWaitStrategyFactory strategies) throws Exception {
+    int workers = Integer.getInteger("mongobee.lockstress.workers", 50);
+    int acquisitions = Integer.getInteger("mongobee.lockstress.acquisitions", 1);
+
+    // when
+    LockContentionHarness.Result result = new LockContentionHarness(mongoClient, DB_NAME)
+        .setWorkers(workers)
+        .setAcquisitionsPerWorker(acquisitions)
+        .setHoldMillis(Long.getLong("mongobee.lockstress.holdMillis", 100L))
+        .run(strategies);
+    logger.info(String.format("%-32s %s", strategy, result));
+
+    // then
+    assertEquals(workers * acquisitions, result.getAcquisitions());
+    assertEquals(0, result.getSafetyViolations());
+  }
+
+  private static LockWaitStrategyFactory fixedRate(final long pollRateMillis) {
+    return new LockWaitStrategyFactory() {
+      @Override
+      public LockWaitStrategy create() {
+        return new FixedRateLockWaitStrategy(pollRateMillis);
+      }
+    };
+  }
+}
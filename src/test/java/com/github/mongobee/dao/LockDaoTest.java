@@ -1,8 +1,14 @@
 package com.github.mongobee.dao;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Date;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.Test;
 
 import com.github.fakemongo.Fongo;
@@ -110,4 +116,171 @@ public class LockDaoTest {
 
   }
 
+  @Test
+  public void shouldTakeOverExpiredLock() {
+
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao crashed = new LockDao(LOCK_COLLECTION_NAME);
+    LockDao other = new LockDao(LOCK_COLLECTION_NAME);
+    crashed.intitializeLock(db);
+    crashed.acquireLock(db);
+    crashed.releaseLock(db); // stops the heartbeat, the lease is recreated below as left by a killed process
+    db.getCollection(LOCK_COLLECTION_NAME).insertOne(new Document("key", "LOCK")
+        .append("owner", crashed.getOwner())
+        .append("expiresAt", new Date(System.currentTimeMillis() - 1000)));
+
+    // when
+    boolean hasLock = other.acquireLock(db);
+
+    // then
+    assertTrue(hasLock);
+    assertTrue(other.isLockHeld(db));
+    assertEquals(other.getOwner(), db.getCollection(LOCK_COLLECTION_NAME).find().first().getString("owner"));
+    other.releaseLock(db);
+  }
+
+  @Test
+  public void shouldNotTakeOverLiveLease() {
+
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao holder = new LockDao(LOCK_COLLECTION_NAME);
+    LockDao other = new LockDao(LOCK_COLLECTION_NAME);
+    holder.intitializeLock(db);
+    holder.acquireLock(db);
+
+    // when
+    boolean hasLock = other.acquireLock(db);
+    other.releaseLock(db);
+
+    // then
+    assertFalse(hasLock);
+    assertTrue(holder.isLockHeld(db)); // not released by a process which does not own it
+    holder.releaseLock(db);
+  }
+
+  @Test
+  public void shouldRenewLeaseByHeartbeat() throws Exception {
+
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao dao = new LockDao(LOCK_COLLECTION_NAME);
+    dao.setLeaseTime(300);
+    dao.intitializeLock(db);
+
+    // when
+    dao.acquireLock(db);
+    Thread.sleep(600);
+
+    // then
+    assertTrue(dao.isLockHeld(db));
+    dao.releaseLock(db);
+    assertFalse(dao.isLockHeld(db));
+  }
+
+  @Test
+  public void whenLeaseExpiredCheckReturnsFalse() {
+
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao dao = new LockDao(LOCK_COLLECTION_NAME);
+    dao.intitializeLock(db);
+    db.getCollection(LOCK_COLLECTION_NAME).insertOne(new Document("key", "LOCK")
+        .append("expiresAt", new Date(System.currentTimeMillis() - 1000)));
+
+    assertFalse(dao.isLockHeld(db));
+
+  }
+
+  @Test
+  public void shouldHoldLocksWithDifferentKeysIndependently() throws Exception {
+
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao dao = new LockDao(LOCK_COLLECTION_NAME);
+    LockDao deferredDao = new LockDao(LOCK_COLLECTION_NAME, "DEFERRED_LOCK");
+    dao.intitializeLock(db);
+
+    // when
+    boolean hasLock = dao.acquireLock(db);
+    boolean hasDeferredLock = deferredDao.acquireLock(db);
+    deferredDao.releaseLock(db);
+
+    // then
+    assertTrue(hasLock);
+    assertTrue(hasDeferredLock);
+    assertTrue(dao.isLockHeld(db));
+    assertFalse(deferredDao.isLockHeld(db));
+    dao.releaseLock(db);
+
+  }
+
+  @Test
+  public void shouldTakeOverLockWithoutExpiryLeftByOlderVersion() {
+
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao dao = new LockDao(LOCK_COLLECTION_NAME);
+    dao.intitializeLock(db);
+    db.getCollection(LOCK_COLLECTION_NAME).insertOne(new Document("_id", legacyLockId(120))
+        .append("key", "LOCK").append("status", "LOCK_HELD"));
+
+    // when
+    boolean heldBefore = dao.isLockHeld(db);
+    boolean hasLock = dao.acquireLock(db);
+
+    // then
+    assertFalse(heldBefore);
+    assertTrue(hasLock);
+    assertEquals(1, db.getCollection(LOCK_COLLECTION_NAME).count());
+    assertEquals(dao.getOwner(), db.getCollection(LOCK_COLLECTION_NAME).find().first().getString("owner"));
+    dao.releaseLock(db);
+  }
+
+  @Test
+  public void shouldNotTakeOverFreshLockWithoutExpiryLeftByOlderVersion() {
+
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao dao = new LockDao(LOCK_COLLECTION_NAME);
+    dao.intitializeLock(db);
+    db.getCollection(LOCK_COLLECTION_NAME).insertOne(new Document("_id", legacyLockId(10))
+        .append("key", "LOCK").append("status", "LOCK_HELD"));
+
+    // when
+    boolean heldBefore = dao.isLockHeld(db);
+    boolean hasLock = dao.acquireLock(db);
+
+    // then
+    assertTrue(heldBefore);
+    assertFalse(hasLock);
+    assertEquals("LOCK_HELD", db.getCollection(LOCK_COLLECTION_NAME).find().first().getString("status"));
+    assertNull(db.getCollection(LOCK_COLLECTION_NAME).find().first().get("owner"));
+  }
+
+  @Test
+  public void shouldReportLeaseLostByHeartbeat() throws Exception {
+
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    LockDao dao = new LockDao(LOCK_COLLECTION_NAME);
+    dao.setLeaseTime(300);
+    dao.intitializeLock(db);
+    dao.acquireLock(db);
+
+    // when - another process took over the lease
+    db.getCollection(LOCK_COLLECTION_NAME).updateOne(new Document("key", "LOCK"),
+        new Document("$set", new Document("owner", "other")));
+    Thread.sleep(600);
+
+    // then
+    assertTrue(dao.isLeaseLost());
+    dao.releaseLock(db);
+    assertFalse(dao.isLeaseLost());
+  }
+
+  private static ObjectId legacyLockId(int secondsAgo) {
+    return new ObjectId(new Date(System.currentTimeMillis() - secondsAgo * 1000L));
+  }
+
 }
@@ -0,0 +1,61 @@
+package com.github.mongobee.dao;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.MongoClient;
+
+public class LockWaitStrategyTest {
+  private static final String DB_NAME = "mongobeetest";
+  private static final String LOCK_COLLECTION_NAME = "mongobeelock";
+
+  @Test
+  public void shouldBackOffExponentiallyUpToMaxWait() {
+    // given
+    ExponentialBackoffLockWaitStrategy strategy = new ExponentialBackoffLockWaitStrategy(100L, 1000L);
+
+    // then
+    assertWaitBetween(50L, 100L, strategy.nextWait(1));
+    assertWaitBetween(100L, 200L, strategy.nextWait(2));
+    assertWaitBetween(200L, 400L, strategy.nextWait(3));
+    assertWaitBetween(500L, 1000L, strategy.nextWait(5));
+    assertWaitBetween(500L, 1000L, strategy.nextWait(Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void shouldNotWaitLongerThanTimeLeft() throws InterruptedException {
+    // given
+    LockWaitStrategy strategy = new ExponentialBackoffLockWaitStrategy(60000L, 60000L);
+
+    // when
+    long start = System.nanoTime();
+    strategy.await(null, 1, 10L);
+
+    // then
+    assertTrue((System.nanoTime() - start) / 1000000L < 5000L);
+  }
+
+  @Test
+  public void shouldPollWhenOplogIsNotAvailable() throws InterruptedException {
+    // given
+    MongoClient mongoClient = new Fongo("testServer").getMongo();
+    LockWaitContext context = new LockWaitContext(mongoClient, mongoClient.getDatabase(DB_NAME), LOCK_COLLECTION_NAME);
+    LockWaitStrategy strategy = new OplogLockWaitStrategy(20L);
+
+    // when
+    long start = System.nanoTime();
+    strategy.await(context, 1, 60000L);
+    strategy.await(context, 2, 60000L);
+
+    // then
+    long elapsedMillis = (System.nanoTime() - start) / 1000000L;
+    assertTrue(elapsedMillis >= 40L && elapsedMillis < 5000L);
+  }
+
+  private static void assertWaitBetween(long min, long max, long wait) {
+    assertTrue("wait " + wait + " not in [" + min + ", " + max + "]", wait >= min && wait <= max);
+  }
+
+}
@@ -0,0 +1,60 @@
+package com.github.mongobee.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.client.MongoDatabase;
+
+public class MetadataDaoTest {
+
+  private static final String TEST_SERVER = "testServer";
+  private static final String DB_NAME = "mongobeetest";
+  private static final String METADATA_COLLECTION_NAME = "mongobeemeta";
+  private static final String CHANGELOG_COLLECTION_NAME = "dbchangelog";
+
+  @Test
+  public void shouldNotFindFingerprintIfNotRecorded() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    MetadataDao dao = new MetadataDao(METADATA_COLLECTION_NAME);
+
+    // then
+    assertNull(dao.findFingerprint(db, CHANGELOG_COLLECTION_NAME));
+  }
+
+  @Test
+  public void shouldReplaceFingerprintOfChangelogCollection() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    MetadataDao dao = new MetadataDao(METADATA_COLLECTION_NAME);
+
+    // when
+    dao.saveFingerprint(db, CHANGELOG_COLLECTION_NAME, "first");
+    dao.saveFingerprint(db, CHANGELOG_COLLECTION_NAME, "second");
+    dao.saveFingerprint(db, "otherchangelog", "other");
+
+    // then
+    assertEquals("second", dao.findFingerprint(db, CHANGELOG_COLLECTION_NAME));
+    assertEquals("other", dao.findFingerprint(db, "otherchangelog"));
+    assertEquals(2, db.getCollection(METADATA_COLLECTION_NAME).count(new Document()));
+  }
+
+  @Test
+  public void shouldRemoveFingerprint() {
+    // given
+    MongoDatabase db = new Fongo(TEST_SERVER).getDatabase(DB_NAME);
+    MetadataDao dao = new MetadataDao(METADATA_COLLECTION_NAME);
+    dao.saveFingerprint(db, CHANGELOG_COLLECTION_NAME, "first");
+
+    // when
+    dao.removeFingerprint(db, CHANGELOG_COLLECTION_NAME);
+
+    // then
+    assertNull(dao.findFingerprint(db, CHANGELOG_COLLECTION_NAME));
+  }
+
+}
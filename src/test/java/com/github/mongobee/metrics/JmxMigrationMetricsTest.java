@@ -0,0 +1,49 @@
+package com.github.mongobee.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class JmxMigrationMetricsTest {
+
+  @Test
+  public void shouldExposeMetricsAsMBeanAttributes() throws Exception {
+    // given
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    ObjectName name = new ObjectName(JmxMigrationMetrics.DEFAULT_OBJECT_NAME);
+    JmxMigrationMetrics metrics = JmxMigrationMetrics.register(server, name);
+
+    // when
+    metrics.recordScan(TimeUnit.MILLISECONDS.toNanos(30));
+    metrics.recordLockWait(TimeUnit.MILLISECONDS.toNanos(200), 3, true);
+    metrics.recordChangeSet("ChangeLog", "fast", MigrationMetrics.APPLIED, TimeUnit.MILLISECONDS.toNanos(5));
+    metrics.recordChangeSet("ChangeLog", "slow", MigrationMetrics.APPLIED, TimeUnit.MILLISECONDS.toNanos(50));
+    metrics.recordChangeSet("ChangeLog", "old", MigrationMetrics.PASSED_OVER, 0);
+    metrics.recordChangeSet("ChangeLog", "broken", MigrationMetrics.FAILED, 0);
+    metrics.recordChangeEntryWrite(10, TimeUnit.MILLISECONDS.toNanos(4));
+
+    // then
+    assertEquals(30L, server.getAttribute(name, "ScanTimeMillis"));
+    assertEquals(200L, server.getAttribute(name, "LockWaitTimeMillis"));
+    assertEquals(3L, server.getAttribute(name, "LockAttempts"));
+    assertEquals(2L, server.getAttribute(name, "ChangeSetsApplied"));
+    assertEquals(1L, server.getAttribute(name, "ChangeSetsPassedOver"));
+    assertEquals(1L, server.getAttribute(name, "ChangeSetsFailed"));
+    assertEquals("ChangeLog#slow", server.getAttribute(name, "SlowestChangeSet"));
+    assertEquals(1L, server.getAttribute(name, "ChangeEntryWrites"));
+    assertEquals(4L, server.getAttribute(name, "MaxChangeEntryWriteTimeMillis"));
+
+    // when
+    server.invoke(name, "reset", null, null);
+
+    // then
+    assertEquals(0L, server.getAttribute(name, "ChangeSetsApplied"));
+  }
+
+}
@@ -0,0 +1,33 @@
+package com.github.mongobee.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MicrometerMigrationMetricsTest {
+
+  @Test
+  public void shouldRecordChangeSetTimersTaggedByOutcome() {
+    // given
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    MicrometerMigrationMetrics metrics = new MicrometerMigrationMetrics(registry);
+
+    // when
+    metrics.recordChangeSet("ChangeLog", "test1", MigrationMetrics.APPLIED, TimeUnit.MILLISECONDS.toNanos(20));
+    metrics.recordChangeSet("ChangeLog", "test2", MigrationMetrics.PASSED_OVER, TimeUnit.MILLISECONDS.toNanos(1));
+    metrics.recordLockWait(TimeUnit.SECONDS.toNanos(2), 4, false);
+
+    // then
+    assertEquals(20.0, registry.get("mongobee.changeset").tag("id", "test1").tag("outcome", "applied").timer()
+        .totalTime(TimeUnit.MILLISECONDS), 0.001);
+    assertEquals(1, registry.get("mongobee.changeset").tag("outcome", "passed_over").timer().count());
+    assertEquals(2.0, registry.get("mongobee.lock.wait").tag("acquired", "false").timer()
+        .totalTime(TimeUnit.SECONDS), 0.001);
+    assertEquals(4.0, registry.get("mongobee.lock.attempts").summary().totalAmount(), 0.001);
+  }
+
+}
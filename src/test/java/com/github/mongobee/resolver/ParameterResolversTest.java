@@ -0,0 +1,188 @@
+package com.github.mongobee.resolver;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+import org.bson.Document;
+import org.jongo.Jongo;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.github.fakemongo.Fongo;
+import com.github.mongobee.changeset.BulkWriter;
+import com.github.mongobee.changeset.ChangeSet;
+import com.github.mongobee.changeset.Checkpoint;
+import com.github.mongobee.exception.MongobeeChangeSetException;
+import com.github.mongobee.utils.ChangeSetDescriptor;
+import com.mongodb.DB;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+
+public class ParameterResolversTest {
+  private static final String DB_NAME = "mongobeetest";
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target(ElementType.PARAMETER)
+  public @interface Collection {
+    String value();
+  }
+
+  public static class TestChangeLog {
+    @ChangeSet(author = "testuser", id = "resolver1", order = "01")
+    public void withDriverFacades(MongoTemplate template, Jongo jongo, MongoDatabase mongoDatabase, DB db) {
+    }
+
+    @ChangeSet(author = "testuser", id = "resolver2", order = "02")
+    public void withTemplate(MongoTemplate template) {
+    }
+
+    @ChangeSet(author = "testuser", id = "resolver3", order = "03")
+    public void withService(StringBuilder service) {
+    }
+
+    @ChangeSet(author = "testuser", id = "resolver4", order = "04")
+    public void withCollections(@Collection("users") MongoCollection<Document> users,
+        @Collection("orders") MongoCollection<Document> orders) {
+    }
+
+    @ChangeSet(author = "testuser", id = "resolver5", order = "05")
+    public void withUsers(@Collection("users") MongoCollection<Document> users) {
+    }
+
+    @ChangeSet(author = "testuser", id = "resolver6", order = "06")
+    public void withBulkWriters(BulkWriter writer, BulkWriter sameWriter, Checkpoint checkpoint) {
+    }
+  }
+
+  /**
+   * Binds collections by the name given in {@link Collection}
+   */
+  private static class CollectionParameterResolver implements ParameterResolver {
+    @Override
+    public boolean supports(ChangeSetParameter parameter) {
+      return parameter.getType().equals(MongoCollection.class) && parameter.getAnnotation(Collection.class) != null;
+    }
+
+    @Override
+    public Object getCacheKey(ChangeSetParameter parameter) {
+      return parameter.getAnnotation(Collection.class).value();
+    }
+
+    @Override
+    public Object resolve(ChangeSetParameter parameter, ChangeSetContext context) {
+      return context.getMigration().getMongoDatabase().getCollection(parameter.getAnnotation(Collection.class).value());
+    }
+  }
+
+  private final Fongo fongo = new Fongo("testServer");
+  private final MigrationContext context = new MigrationContext(fongo.getDB(DB_NAME), fongo.getDatabase(DB_NAME),
+      DB_NAME, null);
+
+  @Test
+  public void shouldCreateDriverFacadesOncePerMigration() throws Exception {
+    // given
+    ParameterResolvers resolvers = new ParameterResolvers(
+        Collections.<ParameterResolver>singletonList(new DefaultParameterResolver(null, null)), context);
+
+    // when
+    Object[] arguments = resolvers.resolve(changeSet("withDriverFacades"));
+
+    // then
+    assertNotNull(arguments[0]);
+    assertSame(arguments[0], resolvers.resolve(changeSet("withTemplate"))[0]);
+    assertSame(arguments[1], resolvers.resolve(changeSet("withDriverFacades"))[1]);
+    assertSame(context.getMongoDatabase(), arguments[2]);
+    assertSame(context.getDb(), arguments[3]);
+  }
+
+  @Test
+  public void shouldAskResolversInOrder() throws Exception {
+    // given
+    MongoTemplate preferred = new MongoTemplate(fongo.getMongo(), DB_NAME);
+    ParameterResolvers resolvers = new ParameterResolvers(asList(
+        new InstanceParameterResolver<MongoTemplate>(MongoTemplate.class, preferred),
+        new DefaultParameterResolver(null, null)), context);
+
+    // then
+    assertSame(preferred, resolvers.resolve(changeSet("withTemplate"))[0]);
+  }
+
+  @Test
+  public void shouldResolveRegisteredType() throws Exception {
+    // given
+    StringBuilder service = new StringBuilder();
+    ParameterResolvers resolvers = new ParameterResolvers(asList(
+        new DefaultParameterResolver(null, null),
+        new InstanceParameterResolver<StringBuilder>(StringBuilder.class, service)), context);
+
+    // then
+    assertSame(service, resolvers.resolve(changeSet("withService"))[0]);
+  }
+
+  @Test
+  public void shouldResolveParametersOfTheSameTypeByAnnotation() throws Exception {
+    // given
+    ParameterResolvers resolvers = new ParameterResolvers(
+        Collections.<ParameterResolver>singletonList(new CollectionParameterResolver()), context);
+
+    // when
+    Object[] arguments = resolvers.resolve(changeSet("withCollections"));
+
+    // then
+    assertEquals("users", ((MongoCollection<?>) arguments[0]).getNamespace().getCollectionName());
+    assertEquals("orders", ((MongoCollection<?>) arguments[1]).getNamespace().getCollectionName());
+    assertNotSame(arguments[0], arguments[1]);
+    assertSame(arguments[0], resolvers.resolve(changeSet("withUsers"))[0]);
+  }
+
+  @Test
+  public void shouldResolveOneBulkWriterPerExecution() throws Exception {
+    // given
+    ParameterResolvers resolvers = new ParameterResolvers(
+        Collections.<ParameterResolver>singletonList(new BuiltInParameterResolver(null, 10, Long.MAX_VALUE, 1)),
+        context);
+    ChangeSetDescriptor changeSet = changeSet("withBulkWriters");
+    ChangeSetContext execution = new ChangeSetContext(context, changeSet);
+
+    // when
+    Object[] arguments = resolvers.resolve(changeSet, execution);
+    ((BulkWriter) arguments[0]).insert("users", new Document("name", "a"));
+
+    // then
+    assertSame(arguments[0], arguments[1]);
+    assertNull(arguments[2]);
+    assertNotSame(arguments[0], resolvers.resolve(changeSet)[0]);
+    assertEquals(0, context.getMongoDatabase().getCollection("users").count());
+    execution.complete();
+    assertEquals(1, context.getMongoDatabase().getCollection("users").count());
+  }
+
+  @Test(expected = MongobeeChangeSetException.class)
+  public void shouldFailOnUnsupportedType() throws Exception {
+    ParameterResolvers resolvers = new ParameterResolvers(
+        Collections.<ParameterResolver>singletonList(new DefaultParameterResolver(null, null)), context);
+
+    resolvers.resolve(changeSet("withService"));
+  }
+
+  private static ChangeSetDescriptor changeSet(String name) {
+    for (Method method : TestChangeLog.class.getDeclaredMethods()) {
+      if (method.getName().equals(name)) {
+        return ChangeSetDescriptor.of(method);
+      }
+    }
+    throw new IllegalArgumentException(name);
+  }
+
+}
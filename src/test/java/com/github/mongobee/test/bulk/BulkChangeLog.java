@@ -0,0 +1,24 @@
+package com.github.mongobee.test.bulk;
+
+import org.bson.Document;
+
+import com.github.mongobee.changeset.BulkWriter;
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+
+/**
+ * Changeset writing through a {@link BulkWriter} without flushing
+ */
+@ChangeLog(order = "1")
+public class BulkChangeLog {
+
+  public static final String COLLECTION_NAME = "bulkusers";
+
+  @ChangeSet(author = "testuser", id = "Btest1", order = "01")
+  public void insertUsers(BulkWriter writer) {
+    for (int i = 0; i < 10; i++) {
+      writer.insert(COLLECTION_NAME, new Document("_id", i));
+    }
+  }
+
+}
@@ -0,0 +1,36 @@
+package com.github.mongobee.test.bulkcheckpoint;
+
+import org.bson.Document;
+
+import com.github.mongobee.changeset.BulkWriter;
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+import com.github.mongobee.changeset.Checkpoint;
+import com.github.mongobee.exception.MongobeeException;
+
+/**
+ * Changeset inserting ids 0-9 through a {@link BulkWriter}, saving a checkpoint after each step, which crashes
+ * after id 7 if {@link #crash} is set
+ */
+@ChangeLog(order = "1")
+public class BulkCheckpointChangeLog {
+
+  public static final String COLLECTION_NAME = "bulkcheckpoint";
+
+  public static volatile boolean crash;
+
+  @ChangeSet(author = "testuser", id = "BCtest1", order = "01")
+  public void backfill(Checkpoint checkpoint, BulkWriter writer) throws MongobeeException {
+    Integer lastId = checkpoint.getResumeToken(Integer.class);
+    for (int id = lastId != null ? lastId + 1 : 0; id < 10; id++) {
+      writer.insert(COLLECTION_NAME, new Document("_id", id));
+      if (id % 3 == 2) {
+        checkpoint.save(id);
+      }
+      if (crash && id == 7) {
+        throw new IllegalStateException("simulated crash, pending writes are lost");
+      }
+    }
+  }
+
+}
@@ -0,0 +1,30 @@
+package com.github.mongobee.test.checkpoint;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+import com.github.mongobee.changeset.Checkpoint;
+import com.github.mongobee.exception.MongobeeException;
+
+/**
+ * Changeset processing ids 0-9 in steps, saving a checkpoint after each step
+ */
+@ChangeLog(order = "1")
+public class CheckpointChangeLog {
+
+  public static final List<Integer> PROCESSED = new CopyOnWriteArrayList<>();
+
+  @ChangeSet(author = "testuser", id = "Ctest1", order = "01")
+  public void backfill(Checkpoint checkpoint) throws MongobeeException {
+    Integer lastId = checkpoint.getResumeToken(Integer.class);
+    for (int id = lastId != null ? lastId + 1 : 0; id < 10; id++) {
+      PROCESSED.add(id);
+      if (id % 3 == 2) {
+        checkpoint.save(id);
+      }
+    }
+  }
+
+}
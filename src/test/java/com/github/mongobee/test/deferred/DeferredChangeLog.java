@@ -0,0 +1,27 @@
+package com.github.mongobee.test.deferred;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+
+/**
+ * Blocking changeset followed by a deferred one
+ */
+@ChangeLog(order = "1")
+public class DeferredChangeLog {
+
+  public static final List<String> EXECUTED = new CopyOnWriteArrayList<>();
+
+  @ChangeSet(author = "testuser", id = "Dtest1", order = "01")
+  public void createIndex() {
+    EXECUTED.add("Dtest1");
+  }
+
+  @ChangeSet(author = "testuser", id = "Dtest2", order = "02", deferred = true)
+  public void backfill() {
+    EXECUTED.add("Dtest2");
+  }
+
+}
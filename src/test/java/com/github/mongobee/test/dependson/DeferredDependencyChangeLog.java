@@ -0,0 +1,20 @@
+package com.github.mongobee.test.dependson;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+
+/**
+ * Changeset depending on a deferred one, rejected when running in parallel
+ */
+@ChangeLog(order = "1")
+public class DeferredDependencyChangeLog {
+
+  @ChangeSet(author = "testuser", id = "DDtest1", order = "01", deferred = true)
+  public void backfill() {
+  }
+
+  @ChangeSet(author = "testuser", id = "DDtest2", order = "02", dependsOn = "DDtest1")
+  public void report() {
+  }
+
+}
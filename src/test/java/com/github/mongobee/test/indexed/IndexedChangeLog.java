@@ -0,0 +1,17 @@
+package com.github.mongobee.test.indexed;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+
+/**
+ * Listed in the test changelog index
+ */
+@ChangeLog(order = "1")
+public class IndexedChangeLog {
+
+  @ChangeSet(author = "testuser", id = "Itest1", order = "01")
+  public void testChangeSet() {
+    System.out.println("invoked I1");
+  }
+
+}
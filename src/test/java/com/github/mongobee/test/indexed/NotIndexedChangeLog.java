@@ -0,0 +1,17 @@
+package com.github.mongobee.test.indexed;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+
+/**
+ * Not listed in the test changelog index, found by classpath scanning only
+ */
+@ChangeLog(order = "2")
+public class NotIndexedChangeLog {
+
+  @ChangeSet(author = "testuser", id = "Ntest1", order = "01")
+  public void testChangeSet() {
+    System.out.println("invoked N1");
+  }
+
+}
@@ -0,0 +1,238 @@
+package com.github.mongobee.test.lock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+
+import com.github.mongobee.dao.ChangeEntryDao;
+import com.github.mongobee.dao.LockWaitStrategy;
+import com.github.mongobee.exception.MongobeeException;
+import com.github.mongobee.metrics.MigrationMetrics;
+import com.mongodb.MongoClient;
+
+/**
+ * Lets workers, each with a {@link ChangeEntryDao} and lock owner of its own like separate processes, compete for
+ * the process lock. Every worker acquires the lock a number of times, holds it for a while and releases it.
+ * Records the acquisition latency, the failed attempts before each acquisition, how evenly the waiting is spread
+ * over the workers and safety violations - the lock held by two workers at once.
+ */
+public class LockContentionHarness {
+  private static final long HIGHEST_LATENCY_MILLIS = TimeUnit.HOURS.toMillis(1);
+  private static final long LOCK_WAIT_MINUTES = 10L;
+
+  /**
+   * Creates the wait strategy of a worker, strategies may keep state of their own
+   */
+  public interface LockWaitStrategyFactory {
+    LockWaitStrategy create();
+  }
+
+  private final MongoClient mongoClient;
+  private final String dbName;
+  private int workers = 8;
+  private int acquisitionsPerWorker = 1;
+  private long holdMillis = 50;
+
+  /**
+   * @param mongoClient client shared by the workers
+   * @param dbName database of the lock collection
+   */
+  public LockContentionHarness(MongoClient mongoClient, String dbName) {
+    this.mongoClient = mongoClient;
+    this.dbName = dbName;
+  }
+
+  public LockContentionHarness setWorkers(int workers) {
+    this.workers = workers;
+    return this;
+  }
+
+  public LockContentionHarness setAcquisitionsPerWorker(int acquisitionsPerWorker) {
+    this.acquisitionsPerWorker = acquisitionsPerWorker;
+    return this;
+  }
+
+  public LockContentionHarness setHoldMillis(long holdMillis) {
+    this.holdMillis = holdMillis;
+    return this;
+  }
+
+  /**
+   * @param strategies wait strategy of each worker
+   * @return measurements of the run
+   * @throws Exception if a worker fails
+   */
+  public Result run(final LockWaitStrategyFactory strategies) throws Exception {
+    final Histogram latencies = new Histogram(HIGHEST_LATENCY_MILLIS, 3);
+    final AtomicInteger holders = new AtomicInteger();
+    final AtomicInteger violations = new AtomicInteger();
+    final AtomicLong wastedPolls = new AtomicLong();
+    final AtomicInteger acquisitions = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    final long[] waitMillisByWorker = new long[workers];
+
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    List<Future<Void>> results = new ArrayList<>(workers);
+    long startNanos;
+    try {
+      for (int i = 0; i < workers; i++) {
+        final int worker = i;
+        final ChangeEntryDao dao = connect(strategies.create(), wastedPolls);
+        results.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            start.await();
+            for (int acquisition = 0; acquisition < acquisitionsPerWorker; acquisition++) {
+              long waitStart = System.nanoTime();
+              if (!dao.acquireProcessLock()) {
+                throw new MongobeeException("Worker " + worker + " did not acquire the lock");
+              }
+              long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
+              if (holders.incrementAndGet() > 1) {
+                violations.incrementAndGet();
+              }
+              Thread.sleep(holdMillis);
+              holders.decrementAndGet();
+              dao.releaseProcessLock();
+
+              acquisitions.incrementAndGet();
+              waitMillisByWorker[worker] += waitMillis;
+              synchronized (latencies) {
+                latencies.recordValue(Math.min(waitMillis, HIGHEST_LATENCY_MILLIS));
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      startNanos = System.nanoTime();
+      start.countDown();
+      for (Future<Void> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return new Result(latencies, acquisitions.get(), wastedPolls.get(), violations.get(),
+        fairness(waitMillisByWorker), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+  }
+
+  private ChangeEntryDao connect(LockWaitStrategy strategy, final AtomicLong wastedPolls) throws MongobeeException {
+    ChangeEntryDao dao = new ChangeEntryDao("dbchangelog", "mongobeelock", true, LOCK_WAIT_MINUTES, 0L, false);
+    dao.setLockWaitStrategy(strategy);
+    dao.setMetrics(new MigrationMetrics() {
+      @Override
+      public void recordScan(long nanos) {
+      }
+
+      @Override
+      public void recordConnect(long nanos) {
+      }
+
+      @Override
+      public void recordLockWait(long nanos, int attempts, boolean acquired) {
+        wastedPolls.addAndGet(acquired ? attempts - 1 : attempts);
+      }
+
+      @Override
+      public void recordChangeSet(String changeLogClass, String changeSetId, String outcome, long nanos) {
+      }
+
+      @Override
+      public void recordChangeEntryWrite(int entries, long nanos) {
+      }
+    });
+    dao.connectMongoDb(mongoClient, dbName);
+    return dao;
+  }
+
+  /**
+   * Jain's fairness index of the time the workers waited: 1 if all waited equally long, 1/n if one worker did
+   * all the waiting
+   */
+  private static double fairness(long[] waitMillisByWorker) {
+    double sum = 0;
+    double sumOfSquares = 0;
+    for (long waitMillis : waitMillisByWorker) {
+      sum += waitMillis;
+      sumOfSquares += (double) waitMillis * waitMillis;
+    }
+    return sumOfSquares == 0 ? 1.0 : sum * sum / (waitMillisByWorker.length * sumOfSquares);
+  }
+
+  /**
+   * Measurements of a run
+   */
+  public static class Result {
+    private final Histogram latencies;
+    private final int acquisitions;
+    private final long wastedPolls;
+    private final int safetyViolations;
+    private final double fairness;
+    private final long durationMillis;
+
+    Result(Histogram latencies, int acquisitions, long wastedPolls, int safetyViolations, double fairness,
+        long durationMillis) {
+      this.latencies = latencies;
+      this.acquisitions = acquisitions;
+      this.wastedPolls = wastedPolls;
+      this.safetyViolations = safetyViolations;
+      this.fairness = fairness;
+      this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return time from the start of each acquireProcessLock call until the lock was acquired, in milliseconds
+     */
+    public Histogram getLatencies() {
+      return latencies;
+    }
+
+    public int getAcquisitions() {
+      return acquisitions;
+    }
+
+    /**
+     * @return failed attempts to acquire the lock
+     */
+    public long getWastedPolls() {
+      return wastedPolls;
+    }
+
+    /**
+     * @return number of times the lock was acquired while another worker held it
+     */
+    public int getSafetyViolations() {
+      return safetyViolations;
+    }
+
+    /**
+     * @return Jain's fairness index of the waiting time of the workers, between 1/workers and 1
+     */
+    public double getFairness() {
+      return fairness;
+    }
+
+    public long getDurationMillis() {
+      return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%6d ms total, %4d acquisitions, latency p50 %6d ms p90 %6d ms p99 %6d ms max %6d ms, "
+              + "%6d wasted polls, fairness %.2f, %d safety violations", durationMillis, acquisitions,
+          latencies.getValueAtPercentile(50), latencies.getValueAtPercentile(90),
+          latencies.getValueAtPercentile(99), latencies.getMaxValue(), wastedPolls, fairness, safetyViolations);
+    }
+  }
+}
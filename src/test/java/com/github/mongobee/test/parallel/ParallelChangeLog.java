@@ -0,0 +1,37 @@
+package com.github.mongobee.test.parallel;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+
+/**
+ * Changesets of two independent groups followed by one depending on both
+ */
+@ChangeLog(order = "1", group = "users")
+public class ParallelChangeLog {
+
+  public static final List<String> EXECUTED = new CopyOnWriteArrayList<>();
+
+  @ChangeSet(author = "testuser", id = "Ptest1", order = "01")
+  public void usersIndex() {
+    EXECUTED.add("Ptest1");
+  }
+
+  @ChangeSet(author = "testuser", id = "Ptest2", order = "02", group = "orders")
+  public void ordersIndex() {
+    EXECUTED.add("Ptest2");
+  }
+
+  @ChangeSet(author = "testuser", id = "Ptest3", order = "03")
+  public void usersBackfill() {
+    EXECUTED.add("Ptest3");
+  }
+
+  @ChangeSet(author = "testuser", id = "Ptest4", order = "04", group = "reports", dependsOn = {"Ptest2", "Ptest3"})
+  public void reports() {
+    EXECUTED.add("Ptest4");
+  }
+
+}
@@ -0,0 +1,34 @@
+package com.github.mongobee.test.passedover;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+
+/**
+ * A changeset which is passed over as its argument cannot be resolved, followed by one depending on it
+ * and one of another group
+ */
+@ChangeLog(order = "1")
+public class PassedOverDependencyChangeLog {
+
+  public static final List<String> EXECUTED = new CopyOnWriteArrayList<>();
+
+  @ChangeSet(author = "testuser", id = "POtest1", order = "01", group = "users")
+  public void unresolvable(UUID unknown) {
+    EXECUTED.add("POtest1");
+  }
+
+  @ChangeSet(author = "testuser", id = "POtest2", order = "02", group = "orders", dependsOn = "POtest1")
+  public void dependent() {
+    EXECUTED.add("POtest2");
+  }
+
+  @ChangeSet(author = "testuser", id = "POtest3", order = "03", group = "reports")
+  public void independent() {
+    EXECUTED.add("POtest3");
+  }
+
+}
@@ -0,0 +1,101 @@
+package com.github.mongobee.test.scalability;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.MongoClientURI;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+/**
+ * Counts requests sent to the database. On a server the commands are counted by command monitoring; Fongo does not
+ * send commands, so each call of a {@link MongoCollection} or {@link MongoDatabase} method reaching the data is
+ * counted instead - a find is counted once, however many batches it reads.
+ */
+public class RoundTripCounter {
+  private final AtomicLong roundTrips = new AtomicLong();
+
+  public long get() {
+    return roundTrips.get();
+  }
+
+  /**
+   * @param uri server to connect to
+   * @return client counting the commands it sends
+   */
+  public MongoClient connect(String uri) {
+    MongoClientOptions.Builder options = MongoClientOptions.builder().addCommandListener(new CommandListener() {
+      @Override
+      public void commandStarted(CommandStartedEvent event) {
+        roundTrips.incrementAndGet();
+      }
+
+      @Override
+      public void commandSucceeded(CommandSucceededEvent event) {
+      }
+
+      @Override
+      public void commandFailed(CommandFailedEvent event) {
+      }
+    });
+    return new MongoClient(new MongoClientURI(uri, options));
+  }
+
+  /**
+   * @param fongo in-process database
+   * @return client counting the calls reaching the data
+   */
+  public MongoClient connect(Fongo fongo) {
+    final MongoClient client = spy(fongo.getMongo());
+    doAnswer(new Answer<MongoDatabase>() {
+      @Override
+      public MongoDatabase answer(InvocationOnMock invocation) throws Throwable {
+        return (MongoDatabase) proxy(MongoDatabase.class, invocation.callRealMethod());
+      }
+    }).when(client).getDatabase(anyString());
+    return client;
+  }
+
+  private Object proxy(Class<?> type, final Object target) {
+    return Proxy.newProxyInstance(RoundTripCounter.class.getClassLoader(), new Class<?>[]{type},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            // accessors and with* copies are answered locally
+            if (method.getDeclaringClass() != Object.class
+                && !method.getName().startsWith("get") && !method.getName().startsWith("with")) {
+              roundTrips.incrementAndGet();
+            }
+            Object result;
+            try {
+              result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+              throw e.getTargetException();
+            }
+            if (result instanceof MongoCollection && method.getReturnType().equals(MongoCollection.class)) {
+              return proxy(MongoCollection.class, result);
+            } else if (result instanceof MongoDatabase && method.getReturnType().equals(MongoDatabase.class)) {
+              return proxy(MongoDatabase.class, result);
+            }
+            return result;
+          }
+        });
+  }
+}
@@ -0,0 +1,196 @@
+package com.github.mongobee.test.scalability;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Generates and compiles a package of {@link com.github.mongobee.changeset.ChangeLog} classes, e.g. to see how
+ * Mongobee copes with the changesets a service accumulates over years. The classes are written to a temporary
+ * directory and loaded by a class loader of their own; compiling needs a JDK. Also used by mongobee-benchmarks,
+ * through the test jar.
+ */
+public class SyntheticChangeLogGenerator {
+  public static final String INACTIVE_PROFILE = "scalability-inactive";
+
+  private int changeLogs = 100;
+  private int changeSetsPerChangeLog = 50;
+  private int profileEvery;
+  private int runAlwaysEvery;
+
+  /**
+   * @param changeLogs number of changelog classes
+   * @return generator for fluent interface
+   */
+  public SyntheticChangeLogGenerator setChangeLogs(int changeLogs) {
+    this.changeLogs = changeLogs;
+    return this;
+  }
+
+  /**
+   * @param changeSetsPerChangeLog number of changesets of each changelog
+   * @return generator for fluent interface
+   */
+  public SyntheticChangeLogGenerator setChangeSetsPerChangeLog(int changeSetsPerChangeLog) {
+    this.changeSetsPerChangeLog = changeSetsPerChangeLog;
+    return this;
+  }
+
+  /**
+   * @param profileEvery every n-th changeset gets the {@link #INACTIVE_PROFILE} profile and is not executed
+   *                     unless the profile is active, 0 for none
+   * @return generator for fluent interface
+   */
+  public SyntheticChangeLogGenerator setProfileEvery(int profileEvery) {
+    this.profileEvery = profileEvery;
+    return this;
+  }
+
+  /**
+   * @param runAlwaysEvery every n-th changeset is a runAlways changeset, 0 for none
+   * @return generator for fluent interface
+   */
+  public SyntheticChangeLogGenerator setRunAlwaysEvery(int runAlwaysEvery) {
+    this.runAlwaysEvery = runAlwaysEvery;
+    return this;
+  }
+
+  /**
+   * @param packageName package of the changelogs
+   * @return compiled changelogs, to be closed once they are not used anymore
+   * @throws IOException if the sources can not be written
+   */
+  public GeneratedChangeLogs generate(String packageName) throws IOException {
+    Path directory = Files.createTempDirectory("mongobee-changelogs");
+    Path sources = Files.createDirectories(directory.resolve("sources").resolve(packageName.replace('.', '/')));
+    Path classes = Files.createDirectories(directory.resolve("classes"));
+
+    List<String> arguments = new ArrayList<>();
+    // surefire runs tests from a manifest-only jar, the real classpath is in its own property
+    String classpath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+    Collections.addAll(arguments, "-nowarn", "-proc:none", "-classpath", classpath, "-d", classes.toString());
+    List<String> activeChangeSetIds = new ArrayList<>();
+    int changeSet = 0;
+    for (int changeLog = 0; changeLog < changeLogs; changeLog++) {
+      StringBuilder source = new StringBuilder()
+          .append("package ").append(packageName).append(";\n\n")
+          .append("import com.github.mongobee.changeset.ChangeLog;\n")
+          .append("import com.github.mongobee.changeset.ChangeSet;\n")
+          .append("import com.mongodb.client.MongoDatabase;\n")
+          .append("import org.springframework.context.annotation.Profile;\n\n")
+          .append(String.format("@ChangeLog(order = \"%05d\")\n", changeLog))
+          .append("public class ").append(className(changeLog)).append(" {\n");
+      List<String> methods = new ArrayList<>();
+      for (int i = 0; i < changeSetsPerChangeLog; i++, changeSet++) {
+        String id = changeSetId(changeLog, i);
+        StringBuilder method = new StringBuilder();
+        if (profileEvery > 0 && (changeSet + 1) % profileEvery == 0) {
+          method.append("  @Profile(\"").append(INACTIVE_PROFILE).append("\")\n");
+        } else {
+          activeChangeSetIds.add(id);
+        }
+        boolean runAlways = runAlwaysEvery > 0 && (changeSet + 1) % runAlwaysEvery == 0;
+        method.append(String.format("  @ChangeSet(author = \"generator\", id = \"%s\", order = \"%05d\", runAlways = %s)\n",
+            id, i, runAlways))
+            .append(String.format("  public void changeSet%05d(MongoDatabase db) {\n  }\n", i));
+        methods.add(method.toString());
+      }
+      // declared in reverse order, so that the changesets have to be sorted
+      Collections.reverse(methods);
+      for (String method : methods) {
+        source.append(method);
+      }
+      source.append("}\n");
+
+      Path file = sources.resolve(className(changeLog) + ".java");
+      try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+        writer.write(source.toString());
+      }
+      arguments.add(file.toString());
+    }
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("Generated changelogs have to be compiled, run on a JDK");
+    }
+    if (compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0) {
+      throw new IllegalStateException("Generated changelogs could not be compiled in " + directory);
+    }
+    return new GeneratedChangeLogs(directory, packageName, activeChangeSetIds);
+  }
+
+  private static String className(int changeLog) {
+    return String.format("ChangeLog%05d", changeLog);
+  }
+
+  private static String changeSetId(int changeLog, int changeSet) {
+    return String.format("cl%05d-cs%05d", changeLog, changeSet);
+  }
+
+  /**
+   * Compiled changelogs of a package
+   */
+  public static class GeneratedChangeLogs implements AutoCloseable {
+    private final Path directory;
+    private final String packageName;
+    private final List<String> activeChangeSetIds;
+    private final URLClassLoader classLoader;
+
+    GeneratedChangeLogs(Path directory, String packageName, List<String> activeChangeSetIds) throws IOException {
+      this.directory = directory;
+      this.packageName = packageName;
+      this.activeChangeSetIds = activeChangeSetIds;
+      this.classLoader = new URLClassLoader(new URL[]{directory.resolve("classes").toUri().toURL()},
+          SyntheticChangeLogGenerator.class.getClassLoader());
+    }
+
+    public String getPackageName() {
+      return packageName;
+    }
+
+    /**
+     * @return ids of the changesets executed with the default profile, in execution order
+     */
+    public List<String> getActiveChangeSetIds() {
+      return activeChangeSetIds;
+    }
+
+    /**
+     * @return class loader of the changelogs; Mongobee scans the thread context class loader
+     */
+    public ClassLoader getClassLoader() {
+      return classLoader;
+    }
+
+    @Override
+    public void close() throws IOException {
+      classLoader.close();
+      Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+          Files.delete(file);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+          Files.delete(dir);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.github.mongobee.test.scanned;
+
+import org.springframework.context.annotation.Profile;
+
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+
+/**
+ * Records its initialization, should not be initialized by scanning
+ */
+@ChangeLog(order = "1")
+@Profile("scanned")
+public class StaticInitializerChangeLog {
+  public static final String INITIALIZED_PROPERTY = "mongobee.test.scanned.initialized";
+
+  static {
+    System.setProperty(INITIALIZED_PROPERTY, "true");
+  }
+
+  @ChangeSet(author = "testuser", id = "Stest1", order = "01")
+  public void testChangeSet() {
+    System.out.println("invoked S1");
+  }
+
+  @ChangeSet(author = "testuser", id = "Stest2", order = "02", runAlways = true)
+  @Profile({"dev", "!pro"})
+  public void testChangeSetWithAlways() {
+    System.out.println("invoked S2");
+  }
+
+}
@@ -0,0 +1,82 @@
+package com.github.mongobee.throttle;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+
+public class ThrottledMongoDatabaseTest {
+
+  private WriteThrottle throttle;
+  private MongoDatabase db;
+
+  @Before
+  public void init() {
+    throttle = mock(WriteThrottle.class);
+    db = ThrottledMongoDatabase.wrap(new Fongo("testServer").getDatabase("mongobeetest"), throttle);
+  }
+
+  @Test
+  public void shouldThrottleWritesByDocumentCount() throws Exception {
+    // given
+    MongoCollection<Document> users = db.getCollection("users");
+
+    // when
+    users.insertOne(new Document("_id", 1));
+    users.insertMany(Arrays.asList(new Document("_id", 2), new Document("_id", 3), new Document("_id", 4)));
+
+    // then
+    verify(throttle).acquire(1, 1);
+    verify(throttle).acquire(1, 3);
+    assertEquals(4, users.count());
+  }
+
+  @Test
+  public void shouldChargeDocumentsOfMultiDocumentWritesAfterWrite() throws Exception {
+    // given
+    MongoCollection<Document> users = db.getCollection("users");
+    users.insertMany(Arrays.asList(new Document("_id", 1), new Document("_id", 2)));
+
+    // when
+    users.updateMany(new Document(), new Document("$set", new Document("active", true)));
+
+    // then
+    verify(throttle).acquire(1, 0);
+    verify(throttle).charge(2);
+  }
+
+  @Test
+  public void shouldNotThrottleReads() throws Exception {
+    // when
+    db.getCollection("users").find().first();
+    db.getCollection("users").count();
+
+    // then
+    verify(throttle, never()).acquire(anyInt(), anyLong());
+  }
+
+  @Test
+  public void shouldThrottleDerivedCollections() throws Exception {
+    // when
+    db.withWriteConcern(WriteConcern.ACKNOWLEDGED).getCollection("users")
+        .withWriteConcern(WriteConcern.ACKNOWLEDGED)
+        .insertOne(new Document("_id", 1));
+
+    // then
+    verify(throttle).acquire(1, 1);
+  }
+
+}
@@ -0,0 +1,148 @@
+package com.github.mongobee.throttle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.github.mongobee.exception.MongobeeException;
+
+public class WriteThrottleTest {
+
+  @Test
+  public void shouldLimitOperationsPerSecond() throws Exception {
+    // given
+    WriteThrottle throttle = new WriteThrottle().setMaxOperationsPerSecond(50);
+    long start = System.nanoTime();
+
+    // when - a burst of 50 and 25 more at 50/s
+    for (int i = 0; i < 75; i++) {
+      throttle.acquire(1, 1);
+    }
+
+    // then
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 400);
+  }
+
+  @Test
+  public void shouldDelayWritesAfterChargedDocuments() throws Exception {
+    // given
+    WriteThrottle throttle = new WriteThrottle().setMaxDocumentsPerSecond(100);
+    throttle.acquire(1, 100);
+    throttle.charge(30);
+    long start = System.nanoTime();
+
+    // when
+    throttle.acquire(1, 1);
+
+    // then
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+  }
+
+  @Test
+  public void shouldLowerRateWhileLatencyIsAboveThreshold() {
+    // given
+    WriteThrottle throttle = new WriteThrottle().setLatencyThreshold(100, TimeUnit.MILLISECONDS);
+
+    // when
+    throttle.recordLatency(TimeUnit.MILLISECONDS.toNanos(500));
+    throttle.recordLatency(TimeUnit.MILLISECONDS.toNanos(500));
+
+    // then
+    assertEquals(0.25, throttle.getRateFactor(), 0.001);
+
+    // when
+    for (int i = 0; i < 100; i++) {
+      throttle.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    // then
+    assertEquals(1.0, throttle.getRateFactor(), 0.001);
+  }
+
+  @Test
+  public void shouldWaitWhileReplicationLagIsAboveMaximum() throws Exception {
+    // given
+    final AtomicInteger probes = new AtomicInteger();
+    WriteThrottle throttle = new WriteThrottle()
+        .setReplicationLagProbe(new ReplicationLagProbe() {
+          @Override
+          public long getReplicationLagMillis() {
+            return probes.incrementAndGet() < 3 ? 5000 : 100;
+          }
+        }, 1, TimeUnit.SECONDS)
+        .setLagProbeInterval(10, TimeUnit.MILLISECONDS);
+
+    // when
+    throttle.acquire(1, 1);
+
+    // then
+    assertEquals(3, probes.get());
+  }
+
+  @Test
+  public void shouldFailWhenReplicationLagStaysAboveMaximum() throws Exception {
+    // given
+    WriteThrottle throttle = new WriteThrottle()
+        .setReplicationLagProbe(new ReplicationLagProbe() {
+          @Override
+          public long getReplicationLagMillis() {
+            return 5000;
+          }
+        }, 1, TimeUnit.SECONDS)
+        .setLagProbeInterval(10, TimeUnit.MILLISECONDS)
+        .setMaxReplicationWait(50, TimeUnit.MILLISECONDS);
+
+    // when
+    try {
+      throttle.acquire(1, 1);
+      fail("MongobeeException expected");
+    } catch (MongobeeException e) {
+      // then
+      assertTrue(e.getMessage().contains("5000 ms"));
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void shouldRecordLatencyWhileWaitingForReplication() throws Exception {
+    // given
+    final CountDownLatch probing = new CountDownLatch(1);
+    final CountDownLatch caughtUp = new CountDownLatch(1);
+    final WriteThrottle throttle = new WriteThrottle()
+        .setLatencyThreshold(100, TimeUnit.MILLISECONDS)
+        .setReplicationLagProbe(new ReplicationLagProbe() {
+          @Override
+          public long getReplicationLagMillis() {
+            probing.countDown();
+            return caughtUp.getCount() > 0 ? 5000 : 0;
+          }
+        }, 1, TimeUnit.SECONDS)
+        .setLagProbeInterval(10, TimeUnit.MILLISECONDS);
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          throttle.acquire(1, 1);
+        } catch (InterruptedException | MongobeeException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+    writer.start();
+    probing.await();
+
+    // when - another changeset completes a write while the writer waits
+    throttle.recordLatency(TimeUnit.MILLISECONDS.toNanos(500));
+
+    // then
+    assertEquals(0.5, throttle.getRateFactor(), 0.001);
+    caughtUp.countDown();
+    writer.join();
+  }
+
+}
@@ -0,0 +1,78 @@
+package com.github.mongobee.utils;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangeLogIndexTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void shouldReadBackValuesWithSeparators() throws Exception {
+    // given
+    ChangeSetMetadata changeSet = new ChangeSetMetadata("change", "id\twith tab", "author\nwith\r\nbreaks", "01",
+        true, "dev,eu", "back\\slash");
+    ChangeLogMetadata changeLog = new ChangeLogMetadata("com.example.Log", "com.example.Log", "1",
+        Collections.singletonList(changeSet), "!pro,test");
+    File root = writeIndex(changeLog);
+
+    // when
+    ChangeLogIndex index = ChangeLogIndex.load(new URLClassLoader(new URL[]{root.toURI().toURL()}, null));
+
+    // then
+    List<ChangeLogMetadata> changeLogs = index.getChangeLogs("com.example");
+    assertEquals(1, changeLogs.size());
+    assertEquals(asList("!pro,test"), changeLogs.get(0).getProfiles());
+    ChangeSetMetadata read = changeLogs.get(0).getChangeSets().get(0);
+    assertEquals("id\twith tab", read.getId());
+    assertEquals("author\nwith\r\nbreaks", read.getAuthor());
+    assertEquals(asList("dev,eu", "back\\slash"), read.getProfiles());
+    assertTrue(read.isRunAlways());
+  }
+
+  @Test
+  public void shouldTellClassFilesOfIndexedRoots() throws Exception {
+    // given
+    File root = writeIndex(new ChangeLogMetadata("com.example.Log", "com.example.Log", "1",
+        Collections.<ChangeSetMetadata>emptyList()));
+
+    // when
+    ChangeLogIndex index = ChangeLogIndex.load(new URLClassLoader(new URL[]{root.toURI().toURL()}, null));
+
+    // then
+    assertTrue(index.isIndexed(new File(root, "com/example/Log.class").toURI().toURL().toString(), "com.example"));
+    assertFalse(index.isIndexed(new File(root, "org/example/Log.class").toURI().toURL().toString(), "org.example"));
+    assertFalse(index.isIndexed(new File(folder.getRoot(), "other/com/example/Log.class").toURI().toURL().toString(),
+        "com.example"));
+  }
+
+  private File writeIndex(ChangeLogMetadata changeLog) throws Exception {
+    File root = folder.newFolder("classes");
+    File indexFile = new File(root, ChangeLogIndex.INDEX_RESOURCE);
+    assertTrue(indexFile.getParentFile().mkdirs());
+    Writer writer = new OutputStreamWriter(new FileOutputStream(indexFile), "UTF-8");
+    try {
+      ChangeLogIndex.write(Collections.singletonList(changeLog), writer);
+    } finally {
+      writer.close();
+    }
+    return root;
+  }
+
+}
@@ -0,0 +1,76 @@
+package com.github.mongobee.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.mongobee.exception.MongobeeChangeSetException;
+import com.github.mongobee.resources.EnvironmentMock;
+import com.github.mongobee.test.changelogs.MongobeeTestResource;
+import com.github.mongobee.test.profiles.dev.ProfiledDevChangeLog;
+
+public class ChangeLogPlanCacheTest {
+  private static final String SCAN_PACKAGE = MongobeeTestResource.class.getPackage().getName();
+
+  @After
+  public void invalidate() {
+    ChangeLogPlanCache.invalidate();
+  }
+
+  @Test
+  public void shouldShareChangeLogsAndChangeSetsBetweenServices() throws MongobeeChangeSetException {
+    // given
+    List<ChangeLogMetadata> changeLogs = new ChangeService(SCAN_PACKAGE).fetchChangeLogMetadata();
+    List<ChangeSetMetadata> changeSets = new ChangeService(SCAN_PACKAGE).fetchChangeSets(changeLogs.get(0));
+
+    // when
+    ChangeService service = new ChangeService(SCAN_PACKAGE);
+    List<ChangeLogMetadata> cachedChangeLogs = service.fetchChangeLogMetadata();
+
+    // then
+    assertEquals(changeLogs.size(), cachedChangeLogs.size());
+    assertSame(changeLogs.get(0), cachedChangeLogs.get(0));
+    assertSame(changeSets, service.fetchChangeSets(cachedChangeLogs.get(0)));
+    cachedChangeLogs.clear(); // callers get a copy of the cached list
+    assertEquals(changeLogs.size(), service.fetchChangeLogMetadata().size());
+  }
+
+  @Test
+  public void shouldKeepPlansOfActiveProfilesApart() throws MongobeeChangeSetException {
+    // given
+    String scanPackage = ProfiledDevChangeLog.class.getPackage().getName();
+    ChangeService dev = new ChangeService(scanPackage, new EnvironmentMock("test", "dev"));
+    ChangeService devInOtherOrder = new ChangeService(scanPackage, new EnvironmentMock("dev", "test"));
+    ChangeService prod = new ChangeService(scanPackage, new EnvironmentMock("prod"));
+
+    // when
+    List<ChangeLogMetadata> devChangeLogs = dev.fetchChangeLogMetadata();
+    List<ChangeLogMetadata> prodChangeLogs = prod.fetchChangeLogMetadata();
+
+    // then
+    assertEquals(1, devChangeLogs.size());
+    assertEquals(0, prodChangeLogs.size());
+    assertSame(devChangeLogs.get(0), devInOtherOrder.fetchChangeLogMetadata().get(0));
+    assertSame(dev.fetchChangeSetDescriptors(ProfiledDevChangeLog.class),
+        devInOtherOrder.fetchChangeSetDescriptors(ProfiledDevChangeLog.class));
+  }
+
+  @Test
+  public void shouldScanAgainAfterInvalidation() {
+    // given
+    List<ChangeLogMetadata> changeLogs = new ChangeService(SCAN_PACKAGE).fetchChangeLogMetadata();
+
+    // when
+    ChangeLogPlanCache.invalidate(Thread.currentThread().getContextClassLoader());
+    List<ChangeLogMetadata> rescanned = new ChangeService(SCAN_PACKAGE).fetchChangeLogMetadata();
+
+    // then
+    assertEquals(changeLogs.size(), rescanned.size());
+    assertNotSame(changeLogs.get(0), rescanned.get(0));
+  }
+}
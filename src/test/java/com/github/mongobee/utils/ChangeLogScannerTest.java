@@ -0,0 +1,69 @@
+package com.github.mongobee.utils;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.mongobee.test.changelogs.AnotherMongobeeTestResource;
+import com.github.mongobee.test.changelogs.MongobeeTestResource;
+
+public class ChangeLogScannerTest {
+  private static final String STATIC_INITIALIZER_CHANGELOG = "com.github.mongobee.test.scanned.StaticInitializerChangeLog";
+  private static final String INITIALIZED_PROPERTY = "mongobee.test.scanned.initialized";
+
+  @Test
+  public void shouldFindChangeLogsInPackage() throws Exception {
+    // given
+    ChangeLogScanner scanner = new ChangeLogScanner(getClass().getClassLoader());
+
+    // when
+    List<ChangeLogMetadata> changeLogs = scanner.scan(MongobeeTestResource.class.getPackage().getName());
+
+    // then
+    HashSet<String> classNames = new HashSet<>();
+    for (ChangeLogMetadata changeLog : changeLogs) {
+      classNames.add(changeLog.getClassName());
+    }
+    assertTrue(classNames.contains(MongobeeTestResource.class.getName()));
+    assertTrue(classNames.contains(AnotherMongobeeTestResource.class.getName()));
+  }
+
+  @Test
+  public void shouldReadAnnotationAttributesWithoutInitializingClass() throws Exception {
+    // given
+    ChangeLogScanner scanner = new ChangeLogScanner(getClass().getClassLoader());
+
+    // when
+    List<ChangeLogMetadata> changeLogs = scanner.scan("com.github.mongobee.test.scanned");
+
+    // then
+    assertNull(System.getProperty(INITIALIZED_PROPERTY));
+    assertEquals(1, changeLogs.size());
+
+    ChangeLogMetadata changeLog = changeLogs.get(0);
+    assertEquals(STATIC_INITIALIZER_CHANGELOG, changeLog.getClassName());
+    assertEquals("1", changeLog.getOrder());
+    assertEquals(asList("scanned"), changeLog.getProfiles());
+    assertEquals(2, changeLog.getChangeSets().size());
+
+    for (ChangeSetMetadata changeSet : changeLog.getChangeSets()) {
+      assertEquals("testuser", changeSet.getAuthor());
+      if (changeSet.getId().equals("Stest2")) {
+        assertTrue(changeSet.isRunAlways());
+        assertEquals("02", changeSet.getOrder());
+        assertEquals(asList("dev", "!pro"), changeSet.getProfiles());
+      } else {
+        assertFalse(changeSet.isRunAlways());
+        assertTrue(changeSet.getProfiles().isEmpty());
+      }
+    }
+  }
+
+}
@@ -3,12 +3,21 @@ package com.github.mongobee.utils;
 import com.github.mongobee.changeset.ChangeEntry;
 import com.github.mongobee.exception.MongobeeChangeSetException;
 import com.github.mongobee.test.changelogs.*;
+import com.github.mongobee.test.indexed.IndexedChangeLog;
+import com.github.mongobee.test.indexed.NotIndexedChangeLog;
+import com.github.mongobee.test.parallel.ParallelChangeLog;
 import junit.framework.Assert;
 import org.junit.Test;
 
-import java.lang.reflect.Method;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.List;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
 
@@ -29,6 +38,48 @@ public class ChangeServiceTest {
     assertTrue(foundClasses != null && foundClasses.size() > 0);
   }
   
+  @Test
+  public void shouldTakeChangeLogClassesFromIndexWhenPresent(){
+    // given
+    String scanPackage = IndexedChangeLog.class.getPackage().getName();
+    ChangeService service = new ChangeService(scanPackage);
+    // when
+    List<Class<?>> foundClasses = service.fetchChangeLogs();
+    // then
+    assertEquals(1, foundClasses.size()); // NotIndexedChangeLog is not listed in the test index
+    assertEquals(IndexedChangeLog.class, foundClasses.get(0));
+  }
+
+  @Test
+  public void shouldScanClassPathRootsWithoutIndex() throws Exception {
+    // given
+    String classFile = NotIndexedChangeLog.class.getName().replace('.', '/') + ".class";
+    File root = Files.createTempDirectory("unindexed").toFile();
+    File copy = new File(root, classFile);
+    copy.getParentFile().mkdirs();
+    InputStream in = NotIndexedChangeLog.class.getClassLoader().getResourceAsStream(classFile);
+    try {
+      Files.copy(in, copy.toPath());
+    } finally {
+      in.close();
+    }
+    Thread thread = Thread.currentThread();
+    ClassLoader previous = thread.getContextClassLoader();
+    thread.setContextClassLoader(new URLClassLoader(new URL[]{root.toURI().toURL()}, previous));
+    try {
+      // when
+      List<ChangeLogMetadata> changeLogs =
+          new ChangeService(IndexedChangeLog.class.getPackage().getName()).fetchChangeLogMetadata();
+
+      // then
+      assertEquals(2, changeLogs.size()); // the copy is outside of the indexed test classes
+      assertEquals(IndexedChangeLog.class.getName(), changeLogs.get(0).getClassName());
+      assertEquals(NotIndexedChangeLog.class.getName(), changeLogs.get(1).getClassName());
+    } finally {
+      thread.setContextClassLoader(previous);
+    }
+  }
+
   @Test
   public void shouldFindChangeSetMethods() throws MongobeeChangeSetException {
     // given
@@ -36,10 +87,10 @@ public class ChangeServiceTest {
     ChangeService service = new ChangeService(scanPackage);
 
     // when
-    List<Method> foundMethods = service.fetchChangeSets(MongobeeTestResource.class);
+    List<ChangeSetDescriptor> foundChangeSets = service.fetchChangeSetDescriptors(MongobeeTestResource.class);
     
     // then
-    assertTrue(foundMethods != null && foundMethods.size() == 5);
+    assertTrue(foundChangeSets != null && foundChangeSets.size() == 5);
   }
 
   @Test
@@ -49,10 +100,10 @@ public class ChangeServiceTest {
     ChangeService service = new ChangeService(scanPackage);
 
     // when
-    List<Method> foundMethods = service.fetchChangeSets(AnotherMongobeeTestResource.class);
+    List<ChangeSetDescriptor> foundChangeSets = service.fetchChangeSetDescriptors(AnotherMongobeeTestResource.class);
 
     // then
-    assertTrue(foundMethods != null && foundMethods.size() == 6);
+    assertTrue(foundChangeSets != null && foundChangeSets.size() == 6);
   }
 
 
@@ -63,13 +114,13 @@ public class ChangeServiceTest {
     ChangeService service = new ChangeService(scanPackage);
 
     // when
-    List<Method> foundMethods = service.fetchChangeSets(AnotherMongobeeTestResource.class);
+    List<ChangeSetDescriptor> foundChangeSets = service.fetchChangeSetDescriptors(AnotherMongobeeTestResource.class);
     // then
-    for (Method foundMethod : foundMethods) {
-      if (foundMethod.getName().equals("testChangeSetWithAlways")){
-        assertTrue(service.isRunAlwaysChangeSet(foundMethod));
+    for (ChangeSetDescriptor foundChangeSet : foundChangeSets) {
+      if (foundChangeSet.getMethod().getName().equals("testChangeSetWithAlways")){
+        assertTrue(foundChangeSet.isRunAlways());
       } else {
-        assertFalse(service.isRunAlwaysChangeSet(foundMethod));
+        assertFalse(foundChangeSet.isRunAlways());
       }
     }
   }
@@ -80,12 +131,12 @@ public class ChangeServiceTest {
     // given
     String scanPackage = MongobeeTestResource.class.getPackage().getName();
     ChangeService service = new ChangeService(scanPackage);
-    List<Method> foundMethods = service.fetchChangeSets(MongobeeTestResource.class);
+    List<ChangeSetDescriptor> foundChangeSets = service.fetchChangeSetDescriptors(MongobeeTestResource.class);
 
-    for (Method foundMethod : foundMethods) {
+    for (ChangeSetDescriptor foundChangeSet : foundChangeSets) {
     
       // when
-      ChangeEntry entry = service.createChangeEntry(foundMethod);
+      ChangeEntry entry = foundChangeSet.createChangeEntry();
       
       // then
       Assert.assertEquals("testuser", entry.getAuthor());
@@ -100,7 +151,28 @@ public class ChangeServiceTest {
   public void shouldFailOnDuplicatedChangeSets() throws MongobeeChangeSetException {
     String scanPackage = ChangeLogWithDuplicate.class.getPackage().getName();
     ChangeService service = new ChangeService(scanPackage);
-    service.fetchChangeSets(ChangeLogWithDuplicate.class);
+    service.fetchChangeSetDescriptors(ChangeLogWithDuplicate.class);
+  }
+
+  @Test
+  public void shouldDescribeChangeSetsOnce() throws MongobeeChangeSetException {
+    // given
+    ChangeService service = new ChangeService(ParallelChangeLog.class.getPackage().getName());
+
+    // when
+    List<ChangeSetDescriptor> descriptors = service.fetchChangeSetDescriptors(ParallelChangeLog.class);
+
+    // then
+    assertEquals(4, descriptors.size());
+    assertEquals("Ptest1", descriptors.get(0).getId());
+    assertEquals("users", descriptors.get(0).getGroup());
+    assertEquals("orders", descriptors.get(1).getGroup());
+    assertEquals("Ptest4", descriptors.get(3).getId());
+    assertEquals(Arrays.asList("Ptest2", "Ptest3"), descriptors.get(3).getDependsOn());
+    assertFalse(descriptors.get(3).isRunAlways());
+    assertTrue(descriptors.get(3).getMethodHandle() != null);
+    assertEquals(ParallelChangeLog.class.getName(), descriptors.get(3).createChangeEntry().getChangeLogClass());
+    assertTrue(descriptors == service.fetchChangeSetDescriptors(ParallelChangeLog.class));
   }
 
 }
@@ -0,0 +1,108 @@
+package com.github.mongobee.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.junit.Test;
+
+import com.github.mongobee.changeset.ChangeSet;
+
+public class ChangeSetInvokerTest {
+
+  public static class TestChangeLog {
+    private int invocations;
+
+    @ChangeSet(author = "testuser", id = "invoker1", order = "01")
+    public String changeSetWithArguments(String first, Integer second) {
+      invocations++;
+      return first + second;
+    }
+
+    @ChangeSet(author = "testuser", id = "invoker2", order = "02")
+    public void voidChangeSet() {
+      invocations++;
+    }
+
+    @ChangeSet(author = "testuser", id = "invoker3", order = "03")
+    public void failingChangeSet() {
+      throw new IllegalStateException("failed");
+    }
+  }
+
+  @Test
+  public void shouldInvokeMethodWithArguments() throws Exception {
+    // given
+    TestChangeLog changeLog = new TestChangeLog();
+    ChangeSetInvoker invoker = ChangeSetInvoker.create(changeSet("changeSetWithArguments", String.class,
+        Integer.class), changeLog);
+
+    // when
+    Object first = invoker.invoke("a", 1);
+    Object second = invoker.invoke("b", null);
+
+    // then
+    assertEquals("a1", first);
+    assertEquals("bnull", second);
+    assertEquals(2, changeLog.invocations);
+  }
+
+  @Test
+  public void shouldReturnNullForVoidMethod() throws Exception {
+    TestChangeLog changeLog = new TestChangeLog();
+    ChangeSetInvoker invoker = ChangeSetInvoker.create(changeSet("voidChangeSet"), changeLog);
+
+    assertNull(invoker.invoke());
+    assertEquals(1, changeLog.invocations);
+  }
+
+  @Test
+  public void shouldWrapExceptionThrownByChangeSet() throws Exception {
+    ChangeSetInvoker invoker = ChangeSetInvoker.create(changeSet("failingChangeSet"), new TestChangeLog());
+
+    try {
+      invoker.invoke();
+      fail("exception expected");
+    } catch (InvocationTargetException e) {
+      assertSame(IllegalStateException.class, e.getTargetException().getClass());
+    }
+  }
+
+  @Test
+  public void shouldShareInvocationHandleOfChangeSet() throws Exception {
+    // given
+    ChangeSetDescriptor changeSet = changeSet("changeSetWithArguments", String.class, Integer.class);
+    TestChangeLog first = new TestChangeLog();
+    TestChangeLog second = new TestChangeLog();
+
+    // when
+    Object firstResult = ChangeSetInvoker.create(changeSet, first).invoke("a", 1);
+    Object secondResult = ChangeSetInvoker.create(changeSet, second).invoke("b", 2);
+
+    // then
+    assertEquals("a1", firstResult);
+    assertEquals("b2", secondResult);
+    assertEquals(1, first.invocations);
+    assertEquals(1, second.invocations);
+    assertSame(changeSet.getInvocationHandle(), changeSet.getInvocationHandle());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectWrongNumberOfArguments() throws Exception {
+    ChangeSetInvoker.create(changeSet("voidChangeSet"), new TestChangeLog()).invoke("a");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectArgumentOfWrongTypeInsteadOfBlamingChangeSet() throws Exception {
+    ChangeSetInvoker.create(changeSet("changeSetWithArguments", String.class, Integer.class), new TestChangeLog())
+        .invoke("a", "1");
+  }
+
+  private static ChangeSetDescriptor changeSet(String name, Class<?>... parameterTypes) throws Exception {
+    return ChangeSetDescriptor.of(TestChangeLog.class.getMethod(name, parameterTypes));
+  }
+
+}
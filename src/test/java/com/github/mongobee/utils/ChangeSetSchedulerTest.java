@@ -0,0 +1,208 @@
+package com.github.mongobee.utils;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.github.mongobee.exception.MongobeeChangeSetException;
+import com.github.mongobee.exception.MongobeeException;
+
+public class ChangeSetSchedulerTest {
+
+  private static final String AUTHOR = "testuser";
+
+  @Test
+  public void shouldRunUngroupedChangeSetsInOrder() throws Exception {
+    // given
+    List<ChangeSetScheduler.Node> nodes = asList(node("1", ""), node("2", ""), node("3", ""));
+
+    // when
+    List<Set<Integer>> graph = ChangeSetScheduler.buildGraph(nodes);
+
+    // then
+    assertTrue(graph.get(0).isEmpty());
+    assertEquals(Collections.singleton(0), graph.get(1));
+    assertEquals(Collections.singleton(1), graph.get(2));
+  }
+
+  @Test
+  public void shouldOrderGroupsIndependently() throws Exception {
+    // given
+    List<ChangeSetScheduler.Node> nodes = asList(
+        node("init", ""),
+        node("a1", "a"), node("b1", "b"), node("a2", "a"),
+        node("b2", "b", "a1"),
+        node("done", ""));
+
+    // when
+    List<Set<Integer>> graph = ChangeSetScheduler.buildGraph(nodes);
+
+    // then
+    assertEquals(Collections.singleton(0), graph.get(1));
+    assertEquals(Collections.singleton(0), graph.get(2));
+    assertEquals(asList(0, 1), new ArrayList<>(graph.get(3)));
+    assertEquals(asList(0, 2, 1), new ArrayList<>(graph.get(4)));
+    assertEquals(asList(0, 1, 2, 3, 4), new ArrayList<>(graph.get(5)));
+  }
+
+  @Test(expected = MongobeeChangeSetException.class)
+  public void shouldRejectDependencyCycle() throws Exception {
+    ChangeSetScheduler.buildGraph(asList(node("a1", "a", "b1"), node("b1", "b", "a1")));
+  }
+
+  @Test
+  public void shouldRunIndependentGroupsConcurrently() throws Exception {
+    // given
+    final CountDownLatch bothStarted = new CountDownLatch(2);
+    ChangeSetScheduler.Task awaitOther = new ChangeSetScheduler.Task() {
+      @Override
+      public boolean run() throws MongobeeException {
+        bothStarted.countDown();
+        try {
+          if (!bothStarted.await(10, TimeUnit.SECONDS)) {
+            throw new MongobeeException("changesets of independent groups did not run concurrently");
+          }
+        } catch (InterruptedException e) {
+          throw new MongobeeException("interrupted", e);
+        }
+        return true;
+      }
+    };
+    List<ChangeSetScheduler.Node> nodes = asList(
+        new ChangeSetScheduler.Node("a1", AUTHOR, "a", Collections.<String>emptyList(), awaitOther),
+        new ChangeSetScheduler.Node("b1", AUTHOR, "b", Collections.<String>emptyList(), awaitOther));
+
+    // when
+    new ChangeSetScheduler(2).execute(nodes);
+
+    // then
+    assertEquals(0, bothStarted.getCount());
+  }
+
+  @Test
+  public void shouldNotStartDependentsAfterFailure() throws Exception {
+    // given
+    final List<String> executed = new CopyOnWriteArrayList<>();
+    List<ChangeSetScheduler.Node> nodes = asList(
+        new ChangeSetScheduler.Node("failing", AUTHOR, "", Collections.<String>emptyList(),
+            new ChangeSetScheduler.Task() {
+          @Override
+          public boolean run() throws MongobeeException {
+            throw new MongobeeException("failed");
+          }
+        }),
+        node("next", AUTHOR, "", executed));
+
+    // when
+    try {
+      new ChangeSetScheduler(2).execute(nodes);
+      fail("MongobeeException expected");
+    } catch (MongobeeException e) {
+      // then
+      assertEquals("failed", e.getMessage());
+      assertTrue(executed.isEmpty());
+    }
+  }
+
+  @Test
+  public void shouldRejectUnknownDependency() throws Exception {
+    try {
+      ChangeSetScheduler.buildGraph(asList(node("a1", "a"), node("b1", "b", "a2")));
+      fail("MongobeeChangeSetException expected");
+    } catch (MongobeeChangeSetException e) {
+      assertTrue(e.getMessage().contains("a2"));
+    }
+  }
+
+  @Test
+  public void shouldResolveDependencyOfSameAuthor() throws Exception {
+    // given
+    List<ChangeSetScheduler.Node> nodes = asList(
+        authoredNode("init", "other", "a"), authoredNode("init", AUTHOR, "b"),
+        authoredNode("users", AUTHOR, "c", "init"));
+
+    // when
+    List<Set<Integer>> graph = ChangeSetScheduler.buildGraph(nodes);
+
+    // then
+    assertEquals(Collections.singleton(1), graph.get(2));
+  }
+
+  @Test
+  public void shouldResolveDependencyOfOnlyAuthorUsingId() throws Exception {
+    // given
+    List<ChangeSetScheduler.Node> nodes = asList(
+        authoredNode("init", "other", "a"), authoredNode("users", AUTHOR, "b", "init"));
+
+    // when
+    List<Set<Integer>> graph = ChangeSetScheduler.buildGraph(nodes);
+
+    // then
+    assertEquals(Collections.singleton(0), graph.get(1));
+  }
+
+  @Test(expected = MongobeeChangeSetException.class)
+  public void shouldRejectAmbiguousDependency() throws Exception {
+    ChangeSetScheduler.buildGraph(asList(
+        authoredNode("init", "other", "a"), authoredNode("init", "another", "b"),
+        authoredNode("users", AUTHOR, "c", "init")));
+  }
+
+  @Test
+  public void shouldPassOverDependentsOfPassedOverChangeSet() throws Exception {
+    // given
+    final List<String> executed = new CopyOnWriteArrayList<>();
+    List<ChangeSetScheduler.Node> nodes = asList(
+        new ChangeSetScheduler.Node("passedOver", AUTHOR, "a", Collections.<String>emptyList(),
+            new ChangeSetScheduler.Task() {
+          @Override
+          public boolean run() {
+            return false;
+          }
+        }),
+        node("dependent", AUTHOR, "b", executed, "passedOver"),
+        node("transitive", AUTHOR, "c", executed, "dependent"),
+        node("nextInGroup", AUTHOR, "a", executed),
+        node("independent", AUTHOR, "d", executed));
+
+    // when
+    boolean completed = new ChangeSetScheduler(2).execute(nodes);
+
+    // then
+    assertFalse(completed);
+    assertEquals(2, executed.size());
+    assertTrue(executed.containsAll(asList("nextInGroup", "independent")));
+  }
+
+  private static ChangeSetScheduler.Node node(String id, String group, String... dependsOn) {
+    return authoredNode(id, AUTHOR, group, dependsOn);
+  }
+
+  private static ChangeSetScheduler.Node authoredNode(String id, String author, String group, String... dependsOn) {
+    return node(id, author, group, new ArrayList<String>(), dependsOn);
+  }
+
+  private static ChangeSetScheduler.Node node(final String id, String author, String group,
+      final List<String> executed, String... dependsOn) {
+    return new ChangeSetScheduler.Node(id, author, group, asList(dependsOn), new ChangeSetScheduler.Task() {
+      @Override
+      public boolean run() {
+        executed.add(id);
+        return true;
+      }
+    });
+  }
+
+}